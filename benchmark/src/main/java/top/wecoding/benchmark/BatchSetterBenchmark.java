@@ -0,0 +1,104 @@
+package top.wecoding.benchmark;
+
+import com.alibaba.druid.mock.MockConnection;
+import com.alibaba.druid.mock.MockPreparedStatement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.mybatis.domain.BatchDemo;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BatchPreparedStatementSetter的参数绑定开销：
+ * 手写setInt/setString（TestJdbcTemplateDemo）与按TableMapping通用绑定（各写入策略的setValues）对比，
+ * 使用druid的MockPreparedStatement代替驱动，只保存参数不做网络io
+ *
+ * @author ffd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchSetterBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    private List<BatchDemo> batchDemos;
+
+    private TableMapping<BatchDemo> mapping;
+
+    private MockPreparedStatement ps;
+
+    @Setup
+    public void setup() {
+        batchDemos = BenchmarkData.batchDemos(rows);
+        mapping = TableMapping.of(BatchDemo.class);
+        ps = new MockPreparedStatement(new MockConnection(), mapping.getInsertSql());
+    }
+
+    @Benchmark
+    public PreparedStatement typedSetter() throws SQLException {
+        return bind(new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BatchDemo batchDemo = batchDemos.get(i);
+                ps.setInt(1, batchDemo.getId());
+                ps.setString(2, batchDemo.getBatchName());
+                ps.setString(3, batchDemo.getBatchValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchDemos.size();
+            }
+        });
+    }
+
+    @Benchmark
+    public PreparedStatement mappingSetter() throws SQLException {
+        return bind(new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BatchDemo batchDemo = batchDemos.get(i);
+                for (int column = 0; column < mapping.getColumnCount(); column++) {
+                    StatementCreatorUtils.setParameterValue(ps, column + 1, SqlTypeValue.TYPE_UNKNOWN, mapping.getValue(batchDemo, column));
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchDemos.size();
+            }
+        });
+    }
+
+    /**
+     * 与JdbcTemplate.batchUpdate相同的调用顺序，addBatch由clearParameters代替
+     */
+    private PreparedStatement bind(BatchPreparedStatementSetter setter) throws SQLException {
+        for (int i = 0; i < setter.getBatchSize(); i++) {
+            setter.setValues(ps, i);
+            ps.clearParameters();
+        }
+        return ps;
+    }
+}
@@ -0,0 +1,55 @@
+package top.wecoding.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试数据，与测试用例中的数据保持一致
+ *
+ * @author ffd
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static List<top.wecoding.mybatis.domain.BatchDemo> batchDemos(int size) {
+        return batchDemos(0, size);
+    }
+
+    static List<top.wecoding.mybatis.domain.BatchDemo> batchDemos(int offset, int size) {
+        List<top.wecoding.mybatis.domain.BatchDemo> batchDemos = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            top.wecoding.mybatis.domain.BatchDemo batchDemo = new top.wecoding.mybatis.domain.BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            batchDemos.add(batchDemo);
+        }
+        return batchDemos;
+    }
+
+    static List<top.wecoding.jpa.pojo.BatchDemo> jpaBatchDemos(int offset, int size) {
+        List<top.wecoding.jpa.pojo.BatchDemo> batchDemos = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            top.wecoding.jpa.pojo.BatchDemo batchDemo = new top.wecoding.jpa.pojo.BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            batchDemos.add(batchDemo);
+        }
+        return batchDemos;
+    }
+
+    static List<top.wecoding.mongo.entity.BatchDemo> mongoBatchDemos(int size) {
+        return mongoBatchDemos(0, size);
+    }
+
+    static List<top.wecoding.mongo.entity.BatchDemo> mongoBatchDemos(int offset, int size) {
+        List<top.wecoding.mongo.entity.BatchDemo> batchDemos = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            batchDemos.add(new top.wecoding.mongo.entity.BatchDemo(i, "name" + i, "value" + i));
+        }
+        return batchDemos;
+    }
+}
@@ -0,0 +1,49 @@
+package top.wecoding.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按计划时刻提交的一次调用，提交时登记到pending，完成后移除；
+ * 测试结束仍留在pending中的（排队或执行中）由{@link #abandon(long)}按下限记录，与执行完成的记录二者只取其一
+ *
+ * @author ffd
+ */
+class LoadCall implements Runnable {
+
+    private final LoadOperation operation;
+
+    private final long intendedNanos;
+
+    private final long measureFromNanos;
+
+    private final Set<LoadCall> pending;
+
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    LoadCall(LoadOperation operation, long intendedNanos, long measureFromNanos, Set<LoadCall> pending) {
+        this.operation = operation;
+        this.intendedNanos = intendedNanos;
+        this.measureFromNanos = measureFromNanos;
+        this.pending = pending;
+        pending.add(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            operation.execute(intendedNanos, measureFromNanos, recorded);
+        } finally {
+            pending.remove(this);
+        }
+    }
+
+    /**
+     * 放弃未完成的调用，响应时间记为 nowNanos - 计划时刻（实际响应时间的下限）
+     */
+    void abandon(long nowNanos) {
+        if (recorded.compareAndSet(false, true)) {
+            operation.abandon(intendedNanos, measureFromNanos, nowNanos);
+        }
+    }
+}
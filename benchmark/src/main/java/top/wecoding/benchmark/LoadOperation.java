@@ -0,0 +1,97 @@
+package top.wecoding.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 负载测试中按固定到达速率执行的一种操作
+ * 响应时间从计划到达时刻开始计算（包含排队与调度延迟，修正协调遗漏），服务时间从实际开始执行计算，
+ * 两者的差距即为系统跟不上到达速率时请求的等待时间
+ *
+ * @author ffd
+ */
+class LoadOperation {
+
+    final String name;
+
+    /**
+     * 每秒到达次数
+     */
+    final double rate;
+
+    /**
+     * 每次调用写入的行数，读操作为0
+     */
+    final int rows;
+
+    private final Runnable task;
+
+    final Histogram response = new ConcurrentHistogram(3);
+
+    final Histogram service = new ConcurrentHistogram(3);
+
+    final LongAdder errors = new LongAdder();
+
+    /**
+     * 测试结束时仍未完成、按下限记录的调用数
+     */
+    final LongAdder unfinished = new LongAdder();
+
+    volatile Throwable lastError;
+
+    LoadOperation(String name, double rate, int rows, Runnable task) {
+        this.name = name;
+        this.rate = rate;
+        this.rows = rows;
+        this.task = task;
+    }
+
+    /**
+     * 执行一次并记录耗时，计划时刻早于measureFromNanos（预热期）的不记录；
+     * 已被{@link #abandon}记录过的（recorded已置位）不再重复记录
+     *
+     * @param intendedNanos    计划到达时刻
+     * @param measureFromNanos 开始统计的时刻
+     * @param recorded         本次调用是否已记录
+     */
+    void execute(long intendedNanos, long measureFromNanos, AtomicBoolean recorded) {
+        long startNanos = System.nanoTime();
+        Throwable error = null;
+        try {
+            task.run();
+        } catch (Throwable e) {
+            error = e;
+        }
+        long endNanos = System.nanoTime();
+        if (intendedNanos >= measureFromNanos && recorded.compareAndSet(false, true)) {
+            if (error != null) {
+                errors.increment();
+                lastError = error;
+            }
+            // HdrHistogram不接受负值
+            response.recordValue(Math.max(0, endNanos - intendedNanos));
+            service.recordValue(Math.max(0, endNanos - startNanos));
+        }
+    }
+
+    /**
+     * 记录测试结束时仍未完成的一次调用，响应时间取 nowNanos - 计划时刻，是实际响应时间的下限；
+     * 服务时间未知，不记录
+     */
+    void abandon(long intendedNanos, long measureFromNanos, long nowNanos) {
+        if (intendedNanos >= measureFromNanos) {
+            unfinished.increment();
+            response.recordValue(Math.max(0, nowNanos - intendedNanos));
+        }
+    }
+
+    /**
+     * 计划到达时刻之间的间隔（纳秒）
+     */
+    long periodNanos() {
+        return (long) (1_000_000_000D / rate);
+    }
+}
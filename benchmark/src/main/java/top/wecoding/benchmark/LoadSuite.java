@@ -0,0 +1,351 @@
+package top.wecoding.benchmark;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import top.wecoding.BatchDemoApplication;
+import top.wecoding.batch.BatchWriterFactory;
+import top.wecoding.batch.buffer.GroupCommitBuffer;
+import top.wecoding.mongo.service.impl.BaseMongoServiceImpl;
+import top.wecoding.mybatis.domain.BatchDemo;
+import top.wecoding.mybatis.service.BatchDemoService;
+import top.wecoding.threadService.BatchInsertByThreadService;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环负载测试：按固定到达速率调用批处理服务，同时可叠加读请求，统计各操作的响应时间分位数
+ * 每个操作由独立的调度线程按计划时刻提交到工作线程池，不等待上一次调用完成（开环），
+ * 响应时间从计划时刻算起，系统变慢时排队的时间同样计入，不会因为压测端跟着变慢而低估尾延迟（协调遗漏）；
+ * 结果输出到控制台、results.csv 以及每个操作的HdrHistogram分位数分布（.hgrm）
+ * <pre>
+ * java -cp benchmarks.jar top.wecoding.benchmark.LoadSuite
+ *     [--ops=mybatis.saveBatch@1,thread.insertBy2PC@0.5,mongo.saveBatch@1,groupCommit.save@200,mybatis.getById@200,mongo.getById@200]
+ *     [--batch-size=1000] [--threads=4] [--duration=60] [--warmup=10] [--workers=64] [--preload=10000]
+ *     [--slo=mybatis.getById:p99=50,mongo.getById:p99.9=100] [--out=target/load]
+ *     [--target=h2_mysql | --spring.profiles.active=mongodb,mysql 等spring参数]
+ * </pre>
+ * 指定--target时使用嵌入式数据库（见{@link StrategyTarget}），否则连接application.yml中配置的数据库；
+ * 违反--slo（操作:分位数=毫秒）时进程以1退出
+ *
+ * @author ffd
+ */
+public class LoadSuite {
+
+    private static final double[] QUANTILES = {50, 90, 99, 99.9};
+
+    private static final String DEFAULT_OPS = "mybatis.saveBatch@1,mongo.saveBatch@1,mybatis.getById@100,mongo.getById@100";
+
+    private static final List<String> OPTIONS = Arrays.asList("ops", "batch-size", "threads", "duration", "warmup",
+            "workers", "preload", "slo", "out", "target");
+
+    private final ConfigurableApplicationContext context;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    /**
+     * 下一个写入的主键，读请求在已写入的主键中随机选择
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    private final AtomicInteger nextMongoId = new AtomicInteger();
+
+    private final BaseMongoServiceImpl<top.wecoding.mongo.entity.BatchDemo> mongoService;
+
+    private LoadSuite(ConfigurableApplicationContext context, int batchSize, int threads) {
+        this.context = context;
+        this.batchSize = batchSize;
+        this.threads = threads;
+        MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+        this.mongoService = new BaseMongoServiceImpl<top.wecoding.mongo.entity.BatchDemo>() {
+            {
+                this.mongoTemplate = mongoTemplate;
+            }
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            String name = arg.startsWith("--") && index > 0 ? arg.substring(2, index) : null;
+            if (OPTIONS.contains(name)) {
+                options.put(name, arg.substring(index + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size", "1000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+        int workers = Integer.parseInt(options.getOrDefault("workers", "64"));
+        int preload = Integer.parseInt(options.getOrDefault("preload", "10000"));
+        Path out = Paths.get(options.getOrDefault("out", "target/load"));
+
+        MongoServer mongoServer = null;
+        if (options.containsKey("target")) {
+            StrategyTarget target = StrategyTarget.valueOf(options.get("target").toUpperCase());
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            String mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort() + "/wecoding_batch";
+            springArgs.addAll(0, Arrays.asList(target.arguments(mongoUri, workers)));
+        }
+        List<LoadOperation> operations;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BatchDemoApplication.class)
+                .web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).run(springArgs.toArray(new String[0]))) {
+            if (options.containsKey("target")) {
+                context.getBean(JdbcTemplate.class).execute(StrategyTarget.CREATE_TABLE_SQL);
+            }
+            LoadSuite suite = new LoadSuite(context, batchSize, threads);
+            operations = suite.operations(options.getOrDefault("ops", DEFAULT_OPS));
+            suite.preload(preload);
+            long incomplete = run(operations, workers, warmupNanos, durationNanos);
+            report(operations, incomplete, out);
+        } finally {
+            if (mongoServer != null) {
+                mongoServer.shutdownNow();
+            }
+        }
+        List<String> violations = checkSlo(operations, options.get("slo"));
+        violations.forEach(violation -> System.out.println("违反SLO：" + violation));
+        if (!violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 解析 操作名@每秒次数
+     */
+    private List<LoadOperation> operations(String spec) {
+        List<LoadOperation> operations = new ArrayList<>();
+        for (String item : spec.split(",")) {
+            String[] parts = item.trim().split("@");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("operation must be name@rate: " + item);
+            }
+            operations.add(operation(parts[0], Double.parseDouble(parts[1])));
+        }
+        return operations;
+    }
+
+    private LoadOperation operation(String name, double rate) {
+        switch (name) {
+            case "mybatis.saveBatch": {
+                BatchDemoService batchDemoService = context.getBean(BatchDemoService.class);
+                return new LoadOperation(name, rate, batchSize, () -> batchDemoService.saveBatch(batchDemos(batchSize)));
+            }
+            case "thread.insertBy2PC": {
+                BatchInsertByThreadService batchInsertByThreadService = context.getBean(BatchInsertByThreadService.class);
+                return new LoadOperation(name, rate, batchSize, () -> batchInsertByThreadService.insertBy2PC(batchDemos(batchSize), threads));
+            }
+            case "groupCommit.save": {
+                GroupCommitBuffer<BatchDemo> buffer = context.getBean(BatchWriterFactory.class).getGroupCommitBuffer(BatchDemo.class);
+                return new LoadOperation(name, rate, 1, () -> buffer.save(batchDemos(1).get(0)).join());
+            }
+            case "mongo.saveBatch":
+                return new LoadOperation(name, rate, batchSize, () -> mongoService.saveBatch(mongoBatchDemos(batchSize)));
+            case "mybatis.getById": {
+                BatchDemoService batchDemoService = context.getBean(BatchDemoService.class);
+                return new LoadOperation(name, rate, 0, () -> batchDemoService.getById(randomId(nextId)));
+            }
+            case "mongo.getById":
+                return new LoadOperation(name, rate, 0, () -> mongoService.getById(randomId(nextMongoId)));
+            default:
+                throw new IllegalArgumentException("unknown operation: " + name);
+        }
+    }
+
+    /**
+     * 从现有最大主键之后继续写入，并预置读请求命中的数据
+     */
+    private void preload(int rows) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Integer maxId = jdbcTemplate.queryForObject("select max(id) from batch_demo", Integer.class);
+        nextId.set(maxId == null ? 0 : maxId + 1);
+        top.wecoding.mongo.entity.BatchDemo last = mongoService.getOne(new Query().with(Sort.by(Sort.Direction.DESC, "id")).limit(1));
+        nextMongoId.set(last == null ? 0 : last.getId() + 1);
+        BatchWriterFactory batchWriterFactory = context.getBean(BatchWriterFactory.class);
+        for (int written = 0; written < rows; written += batchSize) {
+            int size = Math.min(batchSize, rows - written);
+            batchWriterFactory.getWriter(BatchDemo.class).write(batchDemos(size));
+            mongoService.saveBatch(mongoBatchDemos(size));
+        }
+    }
+
+    /**
+     * 各操作的调度线程按计划时刻提交调用，工作线程池的队列不设上限，跟不上时请求排队而不是推迟到达；
+     * 等待超时后仍在排队或执行中的调用按下限计入响应时间（见{@link LoadCall#abandon}），不会从统计中消失
+     *
+     * @return 结束后仍未完成的调用数
+     */
+    private static long run(List<LoadOperation> operations, int workers, long warmupNanos, long durationNanos) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("Load-"));
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFromNanos = startNanos + warmupNanos;
+        long endNanos = measureFromNanos + durationNanos;
+        Set<LoadCall> pending = ConcurrentHashMap.newKeySet();
+        List<Thread> schedulers = new ArrayList<>(operations.size());
+        for (LoadOperation operation : operations) {
+            Thread scheduler = new Thread(() -> schedule(operation, executor, pending, startNanos, measureFromNanos, endNanos),
+                    "LoadScheduler-" + operation.name);
+            scheduler.setDaemon(true);
+            schedulers.add(scheduler);
+        }
+        schedulers.forEach(Thread::start);
+        for (Thread scheduler : schedulers) {
+            scheduler.join();
+        }
+        executor.shutdown();
+        // 仍在排队的调用同样计入统计，最多再等待一个测试时长
+        if (!executor.awaitTermination(Math.max(durationNanos, TimeUnit.SECONDS.toNanos(30)), TimeUnit.NANOSECONDS)) {
+            executor.shutdownNow();
+            long nowNanos = System.nanoTime();
+            long incomplete = 0;
+            for (LoadCall call : pending) {
+                call.abandon(nowNanos);
+                incomplete++;
+            }
+            return incomplete;
+        }
+        return 0;
+    }
+
+    private static void schedule(LoadOperation operation, ExecutorService executor, Set<LoadCall> pending,
+                                 long startNanos, long measureFromNanos, long endNanos) {
+        long periodNanos = operation.periodNanos();
+        for (long i = 0; ; i++) {
+            long intendedNanos = startNanos + i * periodNanos;
+            if (intendedNanos >= endNanos) {
+                return;
+            }
+            // parkNanos可能提前返回（虚假唤醒、中断），等到计划时刻为止
+            long waitNanos;
+            while ((waitNanos = intendedNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            executor.execute(new LoadCall(operation, intendedNanos, measureFromNanos, pending));
+        }
+    }
+
+    private static void report(List<LoadOperation> operations, long incomplete, Path out) throws IOException {
+        Files.createDirectories(out);
+        StringBuilder header = new StringBuilder("operation,rate,rows,count,errors,unfinished");
+        for (String kind : new String[]{"response", "service"}) {
+            for (double quantile : QUANTILES) {
+                header.append(',').append(kind).append("_p").append(quantile == Math.rint(quantile) ? String.valueOf((long) quantile) : String.valueOf(quantile)).append("_ms");
+            }
+            header.append(',').append(kind).append("_max_ms");
+        }
+        System.out.printf("%-20s %8s %8s %6s %10s | %-40s | %-40s%n", "operation", "rate", "count", "errors", "unfinished",
+                "response p50/p90/p99/p99.9/max ms", "service p50/p90/p99/p99.9/max ms");
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(out.resolve("results.csv"), StandardCharsets.UTF_8))) {
+            csv.println(header);
+            for (LoadOperation operation : operations) {
+                long count = operation.response.getTotalCount();
+                csv.println(operation.name + "," + operation.rate + "," + operation.rows + "," + count + ","
+                        + operation.errors.sum() + "," + operation.unfinished.sum() + "," + percentiles(operation.response, ",")
+                        + "," + percentiles(operation.service, ","));
+                System.out.printf("%-20s %8s %8d %6d %10d | %-40s | %-40s%n", operation.name, format(operation.rate), count,
+                        operation.errors.sum(), operation.unfinished.sum(), percentiles(operation.response, "/"), percentiles(operation.service, "/"));
+                if (operation.lastError != null) {
+                    System.out.println("  最后一次错误：" + operation.lastError);
+                }
+                try (PrintStream hgrm = new PrintStream(Files.newOutputStream(out.resolve(operation.name + ".hgrm")), true, "UTF-8")) {
+                    operation.response.outputPercentileDistribution(hgrm, 1_000_000D);
+                }
+            }
+        }
+        if (incomplete > 0) {
+            System.out.println("结束时仍有 " + incomplete + " 次调用未完成（统计期内的按下限计入响应时间，见unfinished列），到达速率超过了系统的处理能力");
+        }
+        System.out.println("结果：" + out.toAbsolutePath());
+    }
+
+    /**
+     * 检查 操作:p分位数=毫秒 形式的SLO
+     */
+    private static List<String> checkSlo(List<LoadOperation> operations, String spec) {
+        List<String> violations = new ArrayList<>();
+        if (spec == null || spec.isEmpty()) {
+            return violations;
+        }
+        for (String item : spec.split(",")) {
+            String[] parts = item.trim().split("[:=]");
+            if (parts.length != 3 || !parts[1].startsWith("p")) {
+                throw new IllegalArgumentException("slo must be operation:pXX=millis: " + item);
+            }
+            double quantile = Double.parseDouble(parts[1].substring(1));
+            double limitMillis = Double.parseDouble(parts[2]);
+            for (LoadOperation operation : operations) {
+                if (operation.name.equals(parts[0])) {
+                    double actualMillis = operation.response.getValueAtPercentile(quantile) / 1_000_000D;
+                    if (actualMillis > limitMillis || operation.errors.sum() > 0) {
+                        violations.add(operation.name + " " + parts[1] + " " + format(actualMillis) + "ms > " + format(limitMillis)
+                                + "ms，错误 " + operation.errors.sum());
+                    }
+                }
+            }
+        }
+        return violations;
+    }
+
+    private List<BatchDemo> batchDemos(int size) {
+        return BenchmarkData.batchDemos(nextId.getAndAdd(size), size);
+    }
+
+    private List<top.wecoding.mongo.entity.BatchDemo> mongoBatchDemos(int size) {
+        return BenchmarkData.mongoBatchDemos(nextMongoId.getAndAdd(size), size);
+    }
+
+    private static int randomId(AtomicInteger nextId) {
+        int bound = nextId.get();
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    private static String percentiles(Histogram histogram, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (double quantile : QUANTILES) {
+            sb.append(format(histogram.getValueAtPercentile(quantile) / 1_000_000D)).append(separator);
+        }
+        return sb.append(format(histogram.getMaxValue() / 1_000_000D)).toString();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.2f", value);
+    }
+}
@@ -0,0 +1,128 @@
+package top.wecoding.benchmark;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Update;
+import top.wecoding.mongo.entity.BatchDemo;
+import top.wecoding.mongo.service.impl.BaseMongoServiceImpl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mongo客户端开销：BaseMongoServiceImpl.buildBaseUpdate 的反射构建更新，以及实体与Document之间的映射
+ *
+ * @author ffd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MongoMappingBenchmark {
+
+    @Param({"1000"})
+    private int rows;
+
+    private List<BatchDemo> batchDemos;
+
+    private List<Document> documents;
+
+    private MappingMongoConverter converter;
+
+    private BaseMongoServiceImpl<BatchDemo> mongoService;
+
+    private Method buildBaseUpdate;
+
+    private Field[] cachedFields;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        batchDemos = BenchmarkData.mongoBatchDemos(rows);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        documents = new ArrayList<>(rows);
+        for (BatchDemo batchDemo : batchDemos) {
+            Document document = new Document();
+            converter.write(batchDemo, document);
+            documents.add(document);
+        }
+        mongoService = new BaseMongoServiceImpl<>();
+        // buildBaseUpdate为私有方法，反射调用的额外开销相对方法本身可以忽略
+        buildBaseUpdate = BaseMongoServiceImpl.class.getDeclaredMethod("buildBaseUpdate", Object.class);
+        buildBaseUpdate.setAccessible(true);
+        cachedFields = BatchDemo.class.getDeclaredFields();
+        for (Field field : cachedFields) {
+            field.setAccessible(true);
+        }
+    }
+
+    /**
+     * 现有实现：每个实体都getDeclaredFields并setAccessible
+     */
+    @Benchmark
+    public void buildBaseUpdate(Blackhole blackhole) throws ReflectiveOperationException {
+        for (BatchDemo batchDemo : batchDemos) {
+            blackhole.consume(buildBaseUpdate.invoke(mongoService, batchDemo));
+        }
+    }
+
+    /**
+     * 对照：字段只反射一次后缓存，区分反射查找与Update构建各自的开销
+     */
+    @Benchmark
+    public void buildUpdateWithCachedFields(Blackhole blackhole) throws IllegalAccessException {
+        for (BatchDemo batchDemo : batchDemos) {
+            Update update = new Update();
+            for (Field field : cachedFields) {
+                Object value = field.get(batchDemo);
+                if (value != null) {
+                    update.set(field.getName(), value);
+                }
+            }
+            blackhole.consume(update);
+        }
+    }
+
+    /**
+     * 实体 -> Document（insertAll、save时的映射）
+     */
+    @Benchmark
+    public void writeDocuments(Blackhole blackhole) {
+        for (BatchDemo batchDemo : batchDemos) {
+            Document document = new Document();
+            converter.write(batchDemo, document);
+            blackhole.consume(document);
+        }
+    }
+
+    /**
+     * Document -> 实体（查询结果的映射）
+     */
+    @Benchmark
+    public void readDocuments(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(converter.read(BatchDemo.class, document));
+        }
+    }
+}
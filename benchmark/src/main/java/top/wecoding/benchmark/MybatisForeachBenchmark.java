@@ -0,0 +1,100 @@
+package top.wecoding.benchmark;
+
+import com.alibaba.druid.mock.MockConnection;
+import com.alibaba.druid.mock.MockPreparedStatement;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.wecoding.mybatis.mapper.BatchDemoMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mybatis {@code <foreach>} 动态sql的开销：BatchDemoMapper.insertListForMybatis 每次调用都要
+ * 通过OGNL遍历集合生成sql与参数映射，再逐个参数反射取值绑定
+ *
+ * @author ffd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MybatisForeachBenchmark {
+
+    private static final String MAPPER = "mapper/BatchDemoMapper.xml";
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private MappedStatement mappedStatement;
+
+    private Map<String, Object> parameter;
+
+    private BoundSql boundSql;
+
+    private MockConnection connection;
+
+    @Setup
+    public void setup() throws IOException {
+        Configuration configuration = new Configuration();
+        try (InputStream inputStream = Resources.getResourceAsStream(MAPPER)) {
+            new XMLMapperBuilder(inputStream, configuration, MAPPER, configuration.getSqlFragments()).parse();
+        }
+        mappedStatement = configuration.getMappedStatement(BatchDemoMapper.class.getName() + ".insertListForMybatis");
+        MapperMethod.ParamMap<Object> paramMap = new MapperMethod.ParamMap<>();
+        paramMap.put("batchDemoList", BenchmarkData.batchDemos(rows));
+        parameter = paramMap;
+        boundSql = mappedStatement.getBoundSql(parameter);
+        connection = new MockConnection();
+    }
+
+    /**
+     * 动态sql求值：foreach展开生成sql与参数映射
+     */
+    @Benchmark
+    public BoundSql evaluateForeach() {
+        return mappedStatement.getBoundSql(parameter);
+    }
+
+    /**
+     * 参数绑定：按参数映射逐个取值并调用PreparedStatement.setXxx
+     */
+    @Benchmark
+    public MockPreparedStatement bindParameters() throws SQLException {
+        MockPreparedStatement ps = new MockPreparedStatement(connection, boundSql.getSql());
+        new DefaultParameterHandler(mappedStatement, parameter, boundSql).setParameters(ps);
+        return ps;
+    }
+
+    /**
+     * 一次insertListForMybatis调用的客户端开销合计
+     */
+    @Benchmark
+    public MockPreparedStatement evaluateAndBind() throws SQLException {
+        BoundSql sql = mappedStatement.getBoundSql(parameter);
+        MockPreparedStatement ps = new MockPreparedStatement(connection, sql.getSql());
+        new DefaultParameterHandler(mappedStatement, parameter, sql).setParameters(ps);
+        return ps;
+    }
+}
@@ -0,0 +1,84 @@
+package top.wecoding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.sql.MultiRowInsertBuilder;
+import top.wecoding.mybatis.domain.BatchDemo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多行insert语句的拼接开销：multi_values策略的字面量拼接与fixed_arity策略的占位符语句生成
+ *
+ * @author ffd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlBuildBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    @Param({"MYSQL", "POSTGRESQL", "ORACLE"})
+    private DbDialect dialect;
+
+    private TableMapping<BatchDemo> mapping;
+
+    private List<BatchDemo> batchDemos;
+
+    @Setup
+    public void setup() {
+        mapping = TableMapping.of(BatchDemo.class);
+        batchDemos = BenchmarkData.batchDemos(rows);
+    }
+
+    /**
+     * 字面量多行insert，语句只计算长度不执行
+     */
+    @Benchmark
+    public long literalMultiRowInsert() {
+        long[] length = new long[1];
+        MultiRowInsertBuilder<BatchDemo> builder = new MultiRowInsertBuilder<>(dialect, mapping, 4 * 1024 * 1024, sql -> {
+            length[0] += sql.length();
+            return 0;
+        });
+        builder.addAll(batchDemos.iterator());
+        builder.flush();
+        return length[0];
+    }
+
+    /**
+     * 占位符多行insert语句生成（fixed_arity策略启动时生成、之后复用）
+     */
+    @Benchmark
+    public String preparedMultiRowInsertSql() {
+        return dialect.multiRowInsertSql(mapping, Math.min(rows, dialect.maxPreparedRows(mapping.getColumnCount())));
+    }
+
+    /**
+     * 通过TableMapping读取一行的全部列值（各写入策略绑定参数前的公共开销）
+     */
+    @Benchmark
+    public void mappingValues(Blackhole blackhole) {
+        for (BatchDemo batchDemo : batchDemos) {
+            blackhole.consume(mapping.getValues(batchDemo));
+        }
+    }
+}
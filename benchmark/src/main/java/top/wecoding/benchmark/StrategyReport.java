@@ -0,0 +1,183 @@
+package top.wecoding.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 策略基准报告：csv结果（供脚本处理与下次对比）与按目标库分组的markdown对比表
+ *
+ * @author ffd
+ */
+class StrategyReport {
+
+    private static final String CSV_HEADER = "target,strategy,rows,threads,status,elapsed_millis,rows_per_second,error";
+
+    private final List<StrategyResult> results;
+
+    StrategyReport(List<StrategyResult> results) {
+        this.results = results;
+    }
+
+    void writeCsv(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println(CSV_HEADER);
+            for (StrategyResult result : results) {
+                writer.println(result.target + "," + result.strategy + "," + result.rows + "," + result.threads + ","
+                        + result.status + "," + result.getElapsedMillis() + "," + (long) result.getRowsPerSecond() + ","
+                        + quote(result.error));
+            }
+        }
+    }
+
+    /**
+     * 读取上次运行的csv结果，耗时按毫秒精度还原
+     */
+    static List<StrategyResult> readCsv(Path file) throws IOException {
+        List<StrategyResult> results = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.equals(CSV_HEADER)) {
+                continue;
+            }
+            String[] fields = line.split(",", 8);
+            results.add(new StrategyResult(fields[0], fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                    fields[4], Long.parseLong(fields[5]) * 1_000_000, fields.length > 7 ? unquote(fields[7]) : null));
+        }
+        return results;
+    }
+
+    /**
+     * 与基线对比，吞吐量下降超过tolerance或由成功变为失败的组合视为回退
+     *
+     * @param baseline  上次的结果
+     * @param tolerance 允许的吞吐量下降比例，如0.2
+     * @return 回退描述，为空表示没有回退
+     */
+    List<String> compare(List<StrategyResult> baseline, double tolerance) {
+        Map<String, StrategyResult> previous = baseline.stream()
+                .collect(Collectors.toMap(StrategyResult::key, Function.identity(), (a, b) -> b));
+        List<String> regressions = new ArrayList<>();
+        for (StrategyResult result : results) {
+            StrategyResult before = previous.get(result.key());
+            if (before == null || !before.isOk()) {
+                continue;
+            }
+            if (!result.isOk()) {
+                regressions.add(describe(result) + "：" + result.status + "（基线 " + format(before.getRowsPerSecond()) + " 行/秒）");
+            } else if (result.getRowsPerSecond() < before.getRowsPerSecond() * (1 - tolerance)) {
+                long change = Math.round((result.getRowsPerSecond() / before.getRowsPerSecond() - 1) * 100);
+                regressions.add(describe(result) + "：" + format(before.getRowsPerSecond()) + " -> "
+                        + format(result.getRowsPerSecond()) + " 行/秒（" + change + "%）");
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * 每个目标库一张表：行为策略 × 线程数，列为行数，单元格为每秒写入行数
+     *
+     * @param regressions 与基线对比的回退，没有基线时为null
+     */
+    void writeMarkdown(Path file, List<String> regressions) throws IOException {
+        Map<String, List<StrategyResult>> byTarget = new LinkedHashMap<>();
+        results.forEach(result -> byTarget.computeIfAbsent(result.target, k -> new ArrayList<>()).add(result));
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("# 写入策略基准");
+            writer.println();
+            writer.println("- 时间：" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            writer.println("- 环境：java " + System.getProperty("java.version") + "，" + System.getProperty("os.name") + " "
+                    + System.getProperty("os.arch") + "，" + Runtime.getRuntime().availableProcessors() + " 核，最大堆 "
+                    + Runtime.getRuntime().maxMemory() / 1024 / 1024 + " MB");
+            writer.println("- 单元格为每秒写入行数，按最慢线程的写入耗时计算，不含数据生成；✗ 失败，- 跳过（同策略较小行数已失败）");
+            writer.println("- 嵌入式数据库只反映客户端与语句形态的相对差异，不代表真实数据库上的绝对吞吐量");
+            for (Map.Entry<String, List<StrategyResult>> entry : byTarget.entrySet()) {
+                writeTable(writer, entry.getKey(), entry.getValue());
+            }
+            if (regressions != null) {
+                writer.println();
+                writer.println("## 与基线对比");
+                writer.println();
+                if (regressions.isEmpty()) {
+                    writer.println("没有回退");
+                }
+                regressions.forEach(regression -> writer.println("- " + regression));
+            }
+        }
+    }
+
+    private void writeTable(PrintWriter writer, String target, List<StrategyResult> targetResults) {
+        TreeSet<Integer> rowCounts = targetResults.stream().map(result -> result.rows).collect(Collectors.toCollection(TreeSet::new));
+        Map<String, Map<Integer, StrategyResult>> lines = new LinkedHashMap<>();
+        for (StrategyResult result : targetResults) {
+            lines.computeIfAbsent(result.strategy + "|" + result.threads, k -> new LinkedHashMap<>()).put(result.rows, result);
+        }
+        writer.println();
+        writer.println("## " + target + "（" + StrategyTarget.valueOf(target.toUpperCase()).describe() + "）");
+        writer.println();
+        StringBuilder header = new StringBuilder("| 策略 | 线程 |");
+        StringBuilder separator = new StringBuilder("|---|---:|");
+        for (Integer rows : rowCounts) {
+            header.append(' ').append(rows).append(" 行 |");
+            separator.append("---:|");
+        }
+        writer.println(header);
+        writer.println(separator);
+        List<StrategyResult> failures = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, StrategyResult>> line : lines.entrySet()) {
+            String[] key = line.getKey().split("\\|");
+            StringBuilder row = new StringBuilder("| ").append(key[0]).append(" | ").append(key[1]).append(" |");
+            for (Integer rows : rowCounts) {
+                StrategyResult result = line.getValue().get(rows);
+                row.append(' ').append(cell(result)).append(" |");
+                if (result != null && StrategyResult.FAILED.equals(result.status)) {
+                    failures.add(result);
+                }
+            }
+            writer.println(row);
+        }
+        if (!failures.isEmpty()) {
+            writer.println();
+            failures.forEach(result -> writer.println("- ✗ " + describe(result) + "：" + result.error));
+        }
+    }
+
+    private static String cell(StrategyResult result) {
+        if (result == null || StrategyResult.SKIPPED.equals(result.status)) {
+            return "-";
+        }
+        return result.isOk() ? format(result.getRowsPerSecond()) : "✗";
+    }
+
+    private static String describe(StrategyResult result) {
+        return result.target + " " + result.strategy + " " + result.rows + " 行 × " + result.threads + " 线程";
+    }
+
+    private static String format(double rowsPerSecond) {
+        return String.format("%,d", (long) rowsPerSecond);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\r", " ").replace("\n", " ").replace("\"", "\"\"") + '"';
+    }
+
+    private static String unquote(String value) {
+        if (value.length() < 2 || value.charAt(0) != '"') {
+            return value.isEmpty() ? null : value;
+        }
+        return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+    }
+}
@@ -0,0 +1,68 @@
+package top.wecoding.benchmark;
+
+/**
+ * 单个 目标库 × 策略 × 行数 × 线程数 组合的结果
+ *
+ * @author ffd
+ */
+class StrategyResult {
+
+    static final String OK = "ok";
+
+    static final String FAILED = "failed";
+
+    static final String SKIPPED = "skipped";
+
+    final String target;
+
+    final String strategy;
+
+    final int rows;
+
+    final int threads;
+
+    final String status;
+
+    /**
+     * 最慢线程的写入耗时（纳秒），不含数据生成与预置数据
+     */
+    final long elapsedNanos;
+
+    final String error;
+
+    StrategyResult(String target, String strategy, int rows, int threads, String status, long elapsedNanos, String error) {
+        this.target = target;
+        this.strategy = strategy;
+        this.rows = rows;
+        this.threads = threads;
+        this.status = status;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    boolean isOk() {
+        return OK.equals(status);
+    }
+
+    double getRowsPerSecond() {
+        return isOk() && elapsedNanos > 0 ? rows * 1_000_000_000D / elapsedNanos : 0D;
+    }
+
+    long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * 用于与基线结果对应的键
+     */
+    String key() {
+        return target + "/" + strategy + "/" + rows + "/" + threads;
+    }
+
+    @Override
+    public String toString() {
+        String cell = target + " " + strategy + " " + rows + "×" + threads;
+        return isOk() ? String.format("%s 耗时：%d，每秒：%d", cell, getElapsedMillis(), (long) getRowsPerSecond())
+                : cell + " " + status + "：" + error;
+    }
+}
@@ -0,0 +1,286 @@
+package top.wecoding.benchmark;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.BatchDemoApplication;
+import top.wecoding.batch.BatchWriter;
+import top.wecoding.batch.BatchWriterFactory;
+import top.wecoding.batch.BatchWriterType;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * 离线端到端写入策略基准
+ * 以h2的mysql/postgresql/oracle兼容模式与进程内mongo代替真实数据库，启动完整的spring上下文，
+ * 对每个写入策略按 行数 × 线程数 组合写入并校验行数，输出 results.csv 与 results.md 对比表；
+ * 指定基线（上次的results.csv）时吞吐量下降超过容忍比例的组合视为回退，进程以1退出
+ * <pre>
+ * java -Xmx4g -cp benchmarks.jar top.wecoding.benchmark.StrategySuite
+ *     [--rows=10000,100000,1000000,10000000] [--threads=1,4] [--targets=h2_mysql,h2_postgresql,h2_oracle,mongo]
+ *     [--types=jdbc,upsert] [--out=target/strategy] [--baseline=results.csv] [--tolerance=0.2]
+ * </pre>
+ *
+ * @author ffd
+ */
+public class StrategySuite {
+
+    /**
+     * 每次write调用的行数，数据边生成边写入，1000w行时内存中也只保留每个线程的一个分片
+     */
+    private static final int CHUNK_ROWS = 100000;
+
+    private static final String TABLE = "batch_demo";
+
+    private final StrategyTarget target;
+
+    private final BatchWriterFactory batchWriterFactory;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final MongoTemplate mongoTemplate;
+
+    private StrategySuite(StrategyTarget target, ConfigurableApplicationContext context) {
+        this.target = target;
+        this.batchWriterFactory = context.getBean(BatchWriterFactory.class);
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        this.mongoTemplate = context.getBean(MongoTemplate.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        List<Integer> rowCounts = ints(options.getOrDefault("rows", "10000,100000,1000000"));
+        List<Integer> threadCounts = ints(options.getOrDefault("threads", "1,4"));
+        List<StrategyTarget> targets = Arrays.stream(options.getOrDefault("targets", "h2_mysql,h2_postgresql,h2_oracle,mongo").split(","))
+                .map(name -> StrategyTarget.valueOf(name.trim().toUpperCase())).collect(Collectors.toList());
+        Set<BatchWriterType> types = options.containsKey("types") ? Arrays.stream(options.get("types").split(","))
+                .map(name -> BatchWriterType.valueOf(name.trim().toUpperCase())).collect(Collectors.toSet()) : null;
+        Path out = Paths.get(options.getOrDefault("out", "target/strategy"));
+
+        List<StrategyResult> results = new ArrayList<>();
+        MongoServer mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        String mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort() + "/wecoding_batch";
+        try {
+            for (StrategyTarget target : targets) {
+                String[] contextArgs = target.arguments(mongoUri, Collections.max(threadCounts));
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BatchDemoApplication.class)
+                        .web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).run(contextArgs)) {
+                    results.addAll(new StrategySuite(target, context).run(rowCounts, threadCounts, types));
+                }
+            }
+        } finally {
+            mongoServer.shutdownNow();
+        }
+
+        StrategyReport report = new StrategyReport(results);
+        Files.createDirectories(out);
+        report.writeCsv(out.resolve("results.csv"));
+        List<String> regressions = null;
+        if (options.containsKey("baseline")) {
+            double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.2"));
+            regressions = report.compare(StrategyReport.readCsv(Paths.get(options.get("baseline"))), tolerance);
+        }
+        report.writeMarkdown(out.resolve("results.md"), regressions);
+        System.out.println("结果：" + out.toAbsolutePath().resolve("results.csv") + "，" + out.toAbsolutePath().resolve("results.md"));
+        if (regressions != null && !regressions.isEmpty()) {
+            regressions.forEach(regression -> System.out.println("回退：" + regression));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 依次运行目标库上的各策略，同一策略较小行数失败后（如兼容模式不支持的语法）跳过更大的行数
+     */
+    private List<StrategyResult> run(List<Integer> rowCounts, List<Integer> threadCounts, Set<BatchWriterType> types) {
+        if (target.isRelational()) {
+            jdbcTemplate.execute("drop table if exists " + TABLE);
+            jdbcTemplate.execute(StrategyTarget.CREATE_TABLE_SQL);
+        }
+        List<StrategyResult> results = new ArrayList<>();
+        for (BatchWriterType type : target.getTypes()) {
+            if (types != null && !types.contains(type)) {
+                continue;
+            }
+            String failure = null;
+            for (int rows : rowCounts) {
+                for (int threads : threadCounts) {
+                    StrategyResult result = failure == null ? run(type, rows, threads)
+                            : new StrategyResult(target.label(), label(type), rows, threads, StrategyResult.SKIPPED, 0, failure);
+                    if (StrategyResult.FAILED.equals(result.status)) {
+                        failure = result.error;
+                    }
+                    System.out.println(result);
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 清空后写入rows行，upsert预置前一半（一半更新一半插入），bulk_update预置全部后更新batch_value
+     */
+    private StrategyResult run(BatchWriterType type, int rows, int threads) {
+        String label = label(type);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            clear();
+            if (type == BatchWriterType.UPSERT) {
+                seed(rows / 2);
+            } else if (type == BatchWriterType.BULK_UPDATE) {
+                seed(rows);
+            }
+            BatchWriter<Object> writer = writer(type);
+            int share = (rows + threads - 1) / threads;
+            List<Future<Long>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                int from = i * share;
+                int to = Math.min(rows, from + share);
+                futures.add(executor.submit(() -> write(writer, type, from, to)));
+            }
+            long elapsedNanos = 0;
+            for (Future<Long> future : futures) {
+                elapsedNanos = Math.max(elapsedNanos, future.get());
+            }
+            long written = count(type);
+            if (written != rows) {
+                return new StrategyResult(target.label(), label, rows, threads, StrategyResult.FAILED, elapsedNanos,
+                        "expected " + rows + " rows but found " + written);
+            }
+            return new StrategyResult(target.label(), label, rows, threads, StrategyResult.OK, elapsedNanos, null);
+        } catch (ExecutionException e) {
+            return failed(label, rows, threads, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(label, rows, threads, e);
+        } catch (RuntimeException e) {
+            return failed(label, rows, threads, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 分片生成并写入[from, to)，返回write调用的累计耗时
+     */
+    private long write(BatchWriter<Object> writer, BatchWriterType type, int from, int to) {
+        long elapsedNanos = 0;
+        for (int offset = from; offset < to; offset += CHUNK_ROWS) {
+            elapsedNanos += writer.write(data(type, offset, Math.min(CHUNK_ROWS, to - offset))).getElapsedNanos();
+        }
+        return elapsedNanos;
+    }
+
+    private void seed(int rows) {
+        BatchWriter<Object> writer = writer(BatchWriterType.JDBC_TEMPLATE);
+        for (int offset = 0; offset < rows; offset += CHUNK_ROWS) {
+            writer.write(data(BatchWriterType.JDBC_TEMPLATE, offset, Math.min(CHUNK_ROWS, rows - offset)));
+        }
+    }
+
+    private void clear() {
+        if (target.isRelational()) {
+            jdbcTemplate.execute("truncate table " + TABLE);
+        } else {
+            mongoTemplate.dropCollection(top.wecoding.mongo.entity.BatchDemo.class);
+        }
+    }
+
+    /**
+     * 写入后校验行数，bulk_update校验已更新的行数
+     */
+    private long count(BatchWriterType type) {
+        if (type == BatchWriterType.MONGO) {
+            return mongoTemplate.count(new Query(), top.wecoding.mongo.entity.BatchDemo.class);
+        }
+        String sql = "select count(*) from " + TABLE + (type == BatchWriterType.BULK_UPDATE ? " where batch_value like 'update%'" : "");
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private BatchWriter<Object> writer(BatchWriterType type) {
+        return (BatchWriter<Object>) batchWriterFactory.getWriter(type, entityClass(type));
+    }
+
+    private static Class<?> entityClass(BatchWriterType type) {
+        switch (type) {
+            case JPA:
+                return top.wecoding.jpa.pojo.BatchDemo.class;
+            case MONGO:
+                return top.wecoding.mongo.entity.BatchDemo.class;
+            default:
+                return top.wecoding.mybatis.domain.BatchDemo.class;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> data(BatchWriterType type, int offset, int size) {
+        switch (type) {
+            case JPA:
+                return (List<Object>) (List<?>) BenchmarkData.jpaBatchDemos(offset, size);
+            case MONGO:
+                return (List<Object>) (List<?>) BenchmarkData.mongoBatchDemos(offset, size);
+            case BULK_UPDATE:
+                // 与TestBatchWriterDemo#testBulkUpdate一致：batch_name为null不修改，只更新batch_value
+                List<top.wecoding.mybatis.domain.BatchDemo> batchDemos = BenchmarkData.batchDemos(offset, size);
+                batchDemos.forEach(batchDemo -> {
+                    batchDemo.setBatchName(null);
+                    batchDemo.setBatchValue("update" + batchDemo.getId());
+                });
+                return (List<Object>) (List<?>) batchDemos;
+            default:
+                return (List<Object>) (List<?>) BenchmarkData.batchDemos(offset, size);
+        }
+    }
+
+    private StrategyResult failed(String label, int rows, int threads, Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        String message = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        return new StrategyResult(target.label(), label, rows, threads, StrategyResult.FAILED, 0, message);
+    }
+
+    private static String label(BatchWriterType type) {
+        return type.name().toLowerCase();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("unrecognized argument: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static List<Integer> ints(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+    }
+}
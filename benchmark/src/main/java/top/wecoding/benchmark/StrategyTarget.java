@@ -0,0 +1,99 @@
+package top.wecoding.benchmark;
+
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.dialect.DbDialect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 策略基准的嵌入式目标库
+ * 关系型数据库以h2兼容模式代替，mongodb以进程内的mongo-java-server代替；
+ * load_data/copy/oracle_array依赖各自驱动的专有接口，兼容模式下无法运行，不参与对比
+ *
+ * @author ffd
+ */
+enum StrategyTarget {
+
+    H2_MYSQL("jdbc:h2:mem:strategy_mysql;MODE=MySQL;DATABASE_TO_LOWER=TRUE", DbDialect.MYSQL),
+
+    H2_POSTGRESQL("jdbc:h2:mem:strategy_postgresql;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", DbDialect.POSTGRESQL),
+
+    H2_ORACLE("jdbc:h2:mem:strategy_oracle;MODE=Oracle", DbDialect.ORACLE),
+
+    /**
+     * spring上下文仍需要数据源，使用h2 mysql模式
+     */
+    MONGO("jdbc:h2:mem:strategy_mongo;MODE=MySQL;DATABASE_TO_LOWER=TRUE", DbDialect.MYSQL) {
+        @Override
+        List<BatchWriterType> getTypes() {
+            return Collections.singletonList(BatchWriterType.MONGO);
+        }
+    };
+
+    static final String CREATE_TABLE_SQL = "create table if not exists batch_demo (id int primary key, batch_name varchar(255), batch_value varchar(255))";
+
+    private static final List<BatchWriterType> RELATIONAL_TYPES = Collections.unmodifiableList(Arrays.asList(
+            BatchWriterType.JDBC, BatchWriterType.JDBC_TEMPLATE, BatchWriterType.MYBATIS, BatchWriterType.JPA,
+            BatchWriterType.MULTI_VALUES, BatchWriterType.FIXED_ARITY, BatchWriterType.UPSERT, BatchWriterType.BULK_UPDATE));
+
+    private final String url;
+
+    private final DbDialect dialect;
+
+    StrategyTarget(String url, DbDialect dialect) {
+        this.url = url;
+        this.dialect = dialect;
+    }
+
+    /**
+     * 参与对比的写入策略
+     */
+    List<BatchWriterType> getTypes() {
+        return RELATIONAL_TYPES;
+    }
+
+    boolean isRelational() {
+        return this != MONGO;
+    }
+
+    /**
+     * 启动spring上下文的命令行参数，覆盖application.yml中的数据源与profile
+     *
+     * @param mongoUri   嵌入式mongo的连接地址
+     * @param maxThreads 最大写入线程数，连接池按此预留连接
+     */
+    String[] arguments(String mongoUri, int maxThreads) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=strategy");
+        args.add("--spring.datasource.url=" + url);
+        args.add("--spring.datasource.username=sa");
+        args.add("--spring.datasource.password=");
+        args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+        args.add("--spring.datasource.druid.initial-size=1");
+        args.add("--spring.datasource.druid.min-idle=1");
+        args.add("--spring.datasource.druid.max-active=" + (maxThreads + 2));
+        args.add("--spring.datasource.druid.validation-query=SELECT 1");
+        args.add("--spring.datasource.druid.pool-prepared-statements=true");
+        args.add("--spring.datasource.druid.max-pool-prepared-statement-per-connection-size=20");
+        args.add("--spring.jpa.generate-ddl=false");
+        args.add("--spring.jpa.hibernate.ddl-auto=none");
+        args.add("--spring.data.mongodb.uri=" + mongoUri);
+        args.add("--spring.jmx.enabled=false");
+        args.add("--batch.dialect=" + dialect.name());
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * 结果文件中的名称
+     */
+    String label() {
+        return name().toLowerCase();
+    }
+
+    String describe() {
+        return isRelational() ? url.substring(url.indexOf(';') + 1).split(";")[0] + "（h2）" : "mongo-java-server（内存）";
+    }
+}
@@ -0,0 +1,433 @@
+package top.wecoding.batch;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.pool.DynamicThreadPoolTaskExecutor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批处理相关配置
+ *
+ * @author ffd
+ */
+@Data
+@ConfigurationProperties(prefix = "batch")
+public class BatchProperties {
+
+    /**
+     * 数据库方言，为空时根据连接元数据识别；兼容模式的数据库（如h2 MODE=MySQL）需显式指定
+     */
+    private DbDialect dialect;
+
+    private Writer writer = new Writer();
+
+    private Delete delete = new Delete();
+
+    private Staging staging = new Staging();
+
+    private Job job = new Job();
+
+    private Pipeline pipeline = new Pipeline();
+
+    private GroupCommit groupCommit = new GroupCommit();
+
+    private InsertRewrite insertRewrite = new InsertRewrite();
+
+    private SqlStat sqlStat = new SqlStat();
+
+    private Jfr jfr = new Jfr();
+
+    private TxProfile txProfile = new TxProfile();
+
+    private AsyncExecutor asyncExecutor = new AsyncExecutor();
+
+    private DbExecutor dbExecutor = new DbExecutor();
+
+    private VirtualThreads virtualThreads = new VirtualThreads();
+
+    @Data
+    public static class Writer {
+        /**
+         * 默认使用的写入策略
+         */
+        private BatchWriterType type = BatchWriterType.JDBC_TEMPLATE;
+        /**
+         * 每批次提交的行数，开启自适应时作为初始值
+         */
+        private int batchSize = 1000;
+
+        /**
+         * 多行插入单条语句最大字节数，同时不会超过服务端max_allowed_packet
+         */
+        private long maxStatementBytes = 4 * 1024 * 1024;
+        /**
+         * 固定行数多行插入允许的行数，数量不宜超过maxPoolPreparedStatementPerConnectionSize
+         */
+        private List<Integer> fixedArities = Arrays.asList(512, 64, 8, 1);
+
+        private Adaptive adaptive = new Adaptive();
+
+        private LoadData loadData = new LoadData();
+
+        private Copy copy = new Copy();
+
+        private Oracle oracle = new Oracle();
+
+        private Upsert upsert = new Upsert();
+
+        private BulkUpdate bulkUpdate = new BulkUpdate();
+    }
+
+    /**
+     * 按主键批量删除配置
+     */
+    @Data
+    public static class Delete {
+        /**
+         * 单个in列表的最大主键个数，oracle上限为1000
+         */
+        private int maxInSize = 1000;
+        /**
+         * 单个between范围的最大行数，过长的连续段拆分为多条语句
+         */
+        private int maxRangeSize = 10000;
+        /**
+         * 连续主键至少达到该长度才使用between，否则并入in列表
+         */
+        private int minRangeLength = 64;
+    }
+
+    /**
+     * 暂存表并行导入配置
+     */
+    @Data
+    public static class Staging {
+        /**
+         * 并行写入暂存表的线程数，不宜超过连接池的最大连接数
+         */
+        private int parallelism = 4;
+        /**
+         * mysql暂存表存储引擎，MEMORY受max_heap_table_size限制
+         */
+        private String engine = "InnoDB";
+    }
+
+    /**
+     * 可续传导入任务配置
+     */
+    @Data
+    public static class Job {
+        /**
+         * 每个检查点批次的行数，批次内部再按writer.batch-size分片写入
+         */
+        private int chunkSize = 10000;
+        /**
+         * 检查点表名
+         */
+        private String checkpointTable = "batch_import_checkpoint";
+    }
+
+    /**
+     * 有界流水线配置
+     */
+    @Data
+    public static class Pipeline {
+        /**
+         * 转换/校验线程数
+         */
+        private int converterThreads = 2;
+        /**
+         * 写入线程数，不宜超过连接池最大连接数
+         */
+        private int writerThreads = 4;
+        /**
+         * 阶段之间队列的批次容量，内存占用约为 2 * queueCapacity * writer.batchSize 行
+         */
+        private int queueCapacity = 8;
+    }
+
+    /**
+     * 组提交写缓冲配置
+     */
+    @Data
+    public static class GroupCommit {
+        /**
+         * 攒够该行数立即刷写
+         */
+        private int maxRows = 500;
+        /**
+         * 第一行进入批次后最多等待的毫秒数，即单行保存增加的最大延迟
+         */
+        private long maxDelayMillis = 10;
+        /**
+         * 缓冲队列容量，已满时保存阻塞
+         */
+        private int capacity = 10000;
+        /**
+         * 刷写线程数，不宜超过连接池最大连接数
+         */
+        private int flushThreads = 2;
+    }
+
+    /**
+     * 默认异步线程池（AsyncConfig.ExecutorType.DEFAULT_EXECUTOR）的初始配置，运行中可通过JMX调整
+     */
+    @Data
+    public static class AsyncExecutor {
+        /**
+         * 核心线程数，0时为cpu核数
+         */
+        private int corePoolSize = 0;
+        /**
+         * 最大线程数，0时为核心线程数 + 5
+         */
+        private int maxPoolSize = 0;
+        /**
+         * 队列容量
+         */
+        private int queueCapacity = 500;
+        private int keepAliveSeconds = 60;
+        /**
+         * 线程池已满时的处理方式：abort抛出异常，caller_runs由提交线程执行，block阻塞等待队列空位
+         */
+        private DynamicThreadPoolTaskExecutor.RejectPolicy rejectPolicy = DynamicThreadPoolTaskExecutor.RejectPolicy.BLOCK;
+        /**
+         * block策略等待队列空位的毫秒数，超时后抛出异常
+         */
+        private long blockTimeoutMillis = 60000;
+    }
+
+    /**
+     * 数据库任务线程池（AsyncConfig.ExecutorType.DB_EXECUTOR）配置
+     */
+    @Data
+    public static class DbExecutor {
+        /**
+         * 最大并发任务数，0时为连接池最大连接数减去预留连接数
+         */
+        private int maxConcurrency = 0;
+        /**
+         * 为其他业务预留的连接数，可借出连接不多于此数时新任务排队
+         */
+        private int reserve = 2;
+        /**
+         * 排队任务数上限，已满时拒绝
+         */
+        private int queueCapacity = 1000;
+        /**
+         * 只按连接池中的空闲连接放行任务，任务不触发新建连接、不等待连接；关闭时按未借出的连接数（含可新建的）放行
+         */
+        private boolean preferIdle = false;
+    }
+
+    /**
+     * 虚拟线程执行模式配置，java 21+且开启时threadPoolTaskExecutor、workStealingPool与dbExecutor改为虚拟线程，
+     * 不支持的jdk上仍使用平台线程池
+     */
+    @Data
+    public static class VirtualThreads {
+        private boolean enabled = false;
+        /**
+         * threadPoolTaskExecutor与workStealingPool共用的并发许可数，0时为数据库连接池与mongo连接池最大连接数中较小的一个；
+         * dbExecutor的许可数取db-executor.max-concurrency
+         */
+        private int maxConcurrency = 0;
+    }
+
+    /**
+     * 单行insert合并为多行insert的druid过滤器配置
+     */
+    @Data
+    public static class InsertRewrite {
+        /**
+         * 是否开启，开启后事务中的单行insert在提交时才报错（如主键冲突）
+         */
+        private boolean enabled = false;
+        /**
+         * 单条多行insert的最大行数，同时受数据库绑定参数个数限制
+         */
+        private int maxRows = 128;
+    }
+
+    /**
+     * sql指纹统计过滤器配置
+     */
+    @Data
+    public static class SqlStat {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = true;
+        /**
+         * 慢sql阈值（毫秒）
+         */
+        private long slowMillis = 1000;
+        /**
+         * 同一指纹的慢sql每个间隔最多格式化打印一条
+         */
+        private long sampleIntervalMillis = 60000;
+        /**
+         * 最多统计的指纹数，超出的计入(other)
+         */
+        private int maxFingerprints = 1000;
+        /**
+         * 超过该长度的慢sql不格式化，只截取开头打印
+         */
+        private int maxFormatLength = 16384;
+    }
+
+    /**
+     * 事务与连接占用统计配置
+     */
+    @Data
+    public static class TxProfile {
+        /**
+         * 是否开启，默认关闭：每个事务都经过代理记录，未命名的编程式事务还要遍历一次调用栈取事务名
+         */
+        private boolean enabled = false;
+        /**
+         * 长事务阈值（毫秒），超过时打印事务所在线程的堆栈与已写入的行数
+         */
+        private long longMillis = 10000;
+        /**
+         * 检查进行中事务的间隔（毫秒）
+         */
+        private long checkIntervalMillis = 1000;
+        /**
+         * 保留最近的长事务记录数
+         */
+        private int maxSamples = 50;
+        /**
+         * 最多统计的事务名数，超出的计入(other)
+         */
+        private int maxNames = 1000;
+    }
+
+    /**
+     * 批次JFR事件配置
+     */
+    @Data
+    public static class Jfr {
+        /**
+         * 是否注册批次事件的采集（druid过滤器、mybatis拦截器、mongo命令监听），未录制时事件不产生开销
+         */
+        private boolean enabled = true;
+        /**
+         * 录制配置：batch、batch-detail（类路径jfr/下的jfc文件），或jdk自带的default、profile
+         */
+        private String profile = "batch";
+        /**
+         * 启动时即开始录制
+         */
+        private boolean recordOnStartup = false;
+        /**
+         * 停止或转储录制时jfr文件的输出目录
+         */
+        private String dumpDirectory = "jfr";
+    }
+
+    /**
+     * mysql LOAD DATA配置
+     */
+    @Data
+    public static class LoadData {
+        /**
+         * 主键冲突处理：replace、ignore，为空时等同ignore（LOCAL导入的行为），但导入行数与批次行数不一致时抛出异常
+         */
+        private String duplicate;
+        /**
+         * 表名 -> 导入的列及顺序，未配置的表导入全部列
+         */
+        private Map<String, List<String>> columns = new HashMap<>();
+    }
+
+    /**
+     * postgresql COPY配置
+     */
+    @Data
+    public static class Copy {
+        /**
+         * 使用binary格式，否则为text格式
+         */
+        private boolean binary = false;
+        /**
+         * 先COPY到临时表再insert ... on conflict do update合并
+         */
+        private boolean upsert = false;
+    }
+
+    /**
+     * oracle数组绑定配置
+     */
+    @Data
+    public static class Oracle {
+        /**
+         * 使用APPEND_VALUES直接路径插入，开启后每个批次独立提交
+         */
+        private boolean directPath = false;
+    }
+
+    /**
+     * 批量upsert配置
+     */
+    @Data
+    public static class Upsert {
+        /**
+         * 表名 -> 判断冲突的键列，未配置的表使用主键列
+         */
+        private Map<String, List<String>> keyColumns = new HashMap<>();
+        /**
+         * 表名 -> 冲突时更新的列，未配置的表更新键列以外的全部列
+         */
+        private Map<String, List<String>> updateColumns = new HashMap<>();
+    }
+
+    /**
+     * 派生表关联批量更新配置
+     */
+    @Data
+    public static class BulkUpdate {
+        /**
+         * 表名 -> 关联的键列，未配置的表使用主键列
+         */
+        private Map<String, List<String>> keyColumns = new HashMap<>();
+        /**
+         * 表名 -> 允许更新的列，未配置的表为键列以外的全部列
+         */
+        private Map<String, List<String>> updateColumns = new HashMap<>();
+        /**
+         * null值视为未修改（与updateById一致），否则null也会更新到表中
+         */
+        private boolean ignoreNulls = true;
+    }
+
+    /**
+     * 自适应批次大小（AIMD）配置
+     */
+    @Data
+    public static class Adaptive {
+        /**
+         * 是否根据批次耗时自动调整批次大小
+         */
+        private boolean enabled = false;
+        private int minSize = 100;
+        private int maxSize = 10000;
+        /**
+         * 单批次目标耗时（毫秒）
+         */
+        private long targetLatencyMs = 200;
+        /**
+         * 耗时达标时每次增加的行数
+         */
+        private int increaseStep = 100;
+        /**
+         * 超时或异常时的缩小比例
+         */
+        private double decreaseFactor = 0.5;
+    }
+}
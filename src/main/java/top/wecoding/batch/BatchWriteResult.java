@@ -0,0 +1,41 @@
+package top.wecoding.batch;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次批量写入结果
+ *
+ * @author ffd
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class BatchWriteResult {
+    /**
+     * 写入策略
+     */
+    private final BatchWriterType type;
+    /**
+     * 写入行数
+     */
+    private final long rows;
+    /**
+     * 耗时（纳秒）
+     */
+    private final long elapsedNanos;
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * 每秒写入行数
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos <= 0 ? 0D : rows * 1_000_000_000D / elapsedNanos;
+    }
+}
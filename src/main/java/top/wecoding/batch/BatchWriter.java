@@ -0,0 +1,36 @@
+package top.wecoding.batch;
+
+import java.util.List;
+
+/**
+ * 批量写入统一接口
+ * 各持久化框架（jdbc、jdbcTemplate、mybatis、jpa、mongo）的批处理方式都以策略实现该接口，
+ * 通过配置 batch.writer.type 切换，调用方无需改动
+ *
+ * @author ffd
+ * @see BatchWriterFactory
+ */
+public interface BatchWriter<T> {
+
+    /**
+     * 当前写入策略
+     *
+     * @return 策略类型
+     */
+    BatchWriterType getType();
+
+    /**
+     * 批量写入（内部按批次大小分片执行）
+     *
+     * @param entityList 实体对象集合
+     * @return 本次写入结果
+     */
+    BatchWriteResult write(List<T> entityList);
+
+    /**
+     * 该写入器自创建以来的累计统计
+     *
+     * @return 统计信息
+     */
+    BatchWriterStats getStats();
+}
@@ -0,0 +1,258 @@
+package top.wecoding.batch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.buffer.GroupCommitBuffer;
+import top.wecoding.batch.delete.BulkDeleter;
+import top.wecoding.batch.delete.IdRangeCompactor;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.job.CheckpointRepository;
+import top.wecoding.batch.job.ImportJobRunner;
+import top.wecoding.batch.pipeline.BatchPipeline;
+import top.wecoding.batch.size.AimdBatchSizeController;
+import top.wecoding.batch.size.BatchSizeController;
+import top.wecoding.batch.size.FixedBatchSizeController;
+import top.wecoding.batch.staging.StagingLoader;
+import top.wecoding.batch.writer.BulkUpdateBatchWriter;
+import top.wecoding.batch.writer.FixedArityBatchWriter;
+import top.wecoding.batch.writer.JdbcBatchWriter;
+import top.wecoding.batch.writer.JdbcTemplateBatchWriter;
+import top.wecoding.batch.writer.JpaBatchWriter;
+import top.wecoding.batch.writer.MongoBatchWriter;
+import top.wecoding.batch.writer.MultiValuesBatchWriter;
+import top.wecoding.batch.writer.MysqlLoadDataBatchWriter;
+import top.wecoding.batch.writer.OracleArrayBatchWriter;
+import top.wecoding.batch.writer.PgCopyBatchWriter;
+import top.wecoding.batch.writer.MybatisBatchWriter;
+import top.wecoding.batch.writer.UpsertBatchWriter;
+import top.wecoding.config.AsyncConfig;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 批量写入器工厂
+ * 按 batch.writer.type 配置选择策略，同一策略与实体类型的写入器只创建一次，
+ * 每个写入器持有独立的批次大小控制器
+ *
+ * @author ffd
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchWriterFactory {
+
+    private final BatchProperties batchProperties;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final ObjectProvider<EntityManager> entityManager;
+    private final ObjectProvider<TransactionTemplate> transactionTemplate;
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final ObjectProvider<DbDialect> dbDialect;
+    private final BeanFactory beanFactory;
+
+    private final Map<String, BatchWriter<?>> writers = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, GroupCommitBuffer<?>> groupCommitBuffers = new ConcurrentHashMap<>();
+
+    /**
+     * 获取配置的默认策略写入器
+     *
+     * @param entityClass 实体类型
+     */
+    public <T> BatchWriter<T> getWriter(Class<T> entityClass) {
+        return getWriter(batchProperties.getWriter().getType(), entityClass);
+    }
+
+    /**
+     * 获取指定策略的写入器
+     *
+     * @param type        写入策略
+     * @param entityClass 实体类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BatchWriter<T> getWriter(BatchWriterType type, Class<T> entityClass) {
+        return (BatchWriter<T>) writers.computeIfAbsent(key(type, entityClass), k -> createWriter(type, entityClass));
+    }
+
+    /**
+     * 各写入器的累计统计，用于对比不同策略的吞吐量
+     */
+    public Map<String, BatchWriterStats> getStats() {
+        Map<String, BatchWriterStats> stats = new LinkedHashMap<>();
+        writers.forEach((key, writer) -> stats.put(key, writer.getStats()));
+        return stats;
+    }
+
+    /**
+     * 创建指定键列与更新列的upsert写入器，不缓存，适合同一张表按不同列同步的场景
+     *
+     * @param entityClass   实体类型
+     * @param keyColumns    判断冲突的键列，为空时使用主键列
+     * @param updateColumns 冲突时更新的列，为空时更新键列以外的全部列
+     */
+    public <T> UpsertBatchWriter<T> createUpsertWriter(Class<T> entityClass, List<String> keyColumns, List<String> updateColumns) {
+        return new UpsertBatchWriter<>(jdbcTemplate.getObject(), dbDialect.getObject(), TableMapping.of(entityClass),
+                createBatchSizeController(), keyColumns, updateColumns);
+    }
+
+    /**
+     * 创建指定键列与更新列的批量更新写入器，不缓存
+     *
+     * @param entityClass   实体类型
+     * @param keyColumns    关联的键列，为空时使用主键列
+     * @param updateColumns 允许更新的列，为空时为键列以外的全部列
+     */
+    public <T> BulkUpdateBatchWriter<T> createBulkUpdateWriter(Class<T> entityClass, List<String> keyColumns, List<String> updateColumns) {
+        return new BulkUpdateBatchWriter<>(jdbcTemplate.getObject(), dbDialect.getObject(), TableMapping.of(entityClass),
+                createBatchSizeController(), keyColumns, updateColumns, batchProperties.getWriter().getBulkUpdate().isIgnoreNulls());
+    }
+
+    /**
+     * 创建按主键批量删除的删除器，每组主键在独立的短事务中删除
+     *
+     * @param entityClass 实体类型
+     */
+    public <T> BulkDeleter<T> createDeleter(Class<T> entityClass) {
+        BatchProperties.Delete delete = batchProperties.getDelete();
+        return new BulkDeleter<>(jdbcTemplate.getObject(), transactionTemplate.getObject(), TableMapping.of(entityClass),
+                new IdRangeCompactor(delete.getMaxInSize(), delete.getMaxRangeSize(), delete.getMinRangeLength()));
+    }
+
+    /**
+     * 创建暂存表并行导入器，在dbExecutor上并行写入暂存表，merge时的键列与更新列取upsert配置
+     *
+     * @param entityClass 实体类型
+     */
+    public <T> StagingLoader<T> createStagingLoader(Class<T> entityClass) {
+        TableMapping<T> mapping = TableMapping.of(entityClass);
+        BatchProperties.Writer writer = batchProperties.getWriter();
+        BatchProperties.Staging staging = batchProperties.getStaging();
+        return new StagingLoader<>(jdbcTemplate.getObject(), transactionTemplate.getObject(), dbDialect.getObject(), mapping,
+                beanFactory.getBean(AsyncConfig.ExecutorType.DB_EXECUTOR, ExecutorService.class), staging.getParallelism(),
+                writer.getBatchSize(), writer.getFixedArities(), staging.getEngine(),
+                writer.getUpsert().getKeyColumns().get(mapping.getTableName()),
+                writer.getUpsert().getUpdateColumns().get(mapping.getTableName()));
+    }
+
+    /**
+     * 创建可续传导入任务，使用指定策略的写入器
+     *
+     * @param type        写入策略，不支持mongo
+     * @param entityClass 实体类型
+     */
+    public <T> ImportJobRunner<T> createImportJobRunner(BatchWriterType type, Class<T> entityClass) {
+        if (type == BatchWriterType.MONGO) {
+            throw new IllegalArgumentException("import job checkpoints require a relational writer");
+        }
+        BatchProperties.Job job = batchProperties.getJob();
+        return new ImportJobRunner<>(jdbcTemplate.getObject(), transactionTemplate.getObject(), getWriter(type, entityClass),
+                TableMapping.of(entityClass), new CheckpointRepository(jdbcTemplate.getObject(), job.getCheckpointTable()),
+                job.getChunkSize());
+    }
+
+    /**
+     * 创建读取 -> 转换/校验 -> 写入的有界流水线，使用配置的默认写入策略，批次大小取writer.batch-size
+     *
+     * @param entityClass 实体类型
+     * @param converter   转换函数，返回null的数据被丢弃
+     * @param validator   校验，不通过的数据被丢弃，可为null
+     */
+    public <S, T> BatchPipeline<S, T> createPipeline(Class<T> entityClass, Function<S, T> converter, Predicate<T> validator) {
+        BatchProperties.Pipeline pipeline = batchProperties.getPipeline();
+        return new BatchPipeline<>(getWriter(entityClass), converter, validator, pipeline.getConverterThreads(),
+                pipeline.getWriterThreads(), pipeline.getQueueCapacity(), batchProperties.getWriter().getBatchSize());
+    }
+
+    /**
+     * 获取实体类型的组提交写缓冲，使用配置的默认写入策略，同一实体类型共享一个缓冲，应用关闭时写完剩余数据
+     *
+     * @param entityClass 实体类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T> GroupCommitBuffer<T> getGroupCommitBuffer(Class<T> entityClass) {
+        return (GroupCommitBuffer<T>) groupCommitBuffers.computeIfAbsent(entityClass, k -> {
+            BatchProperties.GroupCommit groupCommit = batchProperties.getGroupCommit();
+            return new GroupCommitBuffer<>(getWriter(entityClass), transactionTemplate.getObject(), groupCommit.getMaxRows(),
+                    groupCommit.getMaxDelayMillis(), groupCommit.getCapacity(), groupCommit.getFlushThreads());
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        groupCommitBuffers.values().forEach(GroupCommitBuffer::close);
+    }
+
+    private <T> BatchWriter<T> createWriter(BatchWriterType type, Class<T> entityClass) {
+        TableMapping<T> mapping = TableMapping.of(entityClass);
+        BatchSizeController batchSizeController = createBatchSizeController();
+        switch (type) {
+            case JDBC:
+                return new JdbcBatchWriter<>(dataSource.getObject(), mapping, batchSizeController);
+            case JDBC_TEMPLATE:
+                return new JdbcTemplateBatchWriter<>(jdbcTemplate.getObject(), mapping, batchSizeController);
+            case MYBATIS:
+                return new MybatisBatchWriter<>(mapping, batchSizeController);
+            case JPA:
+                return new JpaBatchWriter<>(entityManager.getObject(), transactionTemplate.getObject(), mapping, batchSizeController);
+            case MONGO:
+                return new MongoBatchWriter<>(mongoTemplate.getObject(), mapping, batchSizeController);
+            case MULTI_VALUES:
+                return new MultiValuesBatchWriter<>(jdbcTemplate.getObject(), dbDialect.getObject(), mapping,
+                        batchSizeController, batchProperties.getWriter().getMaxStatementBytes());
+            case FIXED_ARITY:
+                return new FixedArityBatchWriter<>(jdbcTemplate.getObject(), dbDialect.getObject(), mapping,
+                        batchSizeController, batchProperties.getWriter().getFixedArities());
+            case LOAD_DATA:
+                BatchProperties.LoadData loadData = batchProperties.getWriter().getLoadData();
+                return new MysqlLoadDataBatchWriter<>(jdbcTemplate.getObject(), mapping, batchSizeController,
+                        loadData.getColumns().get(mapping.getTableName()), loadData.getDuplicate());
+            case COPY:
+                BatchProperties.Copy copy = batchProperties.getWriter().getCopy();
+                return new PgCopyBatchWriter<>(jdbcTemplate.getObject(), mapping, batchSizeController, copy.isBinary(), copy.isUpsert());
+            case ORACLE_ARRAY:
+                return new OracleArrayBatchWriter<>(jdbcTemplate.getObject(), transactionTemplate.getObject(), mapping,
+                        batchSizeController, batchProperties.getWriter().getOracle().isDirectPath());
+            case UPSERT:
+                BatchProperties.Upsert upsert = batchProperties.getWriter().getUpsert();
+                return new UpsertBatchWriter<>(jdbcTemplate.getObject(), dbDialect.getObject(), mapping, batchSizeController,
+                        upsert.getKeyColumns().get(mapping.getTableName()), upsert.getUpdateColumns().get(mapping.getTableName()));
+            case BULK_UPDATE:
+                BatchProperties.BulkUpdate bulkUpdate = batchProperties.getWriter().getBulkUpdate();
+                return new BulkUpdateBatchWriter<>(jdbcTemplate.getObject(), dbDialect.getObject(), mapping, batchSizeController,
+                        bulkUpdate.getKeyColumns().get(mapping.getTableName()), bulkUpdate.getUpdateColumns().get(mapping.getTableName()),
+                        bulkUpdate.isIgnoreNulls());
+            default:
+                throw new IllegalArgumentException("unsupported batch writer type: " + type);
+        }
+    }
+
+    /**
+     * 按配置创建批次大小控制器
+     */
+    public BatchSizeController createBatchSizeController() {
+        BatchProperties.Writer writer = batchProperties.getWriter();
+        BatchProperties.Adaptive adaptive = writer.getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return new FixedBatchSizeController(writer.getBatchSize());
+        }
+        return new AimdBatchSizeController(writer.getBatchSize(), adaptive.getMinSize(), adaptive.getMaxSize(),
+                adaptive.getTargetLatencyMs(), adaptive.getIncreaseStep(), adaptive.getDecreaseFactor());
+    }
+
+    private static String key(BatchWriterType type, Class<?> entityClass) {
+        return type.name().toLowerCase() + ":" + entityClass.getName();
+    }
+}
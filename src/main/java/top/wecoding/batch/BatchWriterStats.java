@@ -0,0 +1,45 @@
+package top.wecoding.batch;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 写入器累计统计，多线程并发写入时使用LongAdder累加
+ *
+ * @author ffd
+ */
+public class BatchWriterStats {
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+
+    public void record(long rowCount, long nanos) {
+        writes.increment();
+        rows.add(rowCount);
+        elapsedNanos.add(nanos);
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+    /**
+     * 累计平均每秒写入行数
+     */
+    public double getRowsPerSecond() {
+        long nanos = getElapsedNanos();
+        return nanos <= 0 ? 0D : getRows() * 1_000_000_000D / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("writes=%d, rows=%d, rows/s=%.1f", getWrites(), getRows(), getRowsPerSecond());
+    }
+}
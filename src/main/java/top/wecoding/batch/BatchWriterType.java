@@ -0,0 +1,57 @@
+package top.wecoding.batch;
+
+/**
+ * 批量写入策略类型
+ *
+ * @author ffd
+ */
+public enum BatchWriterType {
+    /**
+     * jdbc预处理语句批处理 addBatch/executeBatch
+     */
+    JDBC,
+    /**
+     * jdbcTemplate.batchUpdate
+     */
+    JDBC_TEMPLATE,
+    /**
+     * mybatis-plus BATCH执行器（saveBatch）
+     */
+    MYBATIS,
+    /**
+     * jpa persist + 分批 flush/clear
+     */
+    JPA,
+    /**
+     * mongoTemplate 批量insert
+     */
+    MONGO,
+    /**
+     * 数据库批处理语句 insert into ** values(),...,()，按字节预算自动拆分
+     */
+    MULTI_VALUES,
+    /**
+     * 固定行数的预处理多行插入，复用预编译语句缓存
+     */
+    FIXED_ARITY,
+    /**
+     * mysql LOAD DATA LOCAL INFILE 内存流导入
+     */
+    LOAD_DATA,
+    /**
+     * postgresql COPY FROM STDIN 流式导入
+     */
+    COPY,
+    /**
+     * oracle 整列数组绑定 forall insert，可选APPEND_VALUES直接路径
+     */
+    ORACLE_ARRAY,
+    /**
+     * 按方言批量upsert：on duplicate key update / on conflict do update / merge
+     */
+    UPSERT,
+    /**
+     * 派生表关联批量更新：update ... join (union all) / update ... from (values) / merge
+     */
+    BULK_UPDATE
+}
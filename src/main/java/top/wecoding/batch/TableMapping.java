@@ -0,0 +1,217 @@
+package top.wecoding.batch;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Getter;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体与表（集合）的映射关系
+ * 兼容jpa、mybatis-plus、spring-data注解，未标注时按驼峰转下划线处理，解析结果按实体类缓存；
+ * 主键只取标注了@Id/@TableId的字段，没有时按主键工作的功能（upsert、按主键删除、检查点恢复等）在使用主键时抛出异常
+ *
+ * @author ffd
+ */
+@Getter
+public final class TableMapping<T> {
+
+    private static final Map<Class<?>, TableMapping<?>> CACHE = new ConcurrentHashMap<>();
+
+    private final Class<T> entityClass;
+    /**
+     * 表名
+     */
+    private final String tableName;
+    /**
+     * 列名，与fields下标一一对应
+     */
+    private final List<String> columns;
+    private final List<Field> fields;
+
+    private final int idIndex;
+
+    private TableMapping(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        this.tableName = resolveTableName(entityClass);
+        List<String> columnList = new ArrayList<>();
+        List<Field> fieldList = new ArrayList<>();
+        int id = -1;
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (isIgnored(field)) {
+                continue;
+            }
+            field.setAccessible(true);
+            if (id < 0 && isId(field)) {
+                id = fieldList.size();
+            }
+            fieldList.add(field);
+            columnList.add(resolveColumnName(field));
+        }
+        if (fieldList.isEmpty()) {
+            throw new IllegalArgumentException("no mapped field found in " + entityClass.getName());
+        }
+        this.idIndex = id;
+        this.fields = Collections.unmodifiableList(fieldList);
+        this.columns = Collections.unmodifiableList(columnList);
+    }
+
+    private TableMapping(TableMapping<T> source, String tableName) {
+        this.entityClass = source.entityClass;
+        this.tableName = tableName;
+        this.columns = source.columns;
+        this.fields = source.fields;
+        this.idIndex = source.idIndex;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> TableMapping<T> of(Class<T> entityClass) {
+        return (TableMapping<T>) CACHE.computeIfAbsent(entityClass, TableMapping::new);
+    }
+
+    /**
+     * 列映射不变、表名替换后的映射，用于写入结构相同的暂存表等，结果不缓存
+     *
+     * @param tableName 表名
+     */
+    public TableMapping<T> withTableName(String tableName) {
+        return new TableMapping<>(this, tableName);
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * 获取实体某一列的值
+     *
+     * @param entity 实体
+     * @param index  列下标
+     */
+    public Object getValue(T entity, int index) {
+        try {
+            return fields.get(index).get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 主键列名
+     *
+     * @throws IllegalStateException 实体没有标注主键
+     */
+    public String getIdColumn() {
+        return columns.get(getIdIndex());
+    }
+
+    /**
+     * 主键列下标
+     *
+     * @throws IllegalStateException 实体没有标注主键
+     */
+    public int getIdIndex() {
+        if (idIndex < 0) {
+            throw new IllegalStateException("no @Id/@TableId field found in " + entityClass.getName()
+                    + ", annotate the primary key or specify key columns explicitly");
+        }
+        return idIndex;
+    }
+
+    public Object getIdValue(T entity) {
+        return getValue(entity, getIdIndex());
+    }
+
+    /**
+     * 获取实体全部列的值
+     */
+    public Object[] getValues(T entity) {
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getValue(entity, i);
+        }
+        return values;
+    }
+
+    /**
+     * 以逗号拼接的列名 id,batch_name,batch_value
+     */
+    public String getColumnList() {
+        return String.join(",", columns);
+    }
+
+    /**
+     * 单行插入语句 insert into t(a,b) values (?,?)
+     */
+    public String getInsertSql() {
+        return "insert into " + tableName + "(" + getColumnList() + ") values ("
+                + String.join(",", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    private static String resolveTableName(Class<?> entityClass) {
+        TableName tableName = entityClass.getAnnotation(TableName.class);
+        if (tableName != null && StrUtil.isNotBlank(tableName.value())) {
+            return tableName.value();
+        }
+        Table table = entityClass.getAnnotation(Table.class);
+        if (table != null && StrUtil.isNotBlank(table.name())) {
+            return table.name();
+        }
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        if (entity != null && StrUtil.isNotBlank(entity.name())) {
+            return entity.name();
+        }
+        Document document = entityClass.getAnnotation(Document.class);
+        if (document != null && StrUtil.isNotBlank(document.collection())) {
+            return document.collection();
+        }
+        return StrUtil.toUnderlineCase(entityClass.getSimpleName());
+    }
+
+    private static String resolveColumnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && StrUtil.isNotBlank(column.name())) {
+            return column.name();
+        }
+        TableField tableField = field.getAnnotation(TableField.class);
+        if (tableField != null && StrUtil.isNotBlank(tableField.value())) {
+            return tableField.value();
+        }
+        TableId tableId = field.getAnnotation(TableId.class);
+        if (tableId != null && StrUtil.isNotBlank(tableId.value())) {
+            return tableId.value();
+        }
+        return StrUtil.toUnderlineCase(field.getName());
+    }
+
+    private static boolean isIgnored(Field field) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+            return true;
+        }
+        TableField tableField = field.getAnnotation(TableField.class);
+        return (tableField != null && !tableField.exist())
+                || field.isAnnotationPresent(Transient.class)
+                || field.isAnnotationPresent(org.springframework.data.annotation.Transient.class);
+    }
+
+    private static boolean isId(Field field) {
+        return field.isAnnotationPresent(Id.class)
+                || field.isAnnotationPresent(TableId.class)
+                || field.isAnnotationPresent(org.springframework.data.annotation.Id.class);
+    }
+}
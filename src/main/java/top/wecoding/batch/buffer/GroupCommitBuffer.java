@@ -0,0 +1,224 @@
+package top.wecoding.batch.buffer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.BatchWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 组提交写缓冲
+ * 多个线程的单行保存先进入缓冲队列，由刷写线程攒够maxRows行或等待maxDelayMillis后合并为一次批量写入、一次提交，
+ * 提交成功后各调用方的future才完成，失败时同批次的future全部异常完成；
+ * 队列已满时保存阻塞（背压），关闭时写完剩余数据再退出
+ *
+ * @param <T> 实体类型
+ * @author ffd
+ */
+@Slf4j
+public class GroupCommitBuffer<T> implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final BatchWriter<T> writer;
+
+    /**
+     * 每次刷写都在独立的新事务中提交，不会并入调用方或其他刷写线程的事务
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxRows;
+
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<Pending<T>> queue;
+
+    private final List<Thread> flushers;
+
+    private final LongAdder flushes = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder failedRows = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param maxRows        单次刷写的最大行数
+     * @param maxDelayMillis 第一行进入批次后最多等待的毫秒数
+     * @param capacity       缓冲队列容量，已满时保存阻塞
+     * @param flushThreads   刷写线程数，不宜超过连接池最大连接数
+     */
+    public GroupCommitBuffer(BatchWriter<T> writer, TransactionTemplate transactionTemplate,
+                             int maxRows, long maxDelayMillis, int capacity, int flushThreads) {
+        this.writer = writer;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxRows = Math.max(1, maxRows);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        this.queue = new LinkedBlockingQueue<>(Math.max(this.maxRows, capacity));
+        int id = SEQUENCE.incrementAndGet();
+        int threads = Math.max(1, flushThreads);
+        this.flushers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::flushLoop, "GroupCommit-" + id + "-" + i);
+            thread.setDaemon(true);
+            flushers.add(thread);
+        }
+        flushers.forEach(Thread::start);
+    }
+
+    /**
+     * 保存单行，返回的future在该行所在批次提交后完成
+     *
+     * @param entity 实体对象
+     * @return 提交成功时正常完成，写入或提交失败时异常完成
+     */
+    public CompletableFuture<Void> save(T entity) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("group commit buffer is closed"));
+            return future;
+        }
+        Pending<T> pending = new Pending<>(entity, future);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        // 与close并发时刷写线程可能已经退出
+        if (closed && queue.remove(pending)) {
+            future.completeExceptionally(new IllegalStateException("group commit buffer is closed"));
+        }
+        return future;
+    }
+
+    /**
+     * 停止接收新数据，等待缓冲中的数据全部刷写完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread flusher : flushers) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        Pending<T> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException("group commit buffer is closed"));
+        }
+    }
+
+    /**
+     * 等待刷写的行数
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * 已执行的刷写（提交）次数
+     */
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    /**
+     * 已提交的行数
+     */
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    /**
+     * 刷写失败的行数
+     */
+    public long getFailedRowCount() {
+        return failedRows.sum();
+    }
+
+    @Override
+    public String toString() {
+        long flushCount = getFlushCount();
+        return "GroupCommitBuffer{flushes=" + flushCount + ", rows=" + getRowCount() + ", failed=" + getFailedRowCount()
+                + ", avgRows=" + (flushCount == 0 ? 0 : getRowCount() / flushCount) + ", pending=" + getPending() + "}";
+    }
+
+    private void flushLoop() {
+        List<Pending<T>> batch = new ArrayList<>(maxRows);
+        while (true) {
+            try {
+                Pending<T> first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                queue.drainTo(batch, maxRows - batch.size());
+                long remaining;
+                while (batch.size() < maxRows && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                    Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxRows - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // 刷写线程不响应中断，已取出的数据仍需写入
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(maxRows);
+            }
+        }
+    }
+
+    private void flush(List<Pending<T>> batch) {
+        List<T> entities = new ArrayList<>(batch.size());
+        batch.forEach(pending -> entities.add(pending.entity));
+        try {
+            transactionTemplate.execute(status -> writer.write(entities));
+        } catch (Throwable e) {
+            log.error("group commit of {} rows failed", batch.size(), e);
+            failedRows.add(batch.size());
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+        flushes.increment();
+        rows.add(batch.size());
+        batch.forEach(pending -> pending.future.complete(null));
+    }
+
+    private static class Pending<T> {
+
+        private final T entity;
+
+        private final CompletableFuture<Void> future;
+
+        Pending(T entity, CompletableFuture<Void> future) {
+            this.entity = entity;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package top.wecoding.batch.delete;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.TableMapping;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按主键分组批量删除
+ * 主键经{@link IdRangeCompactor}压缩为 between 范围与有上限的 in 列表，每组一条语句并在独立的短事务中提交，
+ * 即使调用方处于事务中也不会长时间持有大量行锁；in 列表补齐到2的幂长度（不超过上限，重复最后一个主键），限制sql文本的种类
+ *
+ * @author ffd
+ */
+@Slf4j
+public class BulkDeleter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate chunkTransactionTemplate;
+
+    private final IdRangeCompactor compactor;
+
+    private final String deleteSql;
+
+    private final String rangeSql;
+
+    public BulkDeleter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, TableMapping<T> mapping,
+                       IdRangeCompactor compactor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.chunkTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.compactor = compactor;
+        this.deleteSql = "delete from " + mapping.getTableName() + " where " + mapping.getIdColumn();
+        this.rangeSql = deleteSql + " between ? and ?";
+    }
+
+    /**
+     * 根据主键批量删除
+     *
+     * @param ids 主键集合
+     * @return 删除行数
+     */
+    public long deleteByIds(Collection<?> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        long starTime = System.nanoTime();
+        List<IdRangeCompactor.IdChunk> chunks = compactor.compact(ids);
+        long rows = 0;
+        for (IdRangeCompactor.IdChunk chunk : chunks) {
+            Integer deleted = chunkTransactionTemplate.execute(status -> delete(chunk));
+            rows += deleted == null ? 0 : deleted;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("delete {} rows by {} ids with {} statements, cost {} ms", rows, ids.size(), chunks.size(),
+                    (System.nanoTime() - starTime) / 1_000_000);
+        }
+        return rows;
+    }
+
+    private int delete(IdRangeCompactor.IdChunk chunk) {
+        if (chunk.isRange()) {
+            return jdbcTemplate.update(rangeSql, chunk.getFrom(), chunk.getTo());
+        }
+        List<Object> ids = chunk.getIds();
+        int size = Integer.highestOneBit(ids.size());
+        if (size < ids.size()) {
+            size = Math.min(size << 1, compactor.getMaxInSize());
+        }
+        Object[] args = ids.toArray(new Object[size]);
+        for (int i = ids.size(); i < size; i++) {
+            args[i] = ids.get(ids.size() - 1);
+        }
+        return jdbcTemplate.update(deleteSql + " in (" + String.join(",", Collections.nCopies(size, "?")) + ")", args);
+    }
+}
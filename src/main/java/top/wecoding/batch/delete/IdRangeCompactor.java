@@ -0,0 +1,158 @@
+package top.wecoding.batch.delete;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 主键压缩：排序去重后，连续整数段合并为 between 范围，零散的主键按上限分组为 in 列表
+ * 每个分组对应一条删除语句，语句大小与单次影响的行数都有上限
+ *
+ * @author ffd
+ */
+public class IdRangeCompactor {
+
+    /**
+     * 单个in列表的最大元素个数，oracle上限为1000
+     */
+    private final int maxInSize;
+
+    /**
+     * 单个范围的最大行数，过长的连续段拆分为多个范围，避免单条语句锁住过多行
+     */
+    private final int maxRangeSize;
+
+    /**
+     * 连续段至少达到该长度才使用范围，否则并入in列表
+     */
+    private final int minRangeLength;
+
+    public IdRangeCompactor() {
+        this(1000, 10000, 64);
+    }
+
+    public IdRangeCompactor(int maxInSize, int maxRangeSize, int minRangeLength) {
+        if (maxInSize <= 0 || maxRangeSize <= 0 || minRangeLength <= 1) {
+            throw new IllegalArgumentException("maxInSize and maxRangeSize must be positive, minRangeLength must be greater than 1");
+        }
+        this.maxInSize = maxInSize;
+        this.maxRangeSize = maxRangeSize;
+        this.minRangeLength = Math.min(minRangeLength, maxRangeSize);
+    }
+
+    public int getMaxInSize() {
+        return maxInSize;
+    }
+
+    /**
+     * 压缩主键，只有整数类型（Byte/Short/Integer/Long）会合并范围，其他可比较类型排序后分组，不可比较时保持原顺序
+     *
+     * @param ids 主键集合
+     * @return 分组，范围与in列表按主键升序交替出现
+     */
+    public List<IdChunk> compact(Collection<?> ids) {
+        List<Object> sorted = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (sorted.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!sorted.stream().allMatch(IdRangeCompactor::isIntegral)) {
+            if (sorted.stream().allMatch(id -> id instanceof Comparable)) {
+                sorted.sort(null);
+            }
+            return inChunks(sorted);
+        }
+        sorted.sort(Comparator.comparingLong(id -> ((Number) id).longValue()));
+        List<IdChunk> chunks = new ArrayList<>();
+        List<Object> pending = new ArrayList<>(Math.min(maxInSize, sorted.size()));
+        int start = 0;
+        while (start < sorted.size()) {
+            int end = start;
+            while (end + 1 < sorted.size() && value(sorted.get(end + 1)) == value(sorted.get(end)) + 1) {
+                end++;
+            }
+            for (int from = start; from <= end; from += maxRangeSize) {
+                int to = Math.min(end, from + maxRangeSize - 1);
+                if (to - from + 1 >= minRangeLength) {
+                    chunks.add(IdChunk.range(sorted.get(from), sorted.get(to), to - from + 1));
+                    continue;
+                }
+                for (int i = from; i <= to; i++) {
+                    pending.add(sorted.get(i));
+                    if (pending.size() == maxInSize) {
+                        chunks.add(IdChunk.in(pending));
+                        pending = new ArrayList<>(maxInSize);
+                    }
+                }
+            }
+            start = end + 1;
+        }
+        if (!pending.isEmpty()) {
+            chunks.add(IdChunk.in(pending));
+        }
+        return chunks;
+    }
+
+    private List<IdChunk> inChunks(List<Object> ids) {
+        List<IdChunk> chunks = new ArrayList<>((ids.size() + maxInSize - 1) / maxInSize);
+        for (int from = 0; from < ids.size(); from += maxInSize) {
+            chunks.add(IdChunk.in(new ArrayList<>(ids.subList(from, Math.min(from + maxInSize, ids.size())))));
+        }
+        return chunks;
+    }
+
+    private static boolean isIntegral(Object id) {
+        return id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte;
+    }
+
+    private static long value(Object id) {
+        return ((Number) id).longValue();
+    }
+
+    /**
+     * 一次删除的主键分组：范围 [from, to] 或 in 列表
+     */
+    @Getter
+    public static class IdChunk {
+
+        private final Object from;
+
+        private final Object to;
+
+        private final List<Object> ids;
+
+        /**
+         * 分组包含的主键个数
+         */
+        private final int size;
+
+        private IdChunk(Object from, Object to, List<Object> ids, int size) {
+            this.from = from;
+            this.to = to;
+            this.ids = ids;
+            this.size = size;
+        }
+
+        static IdChunk range(Object from, Object to, int size) {
+            return new IdChunk(from, to, null, size);
+        }
+
+        static IdChunk in(List<Object> ids) {
+            return new IdChunk(null, null, ids, ids.size());
+        }
+
+        public boolean isRange() {
+            return ids == null;
+        }
+
+        @Override
+        public String toString() {
+            return isRange() ? "between " + from + " and " + to : "in " + ids;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package top.wecoding.batch.dialect;
+
+import cn.hutool.core.util.HexUtil;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import top.wecoding.batch.TableMapping;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 数据库方言：负责sql字面量转义及各数据库批量语句的差异部分
+ *
+ * @author ffd
+ */
+public enum DbDialect {
+
+    /**
+     * mysql的反斜杠是否为转义符取决于sql_mode（NO_BACKSLASH_ESCAPES），字面量需在两种模式下含义相同：
+     * 单引号转义为两个单引号；含反斜杠（以及NUL、Ctrl+Z）的值改用十六进制字面量，与sql_mode无关
+     */
+    MYSQL {
+        @Override
+        protected void appendString(StringBuilder sb, CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == '\0' || c == '\u001A') {
+                    sb.append("convert(X'").append(HexUtil.encodeHex(value.toString().getBytes(StandardCharsets.UTF_8)))
+                            .append("' using utf8mb4)");
+                    return;
+                }
+            }
+            appendQuoted(sb, value);
+        }
+
+        @Override
+        protected void appendBytes(StringBuilder sb, byte[] value) {
+            sb.append("X'").append(HexUtil.encodeHex(value)).append('\'');
+        }
+
+        @Override
+        public int maxBindParameters() {
+            return 65535;
+        }
+
+        /**
+         * 冲突判断依赖表上的主键/唯一索引，keyColumns仅用于保证无更新列时语句合法
+         */
+        @Override
+        public String upsertSql(TableMapping<?> mapping, int rows, List<String> keyColumns, List<String> updateColumns) {
+            return multiRowInsertSql(mapping, rows) + onDuplicateKeyUpdate(keyColumns, updateColumns);
+        }
+
+        @Override
+        public String upsertSelectSql(TableMapping<?> mapping, String sourceTable, List<String> keyColumns, List<String> updateColumns) {
+            return insertSelectSql(mapping, sourceTable) + onDuplicateKeyUpdate(keyColumns, updateColumns);
+        }
+
+        @Override
+        public String stagingTableSql(TableMapping<?> mapping, String stagingTable, String engine) {
+            return "create table " + stagingTable + " engine=" + engine + " as select " + mapping.getColumnList()
+                    + " from " + mapping.getTableName() + " where 1 = 0";
+        }
+
+        private String onDuplicateKeyUpdate(List<String> keyColumns, List<String> updateColumns) {
+            List<String> columns = updateColumns.isEmpty() ? keyColumns.subList(0, 1) : updateColumns;
+            return " on duplicate key update "
+                    + columns.stream().map(column -> column + " = values(" + column + ")").collect(Collectors.joining(","));
+        }
+
+        /**
+         * update t, (select ? id,? c1 union all select ?,? ...) s set t.c1 = s.c1 where t.id = s.id
+         */
+        @Override
+        public String bulkUpdateSql(String tableName, List<String> keyColumns, List<String> setColumns, Set<String> keepNullColumns, int rows) {
+            StringBuilder sql = new StringBuilder("update ").append(tableName).append(" t, (");
+            appendSelectRows(sql, concat(keyColumns, setColumns), rows, "");
+            return sql.append(") s set ").append(setClause(setColumns, keepNullColumns, "t."))
+                    .append(" where ").append(keyCondition(keyColumns)).toString();
+        }
+
+        @Override
+        public long queryMaxPacketBytes(JdbcTemplate jdbcTemplate) {
+            Long maxAllowedPacket = jdbcTemplate.queryForObject("select @@max_allowed_packet", Long.class);
+            return maxAllowedPacket == null ? -1 : maxAllowedPacket;
+        }
+    },
+
+    /**
+     * postgresql，standard_conforming_strings=on（9.1起默认）时只需转义单引号
+     */
+    POSTGRESQL {
+        @Override
+        protected void appendString(StringBuilder sb, CharSequence value) {
+            appendQuoted(sb, value);
+        }
+
+        @Override
+        protected void appendBytes(StringBuilder sb, byte[] value) {
+            sb.append("'\\x").append(HexUtil.encodeHex(value)).append("'::bytea");
+        }
+
+        @Override
+        public int maxBindParameters() {
+            return Short.MAX_VALUE;
+        }
+
+        @Override
+        public String upsertSql(TableMapping<?> mapping, int rows, List<String> keyColumns, List<String> updateColumns) {
+            return multiRowInsertSql(mapping, rows) + onConflict(keyColumns, updateColumns);
+        }
+
+        @Override
+        public String upsertSelectSql(TableMapping<?> mapping, String sourceTable, List<String> keyColumns, List<String> updateColumns) {
+            return insertSelectSql(mapping, sourceTable) + onConflict(keyColumns, updateColumns);
+        }
+
+        /**
+         * unlogged表不写wal，多个连接可见，适合作为并行导入的暂存表
+         */
+        @Override
+        public String stagingTableSql(TableMapping<?> mapping, String stagingTable, String engine) {
+            return "create unlogged table " + stagingTable + " as select " + mapping.getColumnList()
+                    + " from " + mapping.getTableName() + " where false";
+        }
+
+        private String onConflict(List<String> keyColumns, List<String> updateColumns) {
+            String action = updateColumns.isEmpty() ? "nothing" : "update set "
+                    + updateColumns.stream().map(column -> column + " = excluded." + column).collect(Collectors.joining(","));
+            return " on conflict (" + String.join(",", keyColumns) + ") do " + action;
+        }
+
+        /**
+         * update t set c1 = s.c1 from (select id,c1 from t where false union all values (?,?),...) s where t.id = s.id
+         * 派生表第一段取自目标表本身，使占位符（尤其是null）按目标列的类型解析
+         */
+        @Override
+        public String bulkUpdateSql(String tableName, List<String> keyColumns, List<String> setColumns, Set<String> keepNullColumns, int rows) {
+            List<String> columns = concat(keyColumns, setColumns);
+            String placeholders = "(" + String.join(",", Collections.nCopies(columns.size(), "?")) + ")";
+            StringBuilder sql = new StringBuilder("update ").append(tableName).append(" t set ")
+                    .append(setClause(setColumns, keepNullColumns, ""))
+                    .append(" from (select ").append(String.join(",", columns)).append(" from ").append(tableName)
+                    .append(" where false union all values ");
+            for (int r = 0; r < rows; r++) {
+                sql.append(r == 0 ? "" : ",").append(placeholders);
+            }
+            return sql.append(") s where ").append(keyCondition(keyColumns)).toString();
+        }
+    },
+
+    /**
+     * oracle不支持values多行写法，使用insert all ... select 1 from dual
+     */
+    ORACLE {
+        @Override
+        protected void appendString(StringBuilder sb, CharSequence value) {
+            appendQuoted(sb, value);
+        }
+
+        @Override
+        protected void appendBytes(StringBuilder sb, byte[] value) {
+            sb.append("HEXTORAW('").append(HexUtil.encodeHex(value)).append("')");
+        }
+
+        @Override
+        protected void appendBoolean(StringBuilder sb, boolean value) {
+            sb.append(value ? '1' : '0');
+        }
+
+        @Override
+        public String multiRowInsertPrefix(String tableName, String columnList) {
+            return "insert all";
+        }
+
+        @Override
+        public String rowPrefix(String tableName, String columnList) {
+            return " into " + tableName + "(" + columnList + ") values ";
+        }
+
+        @Override
+        public String rowSeparator() {
+            return "";
+        }
+
+        @Override
+        public String multiRowInsertSuffix() {
+            return " select 1 from dual";
+        }
+
+        @Override
+        public int maxBindParameters() {
+            return 65535;
+        }
+
+        @Override
+        public int maxRowsPerStatement(int columnCount) {
+            // insert all 所有into子句的列数合计不能超过999
+            return Math.max(1, 999 / columnCount);
+        }
+
+        /**
+         * merge into t using (select ? c1,? c2 from dual union all ...) s on (...)
+         * when matched then update ... when not matched then insert ...
+         */
+        @Override
+        public String upsertSql(TableMapping<?> mapping, int rows, List<String> keyColumns, List<String> updateColumns) {
+            StringBuilder source = new StringBuilder("(");
+            appendSelectRows(source, mapping.getColumns(), rows, " from dual");
+            return mergeSql(mapping, source.append(')').toString(), keyColumns, updateColumns);
+        }
+
+        @Override
+        public String upsertSelectSql(TableMapping<?> mapping, String sourceTable, List<String> keyColumns, List<String> updateColumns) {
+            return mergeSql(mapping, sourceTable, keyColumns, updateColumns);
+        }
+
+        /**
+         * 全局临时表的数据只对写入的会话可见，无法由多个连接并行写入后统一发布，因此暂存表使用nologging普通表
+         */
+        @Override
+        public String stagingTableSql(TableMapping<?> mapping, String stagingTable, String engine) {
+            return "create table " + stagingTable + " nologging as select " + mapping.getColumnList()
+                    + " from " + mapping.getTableName() + " where 1 = 0";
+        }
+
+        private String mergeSql(TableMapping<?> mapping, String source, List<String> keyColumns, List<String> updateColumns) {
+            StringBuilder sql = new StringBuilder("merge into ").append(mapping.getTableName()).append(" t using ")
+                    .append(source).append(" s on (").append(keyCondition(keyColumns)).append(')');
+            if (!updateColumns.isEmpty()) {
+                sql.append(" when matched then update set ")
+                        .append(updateColumns.stream().map(column -> "t." + column + " = s." + column).collect(Collectors.joining(",")));
+            }
+            return sql.append(" when not matched then insert (").append(mapping.getColumnList()).append(") values (")
+                    .append(mapping.getColumns().stream().map(column -> "s." + column).collect(Collectors.joining(",")))
+                    .append(')').toString();
+        }
+
+        /**
+         * merge into t using (select ? id,? c1 from dual union all ...) s on (t.id = s.id) when matched then update set t.c1 = s.c1
+         */
+        @Override
+        public String bulkUpdateSql(String tableName, List<String> keyColumns, List<String> setColumns, Set<String> keepNullColumns, int rows) {
+            StringBuilder sql = new StringBuilder("merge into ").append(tableName).append(" t using (");
+            appendSelectRows(sql, concat(keyColumns, setColumns), rows, " from dual");
+            return sql.append(") s on (").append(keyCondition(keyColumns))
+                    .append(") when matched then update set ").append(setClause(setColumns, keepNullColumns, "t.")).toString();
+        }
+    };
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * 根据数据源的产品名称识别方言
+     *
+     * @param dataSource 数据源
+     */
+    public static DbDialect of(DataSource dataSource) {
+        try {
+            String productName = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return of(productName);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("can not resolve database dialect", e);
+        }
+    }
+
+    public static DbDialect of(String productName) {
+        String name = JdbcUtils.commonDatabaseName(productName);
+        if (name != null) {
+            String lowerName = name.toLowerCase();
+            if (lowerName.contains("mysql") || lowerName.contains("mariadb")) {
+                return MYSQL;
+            }
+            if (lowerName.contains("postgresql")) {
+                return POSTGRESQL;
+            }
+            if (lowerName.contains("oracle")) {
+                return ORACLE;
+            }
+        }
+        throw new IllegalStateException("unsupported database: " + productName);
+    }
+
+    /**
+     * 将值按当前方言转为sql字面量追加到sb
+     *
+     * @param sb    追加目标
+     * @param value 值
+     */
+    public void appendLiteral(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof BigDecimal) {
+            sb.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Number) {
+            sb.append(value);
+        } else if (value instanceof Boolean) {
+            appendBoolean(sb, (Boolean) value);
+        } else if (value instanceof byte[]) {
+            appendBytes(sb, (byte[]) value);
+        } else if (value instanceof java.sql.Date) {
+            sb.append("DATE '").append(value).append('\'');
+        } else if (value instanceof Date) {
+            sb.append("TIMESTAMP '").append(TIMESTAMP_FORMATTER.format(new java.sql.Timestamp(((Date) value).getTime()).toLocalDateTime())).append('\'');
+        } else if (value instanceof LocalDate) {
+            sb.append("DATE '").append(value).append('\'');
+        } else if (value instanceof LocalDateTime) {
+            sb.append("TIMESTAMP '").append(TIMESTAMP_FORMATTER.format((LocalDateTime) value)).append('\'');
+        } else if (value instanceof Enum) {
+            appendString(sb, ((Enum<?>) value).name());
+        } else {
+            appendString(sb, value.toString());
+        }
+    }
+
+    /**
+     * 多行插入语句开头
+     */
+    public String multiRowInsertPrefix(TableMapping<?> mapping) {
+        return multiRowInsertPrefix(mapping.getTableName(), mapping.getColumnList());
+    }
+
+    public String multiRowInsertPrefix(String tableName, String columnList) {
+        return "insert into " + tableName + "(" + columnList + ") values";
+    }
+
+    /**
+     * 每一行值之前的内容
+     */
+    public String rowPrefix(TableMapping<?> mapping) {
+        return rowPrefix(mapping.getTableName(), mapping.getColumnList());
+    }
+
+    public String rowPrefix(String tableName, String columnList) {
+        return " ";
+    }
+
+    /**
+     * 行之间的分隔符
+     */
+    public String rowSeparator() {
+        return ",";
+    }
+
+    /**
+     * 多行插入语句结尾
+     */
+    public String multiRowInsertSuffix() {
+        return "";
+    }
+
+    /**
+     * 单条语句允许的最大行数
+     *
+     * @param columnCount 每行列数
+     */
+    public int maxRowsPerStatement(int columnCount) {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 单条语句允许的最大绑定参数个数
+     */
+    public abstract int maxBindParameters();
+
+    /**
+     * 每行均为占位符的单条语句最多容纳的行数，同时受语句行数与绑定参数个数限制
+     *
+     * @param columnCount 每行列数
+     */
+    public int maxPreparedRows(int columnCount) {
+        return Math.max(1, Math.min(maxRowsPerStatement(columnCount), maxBindParameters() / columnCount));
+    }
+
+    /**
+     * 多行插入预处理语句，每行均为占位符
+     *
+     * @param mapping 表映射
+     * @param rows    行数
+     */
+    public String multiRowInsertSql(TableMapping<?> mapping, int rows) {
+        return multiRowInsertSql(mapping.getTableName(), mapping.getColumnList(), mapping.getColumnCount(), rows);
+    }
+
+    /**
+     * 多行插入预处理语句，每行均为占位符
+     *
+     * @param tableName   表名
+     * @param columnList  逗号分隔的列名
+     * @param columnCount 列数
+     * @param rows        行数
+     */
+    public String multiRowInsertSql(String tableName, String columnList, int columnCount, int rows) {
+        String placeholders = "(" + String.join(",", Collections.nCopies(columnCount, "?")) + ")";
+        String rowPrefix = rowPrefix(tableName, columnList);
+        StringBuilder sql = new StringBuilder(multiRowInsertPrefix(tableName, columnList));
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(rowSeparator());
+            }
+            sql.append(rowPrefix).append(placeholders);
+        }
+        return sql.append(multiRowInsertSuffix()).toString();
+    }
+
+    /**
+     * 多行upsert预处理语句，每行均为占位符，键冲突时更新指定列，没有更新列时忽略冲突行
+     *
+     * @param mapping       表映射
+     * @param rows          行数
+     * @param keyColumns    判断冲突的键列（需有主键或唯一约束）
+     * @param updateColumns 冲突时更新的列
+     */
+    public abstract String upsertSql(TableMapping<?> mapping, int rows, List<String> keyColumns, List<String> updateColumns);
+
+    /**
+     * 从另一张表整表upsert到目标表，列与目标表一致
+     *
+     * @param mapping       目标表映射
+     * @param sourceTable   来源表
+     * @param keyColumns    判断冲突的键列
+     * @param updateColumns 冲突时更新的列
+     */
+    public abstract String upsertSelectSql(TableMapping<?> mapping, String sourceTable, List<String> keyColumns, List<String> updateColumns);
+
+    /**
+     * 从另一张表整表插入到目标表 insert into t(cols) select cols from s
+     */
+    public String insertSelectSql(TableMapping<?> mapping, String sourceTable) {
+        return "insert into " + mapping.getTableName() + "(" + mapping.getColumnList() + ") select "
+                + mapping.getColumnList() + " from " + sourceTable;
+    }
+
+    /**
+     * 创建与目标表列一致、没有索引约束的暂存表，暂存表需对所有连接可见以便并行写入
+     *
+     * @param mapping      目标表映射
+     * @param stagingTable 暂存表名
+     * @param engine       存储引擎，仅mysql使用（InnoDB、MEMORY）
+     */
+    public abstract String stagingTableSql(TableMapping<?> mapping, String stagingTable, String engine);
+
+    /**
+     * 按主键/键列批量更新的预处理语句，整批数据作为派生表与目标表关联，每行依次绑定键列与更新列
+     *
+     * @param tableName       表名
+     * @param keyColumns      关联的键列
+     * @param setColumns      更新的列
+     * @param keepNullColumns 值为null时保留原值的列（coalesce(s.c, t.c)）
+     * @param rows            行数
+     */
+    public abstract String bulkUpdateSql(String tableName, List<String> keyColumns, List<String> setColumns, Set<String> keepNullColumns, int rows);
+
+    /**
+     * 以 select ? c1,? c2[ from dual] union all ... 形式追加占位符行，列名只出现在第一行
+     */
+    protected static void appendSelectRows(StringBuilder sql, List<String> columns, int rows, String from) {
+        for (int r = 0; r < rows; r++) {
+            sql.append(r == 0 ? "select " : " union all select ");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append('?');
+                if (r == 0) {
+                    sql.append(' ').append(columns.get(i));
+                }
+            }
+            sql.append(from);
+        }
+    }
+
+    /**
+     * 派生表s与目标表t按键列关联的条件
+     */
+    protected static String keyCondition(List<String> keyColumns) {
+        return keyColumns.stream().map(column -> "t." + column + " = s." + column).collect(Collectors.joining(" and "));
+    }
+
+    /**
+     * set子句，targetPrefix为被更新列的前缀（postgresql不允许带表别名）
+     */
+    protected static String setClause(List<String> setColumns, Set<String> keepNullColumns, String targetPrefix) {
+        return setColumns.stream()
+                .map(column -> targetPrefix + column + " = " + (keepNullColumns.contains(column)
+                        ? "coalesce(s." + column + ", t." + column + ")" : "s." + column))
+                .collect(Collectors.joining(","));
+    }
+
+    protected static List<String> concat(List<String> first, List<String> second) {
+        List<String> columns = new ArrayList<>(first.size() + second.size());
+        columns.addAll(first);
+        columns.addAll(second);
+        return columns;
+    }
+
+    /**
+     * 查询服务端允许的单个数据包大小，没有限制时返回-1
+     *
+     * @param jdbcTemplate jdbcTemplate
+     */
+    public long queryMaxPacketBytes(JdbcTemplate jdbcTemplate) {
+        return -1;
+    }
+
+    protected abstract void appendString(StringBuilder sb, CharSequence value);
+
+    protected abstract void appendBytes(StringBuilder sb, byte[] value);
+
+    protected void appendBoolean(StringBuilder sb, boolean value) {
+        sb.append(value ? "true" : "false");
+    }
+
+    /**
+     * 标准sql字符串：单引号转义为两个单引号
+     */
+    protected static void appendQuoted(StringBuilder sb, CharSequence value) {
+        sb.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                sb.append('\'');
+            }
+            sb.append(c);
+        }
+        sb.append('\'');
+    }
+}
@@ -0,0 +1,47 @@
+package top.wecoding.batch.job;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 导入任务的批次检查点
+ *
+ * @author ffd
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class Checkpoint {
+
+    /**
+     * 已开始写入，尚未确认提交
+     */
+    public static final String STARTED = "S";
+
+    /**
+     * 批次已与数据在同一事务中提交
+     */
+    public static final String COMMITTED = "C";
+
+    private final String jobName;
+
+    /**
+     * 批次序号，从0开始
+     */
+    private final long chunkIndex;
+
+    /**
+     * 批次第一个主键
+     */
+    private final String firstKey;
+
+    /**
+     * 批次最后一个主键
+     */
+    private final String lastKey;
+
+    private final long rows;
+
+    private final String status;
+}
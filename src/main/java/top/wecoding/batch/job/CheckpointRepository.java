@@ -0,0 +1,121 @@
+package top.wecoding.batch.job;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 导入任务检查点表的读写
+ * 表结构只使用mysql、postgresql、oracle都支持的类型，首次使用时自动创建
+ *
+ * @author ffd
+ */
+public class CheckpointRepository {
+
+    private static final RowMapper<Checkpoint> ROW_MAPPER = (rs, rowNum) -> new Checkpoint(rs.getString("job_name"),
+            rs.getLong("chunk_index"), rs.getString("first_key"), rs.getString("last_key"),
+            rs.getLong("row_count"), rs.getString("status"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String table;
+
+    private volatile boolean initialized;
+
+    public CheckpointRepository(JdbcTemplate jdbcTemplate, String table) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+    }
+
+    /**
+     * 检查点表不存在时创建
+     * 通过连接元数据判断表是否存在，不能靠查询失败判断：postgresql中失败的语句会使所在事务中止，后续的建表也随之失败
+     */
+    public void createTableIfAbsent() {
+        if (initialized) {
+            return;
+        }
+        if (!tableExists()) {
+            jdbcTemplate.execute("create table " + table + " ("
+                    + "job_name varchar(64) not null, "
+                    + "chunk_index numeric(19) not null, "
+                    + "first_key varchar(64), "
+                    + "last_key varchar(64), "
+                    + "row_count numeric(19) not null, "
+                    + "status char(1) not null, "
+                    + "updated_at timestamp not null, "
+                    + "primary key (job_name, chunk_index))");
+        }
+        initialized = true;
+    }
+
+    private boolean tableExists() {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // 未加引号的标识符：oracle存为大写，postgresql存为小写
+            String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase()
+                    : metaData.storesLowerCaseIdentifiers() ? table.toLowerCase() : table;
+            try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), name, new String[]{"TABLE"})) {
+                return rs.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * 最后一个已提交的批次，没有时返回null
+     *
+     * @param jobName 任务名
+     */
+    public Checkpoint lastCommitted(String jobName) {
+        List<Checkpoint> checkpoints = jdbcTemplate.query("select * from " + table
+                + " where job_name = ? and status = ? and chunk_index = (select max(chunk_index) from " + table
+                + " where job_name = ? and status = ?)", ROW_MAPPER, jobName, Checkpoint.COMMITTED, jobName, Checkpoint.COMMITTED);
+        return checkpoints.isEmpty() ? null : checkpoints.get(0);
+    }
+
+    /**
+     * 已开始但未确认提交的批次（上次运行中断时正在写入）
+     *
+     * @param jobName 任务名
+     */
+    public List<Checkpoint> listStarted(String jobName) {
+        return jdbcTemplate.query("select * from " + table + " where job_name = ? and status = ? order by chunk_index",
+                ROW_MAPPER, jobName, Checkpoint.STARTED);
+    }
+
+    /**
+     * 记录批次开始写入及其主键范围
+     */
+    public void start(String jobName, long chunkIndex, String firstKey, String lastKey, long rows) {
+        jdbcTemplate.update("insert into " + table + " (job_name, chunk_index, first_key, last_key, row_count, status, updated_at)"
+                        + " values (?, ?, ?, ?, ?, ?, ?)", jobName, chunkIndex, firstKey, lastKey, rows, Checkpoint.STARTED,
+                new Timestamp(System.currentTimeMillis()));
+    }
+
+    /**
+     * 确认批次已提交，需与批次数据在同一事务中执行
+     */
+    public void commit(String jobName, long chunkIndex) {
+        jdbcTemplate.update("update " + table + " set status = ?, updated_at = ? where job_name = ? and chunk_index = ?",
+                Checkpoint.COMMITTED, new Timestamp(System.currentTimeMillis()), jobName, chunkIndex);
+    }
+
+    public void delete(String jobName, long chunkIndex) {
+        jdbcTemplate.update("delete from " + table + " where job_name = ? and chunk_index = ?", jobName, chunkIndex);
+    }
+
+    /**
+     * 清除任务的全部检查点，下次运行从头开始
+     *
+     * @param jobName 任务名
+     */
+    public void reset(String jobName) {
+        jdbcTemplate.update("delete from " + table + " where job_name = ?", jobName);
+    }
+}
@@ -0,0 +1,41 @@
+package top.wecoding.batch.job;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入任务单次运行结果
+ *
+ * @author ffd
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ImportJobResult {
+
+    private final String jobName;
+
+    /**
+     * 本次运行的起始批次序号，大于0表示从检查点续传
+     */
+    private final long startChunk;
+
+    /**
+     * 本次运行提交的批次数
+     */
+    private final long chunks;
+
+    /**
+     * 本次运行写入的行数
+     */
+    private final long rows;
+
+    private final long elapsedNanos;
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+}
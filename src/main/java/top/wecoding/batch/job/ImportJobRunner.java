@@ -0,0 +1,141 @@
+package top.wecoding.batch.job;
+
+import cn.hutool.core.convert.Convert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.BatchWriter;
+import top.wecoding.batch.TableMapping;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 可续传的分批导入任务
+ * 每个批次先在独立事务中记录开始及主键范围，再在同一事务中写入数据并确认检查点；
+ * 重新运行时先删除上次中断批次主键范围内的数据（兼容自行提交的写入方式），再从最后一个已提交批次之后继续读取，
+ * 恢复耗时只与剩余数据量相关。任务需独占其主键范围，数据源须按主键升序返回
+ *
+ * @author ffd
+ */
+@Slf4j
+public class ImportJobRunner<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 每个批次、检查点都在独立的新事务中提交，调用方处于事务中也不会合并为一个大事务
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    private final BatchWriter<T> writer;
+
+    private final TableMapping<T> mapping;
+
+    private final CheckpointRepository checkpointRepository;
+
+    private final int chunkSize;
+
+    private final String rangeDeleteSql;
+
+    public ImportJobRunner(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, BatchWriter<T> writer,
+                           TableMapping<T> mapping, CheckpointRepository checkpointRepository, int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writer = writer;
+        this.mapping = mapping;
+        this.checkpointRepository = checkpointRepository;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.rangeDeleteSql = "delete from " + mapping.getTableName() + " where " + mapping.getIdColumn() + " between ? and ?";
+    }
+
+    /**
+     * 运行（或续传）导入任务
+     *
+     * @param jobName 任务名，同名任务共享检查点
+     * @param source  按主键升序的数据源
+     * @return 本次运行结果
+     */
+    public ImportJobResult run(String jobName, ResumableSource<T> source) {
+        long starTime = System.nanoTime();
+        transactionTemplate.execute(status -> {
+            checkpointRepository.createTableIfAbsent();
+            return null;
+        });
+        recover(jobName);
+        Checkpoint last = checkpointRepository.lastCommitted(jobName);
+        long chunkIndex = last == null ? 0 : last.getChunkIndex() + 1;
+        Object afterKey = last == null ? null : toKey(last.getLastKey());
+        if (last != null) {
+            log.info("resume import job {} from chunk {} after key {}", jobName, chunkIndex, afterKey);
+        }
+        long resumedChunk = chunkIndex;
+        long rows = 0;
+        Iterator<T> iterator = source.open(afterKey);
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                rows += writeChunk(jobName, chunkIndex++, chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        return new ImportJobResult(jobName, resumedChunk, chunkIndex - resumedChunk, rows, System.nanoTime() - starTime);
+    }
+
+    /**
+     * 清除任务的检查点，下次运行从头开始（已导入的数据不会删除）
+     *
+     * @param jobName 任务名
+     */
+    public void reset(String jobName) {
+        checkpointRepository.reset(jobName);
+    }
+
+    private long writeChunk(String jobName, long chunkIndex, List<T> chunk) {
+        String firstKey = keyString(mapping.getIdValue(chunk.get(0)));
+        String lastKey = keyString(mapping.getIdValue(chunk.get(chunk.size() - 1)));
+        transactionTemplate.execute(status -> {
+            checkpointRepository.start(jobName, chunkIndex, firstKey, lastKey, chunk.size());
+            return null;
+        });
+        Long rows = transactionTemplate.execute(status -> {
+            long written = writer.write(chunk).getRows();
+            checkpointRepository.commit(jobName, chunkIndex);
+            return written;
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * 删除上次中断批次主键范围内已写入的数据及其检查点
+     */
+    private void recover(String jobName) {
+        for (Checkpoint checkpoint : checkpointRepository.listStarted(jobName)) {
+            transactionTemplate.execute(status -> {
+                int deleted = jdbcTemplate.update(rangeDeleteSql, toKey(checkpoint.getFirstKey()), toKey(checkpoint.getLastKey()));
+                checkpointRepository.delete(jobName, checkpoint.getChunkIndex());
+                log.info("import job {} discard {} rows of interrupted chunk {} [{}, {}]", jobName, deleted,
+                        checkpoint.getChunkIndex(), checkpoint.getFirstKey(), checkpoint.getLastKey());
+                return null;
+            });
+        }
+    }
+
+    private static String keyString(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("import job requires non-null primary keys");
+        }
+        return key.toString();
+    }
+
+    /**
+     * 检查点中的主键还原为实体主键字段的类型
+     */
+    private Object toKey(String key) {
+        return Convert.convert(mapping.getFields().get(mapping.getIdIndex()).getType(), key);
+    }
+}
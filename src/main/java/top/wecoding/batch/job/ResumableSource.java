@@ -0,0 +1,21 @@
+package top.wecoding.batch.job;
+
+import java.util.Iterator;
+
+/**
+ * 可续传的数据源
+ * 返回的数据必须按主键升序排列，续传时从上一个已提交批次的最后一个主键之后重新读取
+ *
+ * @author ffd
+ */
+@FunctionalInterface
+public interface ResumableSource<T> {
+
+    /**
+     * 打开数据源
+     *
+     * @param afterKey 只返回主键大于该值的数据，为null时从头读取
+     * @return 按主键升序的数据迭代器
+     */
+    Iterator<T> open(Object afterKey);
+}
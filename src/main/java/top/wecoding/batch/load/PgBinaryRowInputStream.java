@@ -0,0 +1,192 @@
+package top.wecoding.batch.load;
+
+import top.wecoding.batch.TableMapping;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * 将实体逐行编码为postgresql COPY binary格式
+ * java类型需与列类型一致：Short/int2、Integer/int4、Long/int8、Float/float4、Double/float8、Boolean/bool、
+ * String/text|varchar、byte[]/bytea、UUID/uuid、LocalDate|java.sql.Date/date、LocalDateTime|Date/timestamp
+ *
+ * @author ffd
+ */
+public class PgBinaryRowInputStream<T> extends InputStream {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    private static final LocalDate PG_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+
+    private static final LocalDateTime PG_EPOCH = PG_EPOCH_DATE.atStartOfDay();
+
+    private final Iterator<? extends T> iterator;
+    private final TableMapping<T> mapping;
+
+    private byte[] buffer = new byte[512];
+    private int position;
+    private int limit;
+    private boolean trailerWritten;
+    private long rows;
+
+    public PgBinaryRowInputStream(Iterator<? extends T> iterator, TableMapping<T> mapping) {
+        this.iterator = iterator;
+        this.mapping = mapping;
+        // 文件头：签名 + flags + 头扩展长度
+        write(SIGNATURE, 0, SIGNATURE.length);
+        writeInt(0);
+        writeInt(0);
+    }
+
+    @Override
+    public int read() {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len) {
+            if (position >= limit && !fill()) {
+                break;
+            }
+            int n = Math.min(len - read, limit - position);
+            System.arraycopy(buffer, position, b, off + read, n);
+            position += n;
+            read += n;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private boolean fill() {
+        position = 0;
+        limit = 0;
+        if (iterator.hasNext()) {
+            encodeRow(iterator.next());
+            rows++;
+            return true;
+        }
+        if (!trailerWritten) {
+            trailerWritten = true;
+            writeShort(-1);
+            return true;
+        }
+        return false;
+    }
+
+    private void encodeRow(T entity) {
+        writeShort(mapping.getColumnCount());
+        for (int i = 0; i < mapping.getColumnCount(); i++) {
+            encodeValue(mapping.getValue(entity, i));
+        }
+    }
+
+    private void encodeValue(Object value) {
+        if (value == null) {
+            writeInt(-1);
+        } else if (value instanceof Integer) {
+            writeInt(4);
+            writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            writeInt(8);
+            writeLong((Long) value);
+        } else if (value instanceof Short) {
+            writeInt(2);
+            writeShort((Short) value);
+        } else if (value instanceof Double) {
+            writeInt(8);
+            writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            writeInt(4);
+            writeInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Boolean) {
+            writeInt(1);
+            ensure(1);
+            buffer[limit++] = (byte) ((Boolean) value ? 1 : 0);
+        } else if (value instanceof CharSequence) {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            writeInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        } else if (value instanceof UUID) {
+            writeInt(16);
+            writeLong(((UUID) value).getMostSignificantBits());
+            writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof java.sql.Date) {
+            writeDate(((java.sql.Date) value).toLocalDate());
+        } else if (value instanceof LocalDate) {
+            writeDate((LocalDate) value);
+        } else if (value instanceof Date) {
+            writeTimestamp(new Timestamp(((Date) value).getTime()).toLocalDateTime());
+        } else if (value instanceof LocalDateTime) {
+            writeTimestamp((LocalDateTime) value);
+        } else {
+            throw new IllegalArgumentException("unsupported binary copy type: " + value.getClass().getName());
+        }
+    }
+
+    private void writeDate(LocalDate date) {
+        writeInt(4);
+        writeInt((int) ChronoUnit.DAYS.between(PG_EPOCH_DATE, date));
+    }
+
+    private void writeTimestamp(LocalDateTime dateTime) {
+        writeInt(8);
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC) - PG_EPOCH.toEpochSecond(ZoneOffset.UTC);
+        writeLong(seconds * 1_000_000L + dateTime.getNano() / 1000);
+    }
+
+    private void writeShort(int v) {
+        ensure(2);
+        buffer[limit++] = (byte) (v >>> 8);
+        buffer[limit++] = (byte) v;
+    }
+
+    private void writeInt(int v) {
+        ensure(4);
+        buffer[limit++] = (byte) (v >>> 24);
+        buffer[limit++] = (byte) (v >>> 16);
+        buffer[limit++] = (byte) (v >>> 8);
+        buffer[limit++] = (byte) v;
+    }
+
+    private void writeLong(long v) {
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    private void write(byte[] bytes, int off, int len) {
+        ensure(len);
+        System.arraycopy(bytes, off, buffer, limit, len);
+        limit += len;
+    }
+
+    private void ensure(int size) {
+        if (limit + size > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, limit + size)];
+            System.arraycopy(buffer, 0, newBuffer, 0, limit);
+            buffer = newBuffer;
+        }
+    }
+}
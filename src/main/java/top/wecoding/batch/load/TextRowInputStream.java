@@ -0,0 +1,171 @@
+package top.wecoding.batch.load;
+
+import top.wecoding.batch.TableMapping;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * 将实体逐行编码为制表符分隔的utf-8文本流
+ * 格式同时兼容mysql LOAD DATA默认格式与postgresql COPY text格式：
+ * null写为\N，反斜杠、制表符、换行、回车使用反斜杠转义。
+ * 读取时才编码下一行，整个过程只占用一行大小的缓冲区
+ *
+ * @author ffd
+ */
+public class TextRowInputStream<T> extends InputStream {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final Iterator<? extends T> iterator;
+    private final TableMapping<T> mapping;
+    private final int[] columnIndexes;
+
+    private final StringBuilder line = new StringBuilder(256);
+    private byte[] buffer = new byte[512];
+    private int position;
+    private int limit;
+    private long rows;
+
+    /**
+     * @param iterator      数据迭代器
+     * @param mapping       表映射
+     * @param columnIndexes 需要输出的列在mapping中的下标，顺序即输出顺序
+     */
+    public TextRowInputStream(Iterator<? extends T> iterator, TableMapping<T> mapping, int[] columnIndexes) {
+        this.iterator = iterator;
+        this.mapping = mapping;
+        this.columnIndexes = columnIndexes;
+    }
+
+    @Override
+    public int read() {
+        if (position >= limit && !nextLine()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len) {
+            if (position >= limit && !nextLine()) {
+                break;
+            }
+            int n = Math.min(len - read, limit - position);
+            System.arraycopy(buffer, position, b, off + read, n);
+            position += n;
+            read += n;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * 已编码的行数
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    private boolean nextLine() {
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        T entity = iterator.next();
+        line.setLength(0);
+        for (int i = 0; i < columnIndexes.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            appendValue(mapping.getValue(entity, columnIndexes[i]));
+        }
+        line.append('\n');
+        encodeLine();
+        rows++;
+        return true;
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            line.append("\\N");
+        } else if (value instanceof BigDecimal) {
+            line.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Number) {
+            line.append(value);
+        } else if (value instanceof Boolean) {
+            line.append((Boolean) value ? '1' : '0');
+        } else if (value instanceof java.sql.Date) {
+            line.append(value);
+        } else if (value instanceof Date) {
+            line.append(TIMESTAMP_FORMATTER.format(new java.sql.Timestamp(((Date) value).getTime()).toLocalDateTime()));
+        } else if (value instanceof LocalDateTime) {
+            line.append(TIMESTAMP_FORMATTER.format((LocalDateTime) value));
+        } else if (value instanceof byte[]) {
+            throw new IllegalArgumentException("binary column is not supported in text format");
+        } else {
+            appendEscaped(value.toString());
+        }
+    }
+
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    /**
+     * 手工utf-8编码到复用的字节缓冲区，避免每行产生String和byte[]
+     */
+    private void encodeLine() {
+        int length = line.length();
+        if (buffer.length < length * 3) {
+            buffer = new byte[length * 3];
+        }
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                buffer[n++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[n++] = (byte) (0xC0 | (c >> 6));
+                buffer[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(line.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, line.charAt(++i));
+                buffer[n++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[n++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[n++] = (byte) (0xE0 | (c >> 12));
+                buffer[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = 0;
+        limit = n;
+    }
+}
@@ -0,0 +1,268 @@
+package top.wecoding.batch.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import top.wecoding.batch.BatchWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 有界流水线：读取 -> 转换/校验 -> 写入
+ * 各阶段之间以固定容量的环形队列（ArrayBlockingQueue）传递批次，下游处理不过来时上游阻塞（背压），
+ * 内存占用只与队列容量和批次大小有关，与总数据量无关；转换与写入可分别配置多个线程，cpu处理与数据库io重叠执行
+ *
+ * @param <S> 数据源元素类型
+ * @param <T> 实体类型
+ * @author ffd
+ */
+@Slf4j
+public class BatchPipeline<S, T> {
+
+    /**
+     * 结束标记
+     */
+    private static final List<?> END = Collections.emptyList();
+
+    private static final long POLL_MILLIS = 100;
+
+    private final BatchWriter<T> writer;
+
+    private final Function<S, T> converter;
+
+    private final Predicate<T> validator;
+
+    private final int converterThreads;
+
+    private final int writerThreads;
+
+    private final int queueCapacity;
+
+    private final int chunkSize;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * @param converter        转换函数，返回null的数据被丢弃
+     * @param validator        校验，不通过的数据计入rejected并丢弃，可为null
+     * @param converterThreads 转换线程数
+     * @param writerThreads    写入线程数，不宜超过连接池最大连接数
+     * @param queueCapacity    每个队列最多容纳的批次数
+     * @param chunkSize        每个批次的行数
+     */
+    public BatchPipeline(BatchWriter<T> writer, Function<S, T> converter, Predicate<T> validator,
+                         int converterThreads, int writerThreads, int queueCapacity, int chunkSize) {
+        this.writer = writer;
+        this.converter = converter;
+        this.validator = validator;
+        this.converterThreads = Math.max(1, converterThreads);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * 在调用线程上读取数据源，转换与写入在流水线线程上执行，全部写入完成后返回
+     *
+     * @param source 数据源
+     * @return 运行结果，包含各阶段统计
+     */
+    public PipelineMetrics run(Iterator<S> source) {
+        return run(source, new PipelineMetrics());
+    }
+
+    /**
+     * 同{@link #run(Iterator)}，运行期间可从其他线程读取传入的metrics观察各阶段队列深度
+     */
+    public PipelineMetrics run(Iterator<S> source, PipelineMetrics metrics) {
+        Run run = new Run(metrics);
+        int id = sequence.incrementAndGet();
+        List<Thread> threads = new ArrayList<>(converterThreads + writerThreads);
+        for (int i = 0; i < converterThreads; i++) {
+            threads.add(new Thread(run::convert, "Pipeline-" + id + "-convert-" + i));
+        }
+        for (int i = 0; i < writerThreads; i++) {
+            threads.add(new Thread(run::write, "Pipeline-" + id + "-write-" + i));
+        }
+        long starTime = System.nanoTime();
+        threads.forEach(Thread::start);
+        run.read(source);
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                run.fail(e);
+                break;
+            }
+        }
+        metrics.finish(System.nanoTime() - starTime);
+        if (run.failure != null) {
+            throw new IllegalStateException("batch pipeline failed", run.failure);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("pipeline {} finished: {}", id, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * 一次运行的队列与状态
+     */
+    private class Run {
+
+        private final PipelineMetrics metrics;
+
+        private final BlockingQueue<List<S>> convertQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private final BlockingQueue<List<T>> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private final AtomicInteger runningConverters = new AtomicInteger(converterThreads);
+
+        private volatile Throwable failure;
+
+        Run(PipelineMetrics metrics) {
+            this.metrics = metrics;
+            metrics.bind(convertQueue, writeQueue);
+        }
+
+        @SuppressWarnings("unchecked")
+        void read(Iterator<S> source) {
+            try {
+                List<S> chunk = new ArrayList<>(chunkSize);
+                while (failure == null && source.hasNext()) {
+                    chunk.add(source.next());
+                    if (chunk.size() == chunkSize) {
+                        put(convertQueue, chunk, metrics.getRead());
+                        metrics.getRead().done(chunk.size());
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    put(convertQueue, chunk, metrics.getRead());
+                    metrics.getRead().done(chunk.size());
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                for (int i = 0; i < converterThreads; i++) {
+                    putEnd(convertQueue, (List<S>) END);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void convert() {
+            try {
+                List<S> chunk;
+                while ((chunk = take(convertQueue)) != END) {
+                    List<T> entities = new ArrayList<>(chunk.size());
+                    for (S item : chunk) {
+                        T entity = converter.apply(item);
+                        if (entity == null || (validator != null && !validator.test(entity))) {
+                            metrics.getConvert().reject();
+                        } else {
+                            entities.add(entity);
+                        }
+                    }
+                    metrics.getConvert().done(chunk.size());
+                    if (!entities.isEmpty()) {
+                        put(writeQueue, entities, metrics.getConvert());
+                    }
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                // 最后一个结束的转换线程通知所有写入线程
+                if (runningConverters.decrementAndGet() == 0) {
+                    for (int i = 0; i < writerThreads; i++) {
+                        putEnd(writeQueue, (List<T>) END);
+                    }
+                }
+            }
+        }
+
+        void write() {
+            try {
+                List<T> chunk;
+                while ((chunk = take(writeQueue)) != END) {
+                    writer.write(chunk);
+                    metrics.getWrite().done(chunk.size());
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        void fail(Throwable e) {
+            if (failure == null && !(e instanceof Cancelled)) {
+                failure = e;
+                log.error("batch pipeline stage {} failed", Thread.currentThread().getName(), e);
+            }
+        }
+
+        /**
+         * 放入下游队列，队列已满时阻塞并计为一次背压等待，任一阶段失败后放弃
+         */
+        private <E> void put(BlockingQueue<List<E>> queue, List<E> chunk, PipelineMetrics.Stage stage) throws InterruptedException {
+            if (!queue.offer(chunk)) {
+                stage.blocked();
+                while (!queue.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) {
+                        throw new Cancelled();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 结束标记必须送达，失败时清空队列腾出位置
+         */
+        private <E> void putEnd(BlockingQueue<List<E>> queue, List<E> end) {
+            try {
+                while (!queue.offer(end, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) {
+                        queue.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                queue.clear();
+                queue.offer(end);
+            }
+        }
+
+        private <E> List<E> take(BlockingQueue<List<E>> queue) throws InterruptedException {
+            List<E> chunk;
+            while ((chunk = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (failure != null) {
+                    throw new Cancelled();
+                }
+            }
+            if (failure != null && chunk != END) {
+                throw new Cancelled();
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * 其他阶段失败后取消当前阶段
+     */
+    private static class Cancelled extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package top.wecoding.batch.pipeline;
+
+import lombok.Getter;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流水线各阶段统计，运行期间可从其他线程读取
+ *
+ * @author ffd
+ */
+public class PipelineMetrics {
+
+    @Getter
+    private final Stage read = new Stage("read");
+
+    @Getter
+    private final Stage convert = new Stage("convert");
+
+    @Getter
+    private final Stage write = new Stage("write");
+
+    private volatile Queue<?> convertQueue;
+
+    private volatile Queue<?> writeQueue;
+
+    @Getter
+    private volatile long elapsedNanos;
+
+    void bind(Queue<?> convertQueue, Queue<?> writeQueue) {
+        this.convertQueue = convertQueue;
+        this.writeQueue = writeQueue;
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * 等待转换的批次数
+     */
+    public int getConvertQueueDepth() {
+        Queue<?> queue = convertQueue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * 等待写入的批次数
+     */
+    public int getWriteQueueDepth() {
+        Queue<?> queue = writeQueue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return read + ", convertQueue=" + getConvertQueueDepth() + ", " + convert + ", writeQueue=" + getWriteQueueDepth()
+                + ", " + write + ", elapsed=" + getElapsedMillis() + "ms";
+    }
+
+    /**
+     * 单个阶段的统计
+     */
+    public static class Stage {
+
+        private final String name;
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder blocked = new LongAdder();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void done(int count) {
+            rows.add(count);
+        }
+
+        void reject() {
+            rejected.increment();
+        }
+
+        void blocked() {
+            blocked.increment();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 已处理的行数
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * 转换为null或校验不通过而丢弃的行数
+         */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        /**
+         * 因下游队列已满而等待（背压）的次数
+         */
+        public long getBlocked() {
+            return blocked.sum();
+        }
+
+        @Override
+        public String toString() {
+            return name + "{rows=" + getRows() + ", rejected=" + getRejected() + ", blocked=" + getBlocked() + "}";
+        }
+    }
+}
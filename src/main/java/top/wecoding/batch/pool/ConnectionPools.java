@@ -0,0 +1,91 @@
+package top.wecoding.batch.pool;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * 连接池状态查询，目前支持druid与mongo同步驱动，其他连接池返回-1表示未知
+ *
+ * @author ffd
+ */
+public final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * 连接池最大连接数
+     *
+     * @param dataSource 数据源
+     */
+    public static int maxActive(DataSource dataSource) {
+        DruidDataSource druidDataSource = unwrap(dataSource);
+        return druidDataSource == null ? -1 : druidDataSource.getMaxActive();
+    }
+
+    /**
+     * 当前还能借出的连接数（最大连接数 - 已借出连接数）
+     *
+     * @param dataSource 数据源
+     */
+    public static int available(DataSource dataSource) {
+        DruidDataSource druidDataSource = unwrap(dataSource);
+        return druidDataSource == null ? -1 : Math.max(0, druidDataSource.getMaxActive() - druidDataSource.getActiveCount());
+    }
+
+    /**
+     * 连接池中空闲的连接数（已建立、未借出），借出时不需要新建连接
+     *
+     * @param dataSource 数据源
+     */
+    public static int idle(DataSource dataSource) {
+        DruidDataSource druidDataSource = unwrap(dataSource);
+        return druidDataSource == null ? -1 : druidDataSource.getPoolingCount();
+    }
+
+    /**
+     * mongo驱动每个服务端的连接池最大连接数（maxPoolSize），连接串中指定时取连接串的，否则取客户端配置的
+     *
+     * @param uri      连接串（spring.data.mongodb.uri），未配置时为null
+     * @param settings 客户端配置，没有时为null
+     */
+    public static int maxSize(String uri, MongoClientSettings settings) {
+        if (uri != null) {
+            Integer maxSize = new ConnectionString(uri).getMaxConnectionPoolSize();
+            if (maxSize != null) {
+                return maxSize;
+            }
+        }
+        return settings == null ? -1 : settings.getConnectionPoolSettings().getMaxSize();
+    }
+
+    /**
+     * 按连接池空闲情况限制并行度，连接池未知时返回期望值
+     *
+     * @param dataSource 数据源
+     * @param expected   期望的并行度
+     * @return 1 ~ expected
+     */
+    public static int parallelism(DataSource dataSource, int expected) {
+        int available = available(dataSource);
+        return Math.max(1, available < 0 ? expected : Math.min(expected, available));
+    }
+
+    static DruidDataSource unwrap(DataSource dataSource) {
+        if (dataSource instanceof DruidDataSource) {
+            return (DruidDataSource) dataSource;
+        }
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(DruidDataSource.class)) {
+                return dataSource.unwrap(DruidDataSource.class);
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,328 @@
+package top.wecoding.batch.pool;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import top.wecoding.metrics.LatencyHistogram;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可在运行时调整、可观测的线程池
+ * 核心线程数、最大线程数与队列容量可通过JMX调整，无需重启；线程池已满时按拒绝策略直接拒绝、由提交线程执行或阻塞等待队列空位；
+ * 统计活跃线程数、队列长度、拒绝次数以及任务的排队耗时与执行耗时
+ *
+ * @author ffd
+ */
+@ManagedResource(objectName = "top.wecoding:type=AsyncExecutor", description = "可动态调整的异步线程池")
+public class DynamicThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 线程池已满（线程数达到最大且队列已满）时的处理方式
+     */
+    public enum RejectPolicy {
+        /**
+         * 抛出RejectedExecutionException
+         */
+        ABORT,
+        /**
+         * 由提交任务的线程执行，提交方被拖慢，形成背压
+         */
+        CALLER_RUNS,
+        /**
+         * 提交线程阻塞等待队列空位，超时后抛出RejectedExecutionException
+         */
+        BLOCK
+    }
+
+    private volatile RejectPolicy rejectPolicy = RejectPolicy.ABORT;
+
+    private volatile long blockTimeoutMillis = 60000;
+
+    private volatile int queueCapacity = Integer.MAX_VALUE;
+
+    private ResizableBlockingQueue<Runnable> queue;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder callerRuns = new LongAdder();
+
+    private final LongAdder blocked = new LongAdder();
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    private final LatencyHistogram blockWait = new LatencyHistogram();
+
+    public DynamicThreadPoolTaskExecutor() {
+        setRejectedExecutionHandler(this::rejectedExecution);
+        setTaskDecorator(task -> {
+            long submitNanos = System.nanoTime();
+            return () -> {
+                long startNanos = System.nanoTime();
+                queueWait.record(startNanos - submitNanos);
+                try {
+                    task.run();
+                } finally {
+                    execution.record(System.nanoTime() - startNanos);
+                }
+            };
+        });
+    }
+
+    @Override
+    protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+        queue = new ResizableBlockingQueue<>(queueCapacity);
+        return queue;
+    }
+
+    private void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            rejected.increment();
+            throw new RejectedExecutionException("线程池已关闭");
+        }
+        switch (rejectPolicy) {
+            case CALLER_RUNS:
+                callerRuns.increment();
+                task.run();
+                return;
+            case BLOCK:
+                blocked.increment();
+                long startNanos = System.nanoTime();
+                boolean queued;
+                try {
+                    queued = executor.getQueue().offer(task, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.increment();
+                    throw new RejectedExecutionException("等待线程池队列空位时被中断", e);
+                } finally {
+                    blockWait.record(System.nanoTime() - startNanos);
+                }
+                // 等待期间线程池关闭，已入队的任务不会再执行
+                if (queued && executor.isShutdown() && executor.remove(task)) {
+                    queued = false;
+                }
+                if (queued) {
+                    return;
+                }
+                rejected.increment();
+                throw new RejectedExecutionException("线程池已满，等待" + blockTimeoutMillis + "毫秒后仍无空位");
+            default:
+                rejected.increment();
+                throw new RejectedExecutionException("线程池已满");
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "核心线程数")
+    public int getCorePoolSize() {
+        return super.getCorePoolSize();
+    }
+
+    @Override
+    @ManagedAttribute(description = "核心线程数，不能大于最大线程数")
+    public void setCorePoolSize(int corePoolSize) {
+        super.setCorePoolSize(corePoolSize);
+    }
+
+    @Override
+    @ManagedAttribute(description = "最大线程数")
+    public int getMaxPoolSize() {
+        return super.getMaxPoolSize();
+    }
+
+    @Override
+    @ManagedAttribute(description = "最大线程数，不能小于核心线程数")
+    public void setMaxPoolSize(int maxPoolSize) {
+        super.setMaxPoolSize(maxPoolSize);
+    }
+
+    @ManagedAttribute(description = "队列容量")
+    public int getQueueCapacity() {
+        return queue != null ? queue.getCapacity() : queueCapacity;
+    }
+
+    /**
+     * 初始化后调整队列容量，调小时已排队的任务不受影响
+     */
+    @Override
+    @ManagedAttribute(description = "队列容量，调小时已排队的任务不受影响")
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        super.setQueueCapacity(queueCapacity);
+        if (queue != null) {
+            queue.setCapacity(queueCapacity);
+        }
+    }
+
+    /**
+     * 同时调整核心线程数、最大线程数与队列容量，按先后顺序设置避免核心线程数暂时大于最大线程数
+     */
+    @ManagedOperation(description = "调整核心线程数、最大线程数与队列容量")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "corePoolSize", description = "核心线程数"),
+            @ManagedOperationParameter(name = "maxPoolSize", description = "最大线程数"),
+            @ManagedOperationParameter(name = "queueCapacity", description = "队列容量")})
+    public synchronized void resize(int corePoolSize, int maxPoolSize, int queueCapacity) {
+        if (corePoolSize < 0 || maxPoolSize <= 0 || corePoolSize > maxPoolSize) {
+            throw new IllegalArgumentException("illegal pool size: core=" + corePoolSize + ", max=" + maxPoolSize);
+        }
+        if (corePoolSize > getMaxPoolSize()) {
+            setMaxPoolSize(maxPoolSize);
+            setCorePoolSize(corePoolSize);
+        } else {
+            setCorePoolSize(corePoolSize);
+            setMaxPoolSize(maxPoolSize);
+        }
+        setQueueCapacity(queueCapacity);
+    }
+
+    public RejectPolicy getRejectPolicy() {
+        return rejectPolicy;
+    }
+
+    public void setRejectPolicy(RejectPolicy rejectPolicy) {
+        this.rejectPolicy = rejectPolicy;
+    }
+
+    @ManagedAttribute(description = "拒绝策略 ABORT/CALLER_RUNS/BLOCK")
+    public String getRejectPolicyName() {
+        return rejectPolicy.name();
+    }
+
+    @ManagedAttribute(description = "拒绝策略 ABORT/CALLER_RUNS/BLOCK")
+    public void setRejectPolicyName(String rejectPolicy) {
+        setRejectPolicy(RejectPolicy.valueOf(rejectPolicy.trim().toUpperCase()));
+    }
+
+    @ManagedAttribute(description = "BLOCK策略等待队列空位的毫秒数")
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+
+    @ManagedAttribute(description = "BLOCK策略等待队列空位的毫秒数")
+    public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    @Override
+    @ManagedAttribute(description = "执行中的任务数")
+    public int getActiveCount() {
+        return super.getActiveCount();
+    }
+
+    @Override
+    @ManagedAttribute(description = "当前线程数")
+    public int getPoolSize() {
+        return super.getPoolSize();
+    }
+
+    @ManagedAttribute(description = "历史最大线程数")
+    public int getLargestPoolSize() {
+        return getThreadPoolExecutor().getLargestPoolSize();
+    }
+
+    @ManagedAttribute(description = "排队中的任务数")
+    public int getQueueSize() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    @ManagedAttribute(description = "完成的任务数")
+    public long getCompletedTaskCount() {
+        return getThreadPoolExecutor().getCompletedTaskCount();
+    }
+
+    @ManagedAttribute(description = "拒绝的任务数")
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @ManagedAttribute(description = "线程池已满时由提交线程执行的任务数")
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+
+    @ManagedAttribute(description = "线程池已满时阻塞等待队列空位的次数")
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    /**
+     * 任务从提交到开始执行的耗时
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * 任务的执行耗时
+     */
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+    /**
+     * BLOCK策略下提交线程等待队列空位的耗时
+     */
+    public LatencyHistogram getBlockWait() {
+        return blockWait;
+    }
+
+    @ManagedAttribute(description = "排队耗时p99（毫秒）")
+    public double getQueueWaitP99Millis() {
+        return LatencyHistogram.millis(queueWait.percentile(0.99));
+    }
+
+    @ManagedAttribute(description = "执行耗时p50（毫秒）")
+    public double getExecutionP50Millis() {
+        return LatencyHistogram.millis(execution.percentile(0.5));
+    }
+
+    @ManagedAttribute(description = "执行耗时p99（毫秒）")
+    public double getExecutionP99Millis() {
+        return LatencyHistogram.millis(execution.percentile(0.99));
+    }
+
+    @ManagedAttribute(description = "执行耗时最大值（毫秒）")
+    public double getExecutionMaxMillis() {
+        return LatencyHistogram.millis(execution.getMax());
+    }
+
+    @ManagedOperation(description = "线程池状态与耗时分布")
+    public String report() {
+        return toString();
+    }
+
+    @ManagedOperation(description = "清空统计")
+    public void reset() {
+        rejected.reset();
+        callerRuns.reset();
+        blocked.reset();
+        queueWait.reset();
+        execution.reset();
+        blockWait.reset();
+    }
+
+    @Override
+    public String toString() {
+        if (queue == null) {
+            return "DynamicThreadPoolTaskExecutor{uninitialized}";
+        }
+        return "DynamicThreadPoolTaskExecutor{core=" + getCorePoolSize() + ", max=" + getMaxPoolSize() + ", pool=" + getPoolSize()
+                + ", active=" + getActiveCount() + ", queued=" + getQueueSize() + "/" + getQueueCapacity()
+                + ", completed=" + getCompletedTaskCount() + ", rejectPolicy=" + rejectPolicy + ", rejected=" + getRejectedCount()
+                + ", callerRuns=" + getCallerRunsCount() + ", blocked=" + getBlockedCount()
+                + ", queueWait: " + queueWait + ", execution: " + execution + ", blockWait: " + blockWait + "}";
+    }
+}
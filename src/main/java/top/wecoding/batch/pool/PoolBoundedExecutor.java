@@ -0,0 +1,398 @@
+package top.wecoding.batch.pool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import top.wecoding.metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按连接池实时可借出连接数放行的数据库任务线程池
+ * 提交任务时查询连接池：可借出的连接数（preferIdle时为空闲连接数）扣除已放行未开始的任务与预留连接数后仍有余量，
+ * 且并发任务数未达上限时立即执行，否则进入有界队列，队列已满时拒绝；任务结束时按同样的条件放行排队的任务。
+ * 没有任务在执行时总会放行一个，连接被其他业务长期占用时也不会饿死；
+ * 任务开始执行到借出连接之间连接池还看不到这次借出，这段时间内可能多放行几个任务，并发数仍不超过上限
+ *
+ * @author ffd
+ */
+@Slf4j
+@ManagedResource(objectName = "top.wecoding:type=DbExecutor", description = "按连接池放行的数据库任务线程池")
+public class PoolBoundedExecutor extends AbstractExecutorService {
+
+    private final DataSource dataSource;
+
+    private volatile int maxConcurrency;
+
+    private final int reserve;
+
+    private volatile int queueCapacity;
+
+    private final boolean preferIdle;
+
+    private final ThreadPoolExecutor workers;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition drained = lock.newCondition();
+
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+
+    /**
+     * 已放行（含已放行未开始）的任务数
+     */
+    private int running;
+
+    /**
+     * 已放行未开始的任务数，这些任务还没有借出连接
+     */
+    private int starting;
+
+    private boolean shutdown;
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder queued = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * @param dataSource     数据源，按其连接池放行任务
+     * @param maxConcurrency 最大并发任务数，不大于0时为连接池最大连接数减去预留连接数
+     * @param reserve        为其他业务预留的连接数
+     * @param queueCapacity  排队任务数上限
+     * @param preferIdle     只按空闲连接放行
+     */
+    public PoolBoundedExecutor(DataSource dataSource, int maxConcurrency, int reserve, int queueCapacity, boolean preferIdle) {
+        int maxActive = ConnectionPools.maxActive(dataSource);
+        this.dataSource = dataSource;
+        this.reserve = Math.max(0, reserve);
+        this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency
+                : Math.max(1, (maxActive > 0 ? maxActive : Runtime.getRuntime().availableProcessors()) - this.reserve);
+        this.queueCapacity = queueCapacity;
+        this.preferIdle = preferIdle;
+        this.workers = new ThreadPoolExecutor(this.maxConcurrency, this.maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("DbWork-"));
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        Task task = new Task(command);
+        lock.lock();
+        try {
+            if (shutdown) {
+                rejected.increment();
+                throw new RejectedExecutionException("数据库线程池已关闭");
+            }
+            submitted.increment();
+            if (queue.isEmpty() && admissible()) {
+                dispatch(task);
+            } else if (queue.size() < queueCapacity) {
+                queue.addLast(task);
+                queued.increment();
+            } else {
+                rejected.increment();
+                throw new RejectedExecutionException("数据库线程池队列已满");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 放行条件：没有任务在执行，或并发数未达上限且连接池扣除已放行未开始的任务与预留连接后仍有余量
+     */
+    private boolean admissible() {
+        if (running == 0) {
+            return true;
+        }
+        if (running >= maxConcurrency) {
+            return false;
+        }
+        int available = preferIdle ? ConnectionPools.idle(dataSource) : ConnectionPools.available(dataSource);
+        return available < 0 || available - starting - reserve > 0;
+    }
+
+    private void dispatch(Task task) {
+        running++;
+        starting++;
+        task.dispatchNanos = System.nanoTime();
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            running--;
+            starting--;
+            throw e;
+        }
+    }
+
+    private void started() {
+        lock.lock();
+        try {
+            starting--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 任务结束，放行排队的任务
+     */
+    private void finished() {
+        completed.increment();
+        lock.lock();
+        try {
+            running--;
+            while (!queue.isEmpty() && admissible()) {
+                dispatch(queue.pollFirst());
+            }
+            if (queue.isEmpty()) {
+                drained.signalAll();
+                if (shutdown) {
+                    workers.shutdown();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "执行中的任务数")
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "排队中的任务数")
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "最大并发任务数")
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 调整最大并发任务数，调大时立即按连接池放行排队的任务，调小时执行中的任务不受影响
+     */
+    @ManagedAttribute(description = "最大并发任务数，调小时执行中的任务不受影响")
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        lock.lock();
+        try {
+            if (maxConcurrency > workers.getMaximumPoolSize()) {
+                workers.setMaximumPoolSize(maxConcurrency);
+                workers.setCorePoolSize(maxConcurrency);
+            } else {
+                workers.setCorePoolSize(maxConcurrency);
+                workers.setMaximumPoolSize(maxConcurrency);
+            }
+            this.maxConcurrency = maxConcurrency;
+            while (!shutdown && !queue.isEmpty() && admissible()) {
+                dispatch(queue.pollFirst());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "排队任务数上限")
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 调整排队任务数上限，调小时已排队的任务不受影响
+     */
+    @ManagedAttribute(description = "排队任务数上限，调小时已排队的任务不受影响")
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @ManagedAttribute(description = "连接池当前可借出的连接数")
+    public int getPoolAvailable() {
+        return ConnectionPools.available(dataSource);
+    }
+
+    @ManagedAttribute(description = "连接池当前空闲的连接数")
+    public int getPoolIdle() {
+        return ConnectionPools.idle(dataSource);
+    }
+
+    @ManagedAttribute(description = "提交的任务数")
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    @ManagedAttribute(description = "进入过队列的任务数")
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    @ManagedAttribute(description = "拒绝的任务数")
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @ManagedAttribute(description = "完成的任务数")
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * 任务从提交到放行的排队耗时
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    @ManagedAttribute(description = "排队耗时p99（毫秒）")
+    public double getQueueWaitP99Millis() {
+        return LatencyHistogram.millis(queueWait.percentile(0.99));
+    }
+
+    @ManagedAttribute(description = "排队耗时最大值（毫秒）")
+    public double getQueueWaitMaxMillis() {
+        return LatencyHistogram.millis(queueWait.getMax());
+    }
+
+    @ManagedOperation(description = "清空统计")
+    public void reset() {
+        submitted.reset();
+        queued.reset();
+        rejected.reset();
+        completed.reset();
+        queueWait.reset();
+    }
+
+    /**
+     * 不再接受新任务，已排队的任务仍会执行
+     */
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            if (queue.isEmpty()) {
+                workers.shutdown();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            queue.forEach(task -> tasks.add(task.command));
+            queue.clear();
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdownNow();
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return isShutdown() && workers.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!queue.isEmpty() || !shutdown) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = drained.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return workers.awaitTermination(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "PoolBoundedExecutor{running=" + getRunning() + ", queued=" + getQueueSize() + ", maxConcurrency=" + maxConcurrency
+                + ", poolAvailable=" + getPoolAvailable() + ", submitted=" + getSubmitted() + ", rejected=" + getRejected()
+                + ", queueWait: " + queueWait + "}";
+    }
+
+    /**
+     * 记录提交时刻，开始执行时释放“已放行未开始”的名额，结束时放行排队的任务
+     */
+    private class Task implements Runnable {
+
+        private final Runnable command;
+
+        private final long submitNanos = System.nanoTime();
+
+        private long dispatchNanos;
+
+        Task(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            queueWait.record(dispatchNanos - submitNanos);
+            started();
+            try {
+                command.run();
+            } finally {
+                finished();
+            }
+        }
+    }
+}
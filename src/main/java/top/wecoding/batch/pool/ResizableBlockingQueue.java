@@ -0,0 +1,176 @@
+package top.wecoding.batch.pool;
+
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 容量可在运行时调整的阻塞队列，LinkedBlockingQueue的容量创建后不可修改，这里底层不限容量，入队时按当前容量判断；
+ * 调小容量不会丢弃已入队的元素，只是在出队到新容量以下之前拒绝入队
+ *
+ * @author ffd
+ */
+public class ResizableBlockingQueue<E> extends LinkedBlockingQueue<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile int capacity;
+
+    private final ReentrantLock putLock = new ReentrantLock();
+
+    private final Condition notFull = putLock.newCondition();
+
+    /**
+     * 阻塞在put/offer(timeout)上的线程数，没有等待者时出队不需要加锁通知
+     */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * @param capacity 容量，0时不排队
+     */
+    public ResizableBlockingQueue(int capacity) {
+        super();
+        this.capacity = Math.max(0, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 调整容量，调大时唤醒等待入队的线程
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        signalNotFull(true);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        putLock.lock();
+        try {
+            return size() < capacity && super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        // 先登记为等待者再判断容量，出队的线程看到等待者后加锁通知，不会错过
+        waiters.incrementAndGet();
+        try {
+            putLock.lockInterruptibly();
+            try {
+                while (size() >= capacity) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                return super.offer(e);
+            } finally {
+                putLock.unlock();
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            putLock.lockInterruptibly();
+            try {
+                while (size() >= capacity) {
+                    notFull.await();
+                }
+                super.offer(e);
+            } finally {
+                putLock.unlock();
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = super.take();
+        signalNotFull(false);
+        return e;
+    }
+
+    @Override
+    public E poll() {
+        E e = super.poll();
+        if (e != null) {
+            signalNotFull(false);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = super.poll(timeout, unit);
+        if (e != null) {
+            signalNotFull(false);
+        }
+        return e;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean removed = super.remove(o);
+        if (removed) {
+            signalNotFull(false);
+        }
+        return removed;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int drained = super.drainTo(c, maxElements);
+        if (drained > 0) {
+            signalNotFull(true);
+        }
+        return drained;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        signalNotFull(true);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    private void signalNotFull(boolean all) {
+        if (waiters.get() == 0) {
+            return;
+        }
+        putLock.lock();
+        try {
+            if (all) {
+                notFull.signalAll();
+            } else {
+                notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package top.wecoding.batch.pool;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用信号量限制并发数的线程池，任务先交给delegate（如每任务一个虚拟线程的线程池）启动，在任务线程上获取许可后执行；
+ * 虚拟线程阻塞在信号量上几乎没有开销，等待许可的任务即为排队的任务，可以一次提交成千上万个，
+ * 同时执行的数量不超过许可数（按连接池大小确定），不会在获取连接上形成等待风暴。
+ * 多个线程池共用一个信号量时共同受许可数限制
+ *
+ * @author ffd
+ */
+public class SemaphoreBoundedExecutor extends AbstractExecutorService implements AsyncTaskExecutor {
+
+    private final ExecutorService delegate;
+
+    private final Semaphore semaphore;
+
+    private final int maxWaiting;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * @param delegate   启动任务的线程池
+     * @param semaphore  并发许可，建议公平模式使任务按提交顺序执行
+     * @param maxWaiting 等待许可的任务数上限，已满时拒绝，不大于0时不限制
+     */
+    public SemaphoreBoundedExecutor(ExecutorService delegate, Semaphore semaphore, int maxWaiting) {
+        this.delegate = delegate;
+        this.semaphore = semaphore;
+        this.maxWaiting = maxWaiting > 0 ? maxWaiting : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("等待执行的任务数已达上限");
+        }
+        try {
+            delegate.execute(() -> run(command));
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+    }
+
+    private void run(Runnable command) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            // shutdownNow中断了等待许可的任务，不再执行
+            waiting.decrementAndGet();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        waiting.decrementAndGet();
+        running.incrementAndGet();
+        try {
+            command.run();
+        } finally {
+            running.decrementAndGet();
+            semaphore.release();
+            completed.increment();
+        }
+    }
+
+    /**
+     * 忽略startTimeout，等同于{@link #execute(Runnable)}
+     *
+     * @deprecated 与{@link AsyncTaskExecutor#execute(Runnable, long)}一同废弃，使用{@link #execute(Runnable)}
+     */
+    @Deprecated
+    @Override
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    /**
+     * 执行中的任务数
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * 已启动、等待许可的任务数
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * 剩余许可数，共用信号量时为所有线程池合计的剩余
+     */
+    public int getAvailablePermits() {
+        return semaphore.availablePermits();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "SemaphoreBoundedExecutor{running=" + getRunning() + ", waiting=" + getWaiting() + ", availablePermits="
+                + getAvailablePermits() + ", submitted=" + getSubmitted() + ", rejected=" + getRejected()
+                + ", completed=" + getCompleted() + "}";
+    }
+}
@@ -0,0 +1,97 @@
+package top.wecoding.batch.pool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程（java 21+）的反射入口，项目按java 8编译，不能直接引用Thread.ofVirtual；
+ * 运行在不支持的jdk上（含需要--enable-preview的19/20）时isSupported返回false
+ *
+ * @author ffd
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+
+    private static final Method NAME;
+
+    private static final Method FACTORY;
+
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    private static final boolean SUPPORTED;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        boolean supported = false;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // 预览版jdk未开启预览特性时ofVirtual抛出UnsupportedOperationException
+            ofVirtual.invoke(null);
+            supported = true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 不支持虚拟线程
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        SUPPORTED = supported;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前jdk是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * 创建虚拟线程的线程工厂，线程名为 前缀 + 序号
+     *
+     * @param prefix 线程名前缀
+     * @throws IllegalStateException 当前jdk不支持虚拟线程
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (!SUPPORTED) {
+            throw new IllegalStateException("virtual threads require java 21+, running on java " + System.getProperty("java.version"));
+        }
+        try {
+            return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 1L));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程的线程池（Executors.newThreadPerTaskExecutor），关闭时等待已提交的任务结束
+     *
+     * @param prefix 线程名前缀
+     * @throws IllegalStateException 当前jdk不支持虚拟线程
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory threadFactory = factory(prefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package top.wecoding.batch.size;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 加性增、乘性减（AIMD）批次大小控制器
+ * 批次耗时低于目标时批次大小加上固定步长，超过目标或执行异常时按比例缩小，
+ * 使批次大小随行宽、数据库负载、max_allowed_packet等因素自动收敛
+ *
+ * @author ffd
+ */
+@Slf4j
+public class AimdBatchSizeController implements BatchSizeController {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+    private final int increaseStep;
+    private final double decreaseFactor;
+
+    private final AtomicInteger current;
+
+    /**
+     * @param initialSize     初始批次大小
+     * @param minSize         最小批次大小
+     * @param maxSize         最大批次大小
+     * @param targetLatencyMs 单批次目标耗时（毫秒）
+     * @param increaseStep    每次增加的行数
+     * @param decreaseFactor  缩小比例 (0,1)
+     */
+    public AimdBatchSizeController(int initialSize, int minSize, int maxSize, long targetLatencyMs, int increaseStep, double decreaseFactor) {
+        if (minSize <= 0 || maxSize < minSize || increaseStep <= 0 || targetLatencyMs <= 0) {
+            throw new IllegalArgumentException("illegal aimd batch size settings");
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decrease factor must be in (0,1)");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.increaseStep = increaseStep;
+        this.decreaseFactor = decreaseFactor;
+        this.current = new AtomicInteger(Math.min(maxSize, Math.max(minSize, initialSize)));
+    }
+
+    @Override
+    public int nextBatchSize() {
+        return current.get();
+    }
+
+    @Override
+    public void onSuccess(int size, long elapsedNanos) {
+        if (elapsedNanos > targetNanos) {
+            decrease();
+        } else if (size >= current.get()) {
+            // 尾部不满一个批次的数据不能说明当前大小还有余量
+            int next = current.updateAndGet(c -> Math.min(maxSize, c + increaseStep));
+            log.trace("batch of {} rows took {} ms, grow to {}", size, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), next);
+        }
+    }
+
+    @Override
+    public void onFailure(int size, Throwable e) {
+        decrease();
+    }
+
+    private void decrease() {
+        int next = current.updateAndGet(c -> Math.max(minSize, (int) (c * decreaseFactor)));
+        log.debug("shrink batch size to {}", next);
+    }
+}
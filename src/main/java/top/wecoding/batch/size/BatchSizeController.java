@@ -0,0 +1,33 @@
+package top.wecoding.batch.size;
+
+/**
+ * 批次大小控制器
+ * 写入器每个批次执行前获取批次大小，执行后反馈耗时或异常，由控制器决定下一批次的大小
+ *
+ * @author ffd
+ */
+public interface BatchSizeController {
+
+    /**
+     * 下一批次的大小
+     *
+     * @return 行数
+     */
+    int nextBatchSize();
+
+    /**
+     * 批次执行成功
+     *
+     * @param size         实际执行的行数
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    void onSuccess(int size, long elapsedNanos);
+
+    /**
+     * 批次执行失败
+     *
+     * @param size 实际执行的行数
+     * @param e    异常
+     */
+    void onFailure(int size, Throwable e);
+}
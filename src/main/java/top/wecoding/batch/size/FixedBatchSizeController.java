@@ -0,0 +1,31 @@
+package top.wecoding.batch.size;
+
+/**
+ * 固定批次大小
+ *
+ * @author ffd
+ */
+public class FixedBatchSizeController implements BatchSizeController {
+
+    private final int batchSize;
+
+    public FixedBatchSizeController(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int nextBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void onSuccess(int size, long elapsedNanos) {
+    }
+
+    @Override
+    public void onFailure(int size, Throwable e) {
+    }
+}
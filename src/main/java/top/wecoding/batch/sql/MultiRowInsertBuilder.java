@@ -0,0 +1,183 @@
+package top.wecoding.batch.sql;
+
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+
+import java.util.Iterator;
+
+/**
+ * 多行插入语句构建器 insert into t(...) values (...),(...)
+ * 逐行追加到复用的缓冲区，按方言转义字面量，语句字节数（utf-8）将超出预算或行数达到上限时自动执行并开始下一条语句，
+ * 避免一次拼接整个列表导致的大字符串与max_allowed_packet异常。非线程安全
+ *
+ * @author ffd
+ */
+public class MultiRowInsertBuilder<T> {
+
+    /**
+     * 语句执行回调
+     */
+    @FunctionalInterface
+    public interface StatementExecutor {
+        /**
+         * 执行sql
+         *
+         * @param sql sql语句
+         * @return 影响行数
+         */
+        int execute(String sql);
+    }
+
+    private final DbDialect dialect;
+    private final TableMapping<T> mapping;
+    private final StatementExecutor executor;
+    private final long maxStatementBytes;
+    private final int maxRows;
+
+    private final String prefix;
+    private final String rowPrefix;
+    private final String separator;
+    private final String suffix;
+    private final int prefixBytes;
+    private final int rowPrefixBytes;
+    private final int separatorBytes;
+    private final int suffixBytes;
+
+    private final StringBuilder statement;
+    private final StringBuilder row = new StringBuilder(256);
+
+    private long statementBytes;
+    private int rowCount;
+    private long totalRows;
+    private int statementCount;
+
+    /**
+     * @param dialect           方言
+     * @param mapping           表映射
+     * @param maxStatementBytes 单条语句最大字节数
+     * @param executor          语句执行回调
+     */
+    public MultiRowInsertBuilder(DbDialect dialect, TableMapping<T> mapping, long maxStatementBytes, StatementExecutor executor) {
+        this.dialect = dialect;
+        this.mapping = mapping;
+        this.executor = executor;
+        this.maxStatementBytes = maxStatementBytes;
+        this.maxRows = dialect.maxRowsPerStatement(mapping.getColumnCount());
+        this.prefix = dialect.multiRowInsertPrefix(mapping);
+        this.rowPrefix = dialect.rowPrefix(mapping);
+        this.separator = dialect.rowSeparator();
+        this.suffix = dialect.multiRowInsertSuffix();
+        this.prefixBytes = utf8Length(prefix);
+        this.rowPrefixBytes = utf8Length(rowPrefix);
+        this.separatorBytes = utf8Length(separator);
+        this.suffixBytes = utf8Length(suffix);
+        if (prefixBytes + suffixBytes >= maxStatementBytes) {
+            throw new IllegalArgumentException("max statement bytes is too small: " + maxStatementBytes);
+        }
+        this.statement = new StringBuilder((int) Math.min(maxStatementBytes, 64 * 1024));
+    }
+
+    /**
+     * 追加一行，超出预算时先执行已缓冲的语句
+     *
+     * @param entity 实体
+     */
+    public void add(T entity) {
+        renderRow(entity);
+        int rowBytes = rowPrefixBytes + utf8Length(row);
+        if (rowCount > 0 && (rowCount >= maxRows || statementBytes + separatorBytes + rowBytes + suffixBytes > maxStatementBytes)) {
+            flush();
+        }
+        if (rowCount == 0) {
+            if (prefixBytes + rowBytes + suffixBytes > maxStatementBytes) {
+                throw new IllegalArgumentException("single row of " + rowBytes + " bytes exceeds max statement bytes " + maxStatementBytes);
+            }
+            statement.setLength(0);
+            statement.append(prefix);
+            statementBytes = prefixBytes;
+        } else {
+            statement.append(separator);
+            statementBytes += separatorBytes;
+        }
+        statement.append(rowPrefix).append(row);
+        statementBytes += rowBytes;
+        rowCount++;
+    }
+
+    /**
+     * 依次追加，适用于游标等流式数据源
+     *
+     * @param iterator 数据迭代器
+     */
+    public void addAll(Iterator<? extends T> iterator) {
+        while (iterator.hasNext()) {
+            add(iterator.next());
+        }
+    }
+
+    /**
+     * 执行已缓冲的语句
+     *
+     * @return 影响行数
+     */
+    public int flush() {
+        if (rowCount == 0) {
+            return 0;
+        }
+        statement.append(suffix);
+        int rows = executor.execute(statement.toString());
+        totalRows += rowCount;
+        statementCount++;
+        rowCount = 0;
+        statementBytes = 0;
+        statement.setLength(0);
+        return rows;
+    }
+
+    /**
+     * 已执行的行数
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * 已执行的语句数
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    private void renderRow(T entity) {
+        row.setLength(0);
+        row.append('(');
+        for (int i = 0; i < mapping.getColumnCount(); i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            dialect.appendLiteral(row, mapping.getValue(entity, i));
+        }
+        row.append(')');
+    }
+
+    /**
+     * 计算utf-8编码后的字节数，不产生额外的字节数组
+     */
+    static int utf8Length(CharSequence sequence) {
+        int length = 0;
+        for (int i = 0; i < sequence.length(); i++) {
+            char c = sequence.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < sequence.length() && Character.isLowSurrogate(sequence.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,176 @@
+package top.wecoding.batch.staging;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.BatchWriter;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.size.FixedBatchSizeController;
+import top.wecoding.batch.writer.FixedArityBatchWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 暂存表并行导入
+ * 每次导入新建一张与目标表列一致、没有索引约束的暂存表（postgresql unlogged表、oracle nologging表、mysql InnoDB/MEMORY表），
+ * 数据分片后由多个线程各自通过连接池的连接自动提交写入暂存表，最后在一个事务中以一条 insert ... select 或 upsert/merge 发布到目标表，
+ * 长时间持锁的事务只剩最后的发布语句；暂存表的建表与删除在独立连接上执行，不会隐式提交调用方的事务
+ *
+ * @author ffd
+ */
+@Slf4j
+public class StagingLoader<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 挂起调用方事务，ddl在独立连接上执行
+     */
+    private final TransactionTemplate ddlTransactionTemplate;
+
+    private final DbDialect dialect;
+
+    private final TableMapping<T> mapping;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    private final List<Integer> arities;
+
+    private final String engine;
+
+    private final List<String> keyColumns;
+
+    private final List<String> updateColumns;
+
+    /**
+     * @param parallelism   并行写入暂存表的线程数，不宜超过连接池的最大连接数
+     * @param batchSize     每批次写入暂存表的行数
+     * @param arities       写入暂存表的多行插入固定行数
+     * @param engine        mysql暂存表存储引擎
+     * @param keyColumns    merge时判断冲突的键列，为空时使用主键列
+     * @param updateColumns merge时冲突更新的列，为空时更新键列以外的全部列
+     */
+    public StagingLoader(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, DbDialect dialect,
+                         TableMapping<T> mapping, Executor executor, int parallelism, int batchSize, List<Integer> arities,
+                         String engine, List<String> keyColumns, List<String> updateColumns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ddlTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.ddlTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.dialect = dialect;
+        this.mapping = mapping;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = Math.max(1, batchSize);
+        this.arities = arities;
+        this.engine = engine;
+        this.keyColumns = keyColumns == null || keyColumns.isEmpty() ? Collections.singletonList(mapping.getIdColumn()) : keyColumns;
+        if (updateColumns == null || updateColumns.isEmpty()) {
+            List<String> columns = new ArrayList<>(mapping.getColumns());
+            columns.removeAll(this.keyColumns);
+            this.updateColumns = columns;
+        } else {
+            this.updateColumns = updateColumns;
+        }
+    }
+
+    /**
+     * 并行写入暂存表后 insert ... select 发布到目标表
+     *
+     * @param entityList 实体对象集合
+     * @return 发布的行数
+     */
+    public long load(List<T> entityList) {
+        return load(entityList, false);
+    }
+
+    /**
+     * 并行写入暂存表后按键列 upsert/merge 发布到目标表
+     *
+     * @param entityList 实体对象集合
+     * @return 发布语句影响的行数
+     */
+    public long merge(List<T> entityList) {
+        return load(entityList, true);
+    }
+
+    private long load(List<T> entityList, boolean upsert) {
+        if (entityList == null || entityList.isEmpty()) {
+            return 0;
+        }
+        String stagingTable = stagingTableName();
+        ddlTransactionTemplate.execute(status -> {
+            jdbcTemplate.execute(dialect.stagingTableSql(mapping, stagingTable, engine));
+            return null;
+        });
+        try {
+            long starTime = System.nanoTime();
+            fill(entityList, stagingTable);
+            long publishTime = System.nanoTime();
+            String sql = upsert ? dialect.upsertSelectSql(mapping, stagingTable, keyColumns, updateColumns)
+                    : dialect.insertSelectSql(mapping, stagingTable);
+            Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(sql));
+            if (log.isDebugEnabled()) {
+                log.debug("stage {} rows into {} cost {} ms, publish cost {} ms", entityList.size(), stagingTable,
+                        (publishTime - starTime) / 1_000_000, (System.nanoTime() - publishTime) / 1_000_000);
+            }
+            return rows == null ? 0 : rows;
+        } finally {
+            try {
+                ddlTransactionTemplate.execute(status -> {
+                    jdbcTemplate.execute("drop table " + stagingTable);
+                    return null;
+                });
+            } catch (DataAccessException e) {
+                log.warn("drop staging table {} failed", stagingTable, e);
+            }
+        }
+    }
+
+    /**
+     * 分片并行写入暂存表，每个分片在执行线程上自动提交
+     */
+    private void fill(List<T> entityList, String stagingTable) {
+        BatchWriter<T> writer = new FixedArityBatchWriter<>(jdbcTemplate, dialect, mapping.withTableName(stagingTable),
+                new FixedBatchSizeController(batchSize), arities);
+        int partitions = Math.min(parallelism, (entityList.size() + batchSize - 1) / batchSize);
+        int partitionSize = (entityList.size() + partitions - 1) / partitions;
+        List<CompletableFuture<?>> futures = new ArrayList<>(partitions);
+        for (int from = 0; from < entityList.size(); from += partitionSize) {
+            List<T> partition = entityList.subList(from, Math.min(from + partitionSize, entityList.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> writer.write(partition), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * stg_表名_随机数，不超过oracle 30个字符的标识符长度
+     */
+    private String stagingTableName() {
+        return "stg_" + StrUtil.subPre(mapping.getTableName(), 17) + "_"
+                + Integer.toHexString(ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE);
+    }
+}
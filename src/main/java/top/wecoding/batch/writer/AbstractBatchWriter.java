@@ -0,0 +1,166 @@
+package top.wecoding.batch.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import top.wecoding.batch.BatchWriteResult;
+import top.wecoding.batch.BatchWriter;
+import top.wecoding.batch.BatchWriterStats;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+import top.wecoding.jfr.ChunkTrace;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 批量写入模板：负责分片、计时与统计，子类只需实现单个批次的写入
+ * 每个批次的大小由{@link BatchSizeController}决定，录制批次JFR事件时每个批次记录为一个{@link ChunkTrace}
+ *
+ * @author ffd
+ */
+@Slf4j
+public abstract class AbstractBatchWriter<T> implements BatchWriter<T> {
+
+    protected final TableMapping<T> mapping;
+
+    protected final BatchSizeController batchSizeController;
+
+    private final BatchWriterStats stats = new BatchWriterStats();
+
+    private String strategy;
+
+    protected AbstractBatchWriter(TableMapping<T> mapping, BatchSizeController batchSizeController) {
+        this.mapping = mapping;
+        this.batchSizeController = batchSizeController;
+    }
+
+    @Override
+    public final BatchWriteResult write(List<T> entityList) {
+        if (entityList == null || entityList.isEmpty()) {
+            return new BatchWriteResult(getType(), 0, 0);
+        }
+        long starTime = System.nanoTime();
+        long rows = doWrite(entityList);
+        return record(rows, System.nanoTime() - starTime);
+    }
+
+    /**
+     * 按批次写入迭代器中的数据，每次只从迭代器取出一个批次，适合游标、文件等无法一次放入内存的数据源；
+     * 与{@link #write(List)}相同地计时、统计、记录批次事件并向控制器反馈，但不经过{@link #doWrite(List)}
+     *
+     * @param rows 数据迭代器
+     */
+    protected final BatchWriteResult write(Iterator<? extends T> rows) {
+        long starTime = System.nanoTime();
+        long count = 0;
+        List<T> chunk = new ArrayList<>();
+        while (rows.hasNext()) {
+            int chunkSize = Math.min(batchSizeController.nextBatchSize(), maxBatchSize());
+            chunk.clear();
+            while (chunk.size() < chunkSize && rows.hasNext()) {
+                chunk.add(rows.next());
+            }
+            count += writeTracedChunk(chunk);
+        }
+        return record(count, System.nanoTime() - starTime);
+    }
+
+    private BatchWriteResult record(long rows, long elapsedNanos) {
+        BatchWriteResult result = new BatchWriteResult(getType(), rows, elapsedNanos);
+        stats.record(result.getRows(), result.getElapsedNanos());
+        if (log.isDebugEnabled()) {
+            log.debug("{} write {} rows into {}, cost {} ms, {} rows/s", getType(), rows,
+                    mapping.getTableName(), result.getElapsedMillis(), (long) result.getRowsPerSecond());
+        }
+        return result;
+    }
+
+    @Override
+    public BatchWriterStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 分片依次写入并向控制器反馈每个批次的耗时，子类需要包裹事务等操作时可覆盖
+     *
+     * @param entityList 实体对象集合
+     * @return 写入行数
+     */
+    protected long doWrite(List<T> entityList) {
+        long rows = 0;
+        int from = 0;
+        while (from < entityList.size()) {
+            int chunkSize = Math.min(batchSizeController.nextBatchSize(), maxBatchSize());
+            List<T> chunk = entityList.subList(from, Math.min(from + chunkSize, entityList.size()));
+            rows += writeTracedChunk(chunk);
+            from += chunk.size();
+        }
+        return rows;
+    }
+
+    /**
+     * 写入单个批次，记录批次事件并向控制器反馈耗时
+     */
+    private long writeTracedChunk(List<T> chunk) {
+        long rows;
+        long starTime = System.nanoTime();
+        try (ChunkTrace trace = ChunkTrace.begin(strategy(), mapping.getTableName())) {
+            trace.addRows(chunk.size());
+            rows = writeChunk(chunk);
+        } catch (RuntimeException e) {
+            batchSizeController.onFailure(chunk.size(), e);
+            throw e;
+        }
+        batchSizeController.onSuccess(chunk.size(), System.nanoTime() - starTime);
+        return rows;
+    }
+
+    /**
+     * 当前写入方式允许的最大批次大小（如绑定变量、集合类型的上限），控制器给出的大小不会超过该值
+     */
+    protected int maxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 写入单个批次
+     *
+     * @param chunk 批次数据
+     * @return 写入行数
+     */
+    protected abstract int writeChunk(List<T> chunk);
+
+    /**
+     * 将实体各列的值绑定到预处理语句
+     *
+     * @param ps     预处理语句
+     * @param entity 实体
+     * @param offset 参数下标偏移（多行语句时为已绑定的参数个数）
+     */
+    protected void setValues(PreparedStatement ps, T entity, int offset) throws SQLException {
+        ChunkTrace trace = ChunkTrace.current();
+        long starTime = trace.isActive() ? System.nanoTime() : 0;
+        for (int i = 0; i < mapping.getColumnCount(); i++) {
+            StatementCreatorUtils.setParameterValue(ps, offset + i + 1, SqlTypeValue.TYPE_UNKNOWN, mapping.getValue(entity, i));
+        }
+        if (trace.isActive()) {
+            trace.addBind(System.nanoTime() - starTime);
+        }
+    }
+
+    /**
+     * 批次事件中的写入方式名称
+     */
+    private String strategy() {
+        String name = strategy;
+        if (name == null) {
+            name = getType().name().toLowerCase();
+            strategy = name;
+        }
+        return name;
+    }
+}
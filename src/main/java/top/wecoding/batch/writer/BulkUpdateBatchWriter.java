@@ -0,0 +1,158 @@
+package top.wecoding.batch.writer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 派生表关联批量更新：批次数据作为派生表与目标表按键列关联，一条语句更新多行
+ * mysql update t, (select ... union all ...) s set ...，postgresql update ... from (values ...)，oracle merge ... when matched
+ * 与updateById一样，null视为未修改：整批均为null的列不出现在set子句中，部分为null的列保留原值；
+ * 批次按2的幂拆分为若干条语句，sql缓存只按2的幂行数与set列组合生成，不随自适应批次大小与尾批次无限增长
+ *
+ * @author ffd
+ */
+public class BulkUpdateBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DbDialect dialect;
+
+    private final int[] keyIndexes;
+
+    private final int[] updateIndexes;
+
+    private final List<String> keyColumns;
+
+    private final boolean ignoreNulls;
+
+    private final int maxRows;
+
+    /**
+     * 2的幂行数与set列组合 -> sql
+     */
+    private final Map<String, String> sqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyColumns    关联的键列，为空时使用主键列
+     * @param updateColumns 允许更新的列，为空时为键列以外的全部列
+     * @param ignoreNulls   null值是否视为未修改，否则null也会更新到表中
+     */
+    public BulkUpdateBatchWriter(JdbcTemplate jdbcTemplate, DbDialect dialect, TableMapping<T> mapping,
+                                 BatchSizeController batchSizeController, List<String> keyColumns,
+                                 List<String> updateColumns, boolean ignoreNulls) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.ignoreNulls = ignoreNulls;
+        this.keyColumns = keyColumns == null || keyColumns.isEmpty()
+                ? Collections.singletonList(mapping.getIdColumn()) : new ArrayList<>(keyColumns);
+        this.keyIndexes = indexesOf(this.keyColumns);
+        List<String> columns = updateColumns;
+        if (columns == null || columns.isEmpty()) {
+            columns = new ArrayList<>(mapping.getColumns());
+            columns.removeAll(this.keyColumns);
+        }
+        for (String column : columns) {
+            if (this.keyColumns.contains(column)) {
+                throw new IllegalArgumentException("key column " + column + " can not be updated");
+            }
+        }
+        this.updateIndexes = indexesOf(columns);
+        this.maxRows = dialect.maxPreparedRows(this.keyColumns.size() + columns.size());
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.BULK_UPDATE;
+    }
+
+    @Override
+    protected int maxBatchSize() {
+        return maxRows;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        int rows = 0;
+        for (int offset = 0; offset < chunk.size(); ) {
+            int arity = Integer.highestOneBit(chunk.size() - offset);
+            rows += update(chunk.subList(offset, offset + arity));
+            offset += arity;
+        }
+        return rows;
+    }
+
+    /**
+     * 一条语句更新2的幂行
+     */
+    private int update(List<T> chunk) {
+        // 统计每个更新列在本批次中的null个数，决定set子句
+        List<Integer> setIndexes = new ArrayList<>(updateIndexes.length);
+        Set<String> keepNullColumns = new HashSet<>();
+        StringBuilder key = new StringBuilder().append(chunk.size()).append(':');
+        for (int index : updateIndexes) {
+            int nulls = 0;
+            if (ignoreNulls) {
+                for (T entity : chunk) {
+                    if (mapping.getValue(entity, index) == null) {
+                        nulls++;
+                    }
+                }
+            }
+            if (nulls == chunk.size()) {
+                key.append('0');
+                continue;
+            }
+            setIndexes.add(index);
+            if (nulls > 0) {
+                keepNullColumns.add(mapping.getColumns().get(index));
+                key.append('2');
+            } else {
+                key.append('1');
+            }
+        }
+        if (setIndexes.isEmpty()) {
+            return 0;
+        }
+        String sql = sqlCache.computeIfAbsent(key.toString(), k -> {
+            List<String> setColumns = new ArrayList<>(setIndexes.size());
+            setIndexes.forEach(index -> setColumns.add(mapping.getColumns().get(index)));
+            return dialect.bulkUpdateSql(mapping.getTableName(), keyColumns, setColumns, keepNullColumns, chunk.size());
+        });
+        return jdbcTemplate.update(sql, ps -> {
+            int parameterIndex = 1;
+            for (T entity : chunk) {
+                for (int index : keyIndexes) {
+                    StatementCreatorUtils.setParameterValue(ps, parameterIndex++, SqlTypeValue.TYPE_UNKNOWN, mapping.getValue(entity, index));
+                }
+                for (int index : setIndexes) {
+                    StatementCreatorUtils.setParameterValue(ps, parameterIndex++, SqlTypeValue.TYPE_UNKNOWN, mapping.getValue(entity, index));
+                }
+            }
+        });
+    }
+
+    private int[] indexesOf(List<String> columns) {
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            indexes[i] = mapping.getColumns().indexOf(columns.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("unknown column " + columns.get(i) + " of " + mapping.getTableName());
+            }
+        }
+        return indexes;
+    }
+}
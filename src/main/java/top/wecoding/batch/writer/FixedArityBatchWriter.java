@@ -0,0 +1,100 @@
+package top.wecoding.batch.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 固定行数的预处理多行插入 insert into t values (?,?,?),...,(?,?,?)
+ * 只生成少量固定行数（如512/64/8/1）的sql，任意批次按从大到小拆分到这些形状上，
+ * 使sql文本保持不变，命中druid的poolPreparedStatements缓存及服务端预编译缓存
+ *
+ * @author ffd
+ */
+@Slf4j
+public class FixedArityBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 从大到小的行数
+     */
+    private final int[] arities;
+
+    /**
+     * 与arities对应的sql
+     */
+    private final String[] sqls;
+
+    public FixedArityBatchWriter(JdbcTemplate jdbcTemplate, DbDialect dialect, TableMapping<T> mapping,
+                                 BatchSizeController batchSizeController, List<Integer> arities) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        int maxRows = dialect.maxPreparedRows(mapping.getColumnCount());
+        TreeSet<Integer> sorted = new TreeSet<>(Collections.reverseOrder());
+        for (Integer arity : arities) {
+            if (arity == null || arity <= 0) {
+                continue;
+            }
+            if (arity > maxRows) {
+                log.warn("arity {} exceeds bind parameter limit of table {}, use {} instead", arity, mapping.getTableName(), maxRows);
+            }
+            sorted.add(Math.min(arity, maxRows));
+        }
+        // 保证任意行数都能拆分完
+        sorted.add(1);
+        List<Integer> list = new ArrayList<>(sorted);
+        this.arities = new int[list.size()];
+        this.sqls = new String[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            this.arities[i] = list.get(i);
+            this.sqls[i] = dialect.multiRowInsertSql(mapping, this.arities[i]);
+        }
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.FIXED_ARITY;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        Integer rows = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            int offset = 0;
+            for (int i = 0; i < arities.length && offset < chunk.size(); i++) {
+                int arity = arities[i];
+                int statements = (chunk.size() - offset) / arity;
+                if (statements == 0) {
+                    continue;
+                }
+                try (PreparedStatement ps = connection.prepareStatement(sqls[i])) {
+                    for (int s = 0; s < statements; s++) {
+                        for (int r = 0; r < arity; r++) {
+                            setValues(ps, chunk.get(offset++), r * mapping.getColumnCount());
+                        }
+                        if (statements == 1) {
+                            ps.executeUpdate();
+                        } else {
+                            ps.addBatch();
+                        }
+                    }
+                    if (statements > 1) {
+                        ps.executeBatch();
+                    }
+                }
+            }
+            return offset;
+        });
+        return rows == null ? 0 : rows;
+    }
+}
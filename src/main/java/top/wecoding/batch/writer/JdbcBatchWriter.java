@@ -0,0 +1,58 @@
+package top.wecoding.batch.writer;
+
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * jdbc预处理语句批处理写入
+ * mysql需在连接url中添加rewriteBatchedStatements=true，
+ * 连接通过DataSourceUtils获取，存在spring事务时加入当前事务
+ *
+ * @author ffd
+ */
+public class JdbcBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final DataSource dataSource;
+
+    private final String insertSql;
+
+    public JdbcBatchWriter(DataSource dataSource, TableMapping<T> mapping, BatchSizeController batchSizeController) {
+        super(mapping, batchSizeController);
+        this.dataSource = dataSource;
+        this.insertSql = mapping.getInsertSql();
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.JDBC;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = connection.prepareStatement(insertSql);
+            for (T entity : chunk) {
+                setValues(preparedStatement, entity, 0);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            return chunk.size();
+        } catch (SQLException e) {
+            throw new IllegalStateException("batch insert into " + mapping.getTableName() + " failed", e);
+        } finally {
+            JdbcUtils.closeStatement(preparedStatement);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package top.wecoding.batch.writer;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * jdbcTemplate.batchUpdate批处理写入
+ *
+ * @author ffd
+ */
+public class JdbcTemplateBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String insertSql;
+
+    public JdbcTemplateBatchWriter(JdbcTemplate jdbcTemplate, TableMapping<T> mapping, BatchSizeController batchSizeController) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = mapping.getInsertSql();
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.JDBC_TEMPLATE;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        jdbcTemplate.batchUpdate(insertSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                JdbcTemplateBatchWriter.this.setValues(ps, chunk.get(i), 0);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+        return chunk.size();
+    }
+}
@@ -0,0 +1,51 @@
+package top.wecoding.batch.writer;
+
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * jpa persist写入，每批次flush/clear一次，避免一级缓存无限增长
+ * hibernate的jdbc批处理大小会同步为当前批次大小，不再受hibernate.jdbc.batch_size限制
+ *
+ * @author ffd
+ */
+public class JpaBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public JpaBatchWriter(EntityManager entityManager, TransactionTemplate transactionTemplate, TableMapping<T> mapping, BatchSizeController batchSizeController) {
+        super(mapping, batchSizeController);
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.JPA;
+    }
+
+    @Override
+    protected long doWrite(List<T> entityList) {
+        Long rows = transactionTemplate.execute(status -> super.doWrite(entityList));
+        return rows == null ? 0 : rows;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(chunk.size());
+        for (T entity : chunk) {
+            entityManager.persist(entity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return chunk.size();
+    }
+}
@@ -0,0 +1,33 @@
+package top.wecoding.batch.writer;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.util.List;
+
+/**
+ * mongoTemplate批量insert写入，等同于BaseMongoService#saveBatch
+ *
+ * @author ffd
+ */
+public class MongoBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoBatchWriter(MongoTemplate mongoTemplate, TableMapping<T> mapping, BatchSizeController batchSizeController) {
+        super(mapping, batchSizeController);
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.MONGO;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        return mongoTemplate.insert(chunk, mapping.getEntityClass()).size();
+    }
+}
@@ -0,0 +1,58 @@
+package top.wecoding.batch.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.size.BatchSizeController;
+import top.wecoding.batch.sql.MultiRowInsertBuilder;
+
+import java.util.List;
+
+/**
+ * 数据库批处理语句写入 insert into t values (...),(...)
+ * 单条语句的字节预算取配置值与服务端max_allowed_packet（预留余量）中较小者
+ *
+ * @author ffd
+ */
+@Slf4j
+public class MultiValuesBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    /**
+     * 为协议头等预留的字节数
+     */
+    private static final long PACKET_HEADROOM = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DbDialect dialect;
+
+    private final long maxStatementBytes;
+
+    public MultiValuesBatchWriter(JdbcTemplate jdbcTemplate, DbDialect dialect, TableMapping<T> mapping,
+                                  BatchSizeController batchSizeController, long maxStatementBytes) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        long serverMaxBytes = dialect.queryMaxPacketBytes(jdbcTemplate);
+        this.maxStatementBytes = serverMaxBytes > PACKET_HEADROOM
+                ? Math.min(maxStatementBytes, serverMaxBytes - PACKET_HEADROOM) : maxStatementBytes;
+        log.info("{} multi values statement budget {} bytes (server limit {})", mapping.getTableName(), this.maxStatementBytes, serverMaxBytes);
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.MULTI_VALUES;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        MultiRowInsertBuilder<T> builder = new MultiRowInsertBuilder<>(dialect, mapping, maxStatementBytes, jdbcTemplate::update);
+        for (T entity : chunk) {
+            builder.add(entity);
+        }
+        builder.flush();
+        return (int) builder.getTotalRows();
+    }
+}
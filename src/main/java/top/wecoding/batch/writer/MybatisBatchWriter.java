@@ -0,0 +1,48 @@
+package top.wecoding.batch.writer;
+
+import com.baomidou.mybatisplus.core.enums.SqlMethod;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.ClassUtils;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.util.List;
+
+/**
+ * mybatis-plus BATCH执行器写入，等同于IService#saveBatch
+ * 实体需要有对应的BaseMapper
+ *
+ * @author ffd
+ */
+public class MybatisBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private static final Log LOG = LogFactory.getLog(MybatisBatchWriter.class);
+
+    private final String sqlStatement;
+
+    public MybatisBatchWriter(TableMapping<T> mapping, BatchSizeController batchSizeController) {
+        super(mapping, batchSizeController);
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(mapping.getEntityClass());
+        if (tableInfo == null) {
+            throw new IllegalArgumentException("no mybatis-plus mapper found for " + mapping.getEntityClass().getName());
+        }
+        this.sqlStatement = SqlHelper.getSqlStatement(ClassUtils.toClassConfident(tableInfo.getCurrentNamespace()), SqlMethod.INSERT_ONE);
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.MYBATIS;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        SqlHelper.executeBatch(mapping.getEntityClass(), LOG, chunk, chunk.size(),
+                (sqlSession, entity) -> sqlSession.insert(sqlStatement, entity));
+        return chunk.size();
+    }
+}
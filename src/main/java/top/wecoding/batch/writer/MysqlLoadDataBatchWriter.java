@@ -0,0 +1,100 @@
+package top.wecoding.batch.writer;
+
+import cn.hutool.core.util.StrUtil;
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.load.TextRowInputStream;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.sql.SQLWarning;
+import java.util.List;
+
+/**
+ * mysql LOAD DATA LOCAL INFILE写入
+ * 通过Connector/J的setLocalInfileInputStream直接提交内存中编码的文本流，不落临时文件，每个批次一条LOAD DATA语句。
+ * 需要服务端开启local_infile，连接url添加allowLoadLocalInfile=true。
+ * LOCAL导入时服务端无法中止客户端的文件传输，未指定replace/ignore也按ignore处理：主键冲突与类型转换失败的行被丢弃、只产生警告；
+ * 因此未指定时比较导入行数与批次行数，不一致时抛出异常，不会悄悄丢行
+ *
+ * @author ffd
+ */
+public class MysqlLoadDataBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int[] columnIndexes;
+
+    private final String loadSql;
+
+    /**
+     * 未指定主键冲突处理，导入行数必须与批次行数一致
+     */
+    private final boolean strict;
+
+    /**
+     * @param columns   需要导入的列及顺序，为空时导入全部列
+     * @param duplicate 主键冲突处理：replace、ignore，为空时等同ignore，但导入行数少于批次行数时抛出异常
+     */
+    public MysqlLoadDataBatchWriter(JdbcTemplate jdbcTemplate, TableMapping<T> mapping, BatchSizeController batchSizeController,
+                                    List<String> columns, String duplicate) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        List<String> loadColumns = columns == null || columns.isEmpty() ? mapping.getColumns() : columns;
+        this.columnIndexes = new int[loadColumns.size()];
+        for (int i = 0; i < loadColumns.size(); i++) {
+            int index = mapping.getColumns().indexOf(loadColumns.get(i));
+            if (index < 0) {
+                throw new IllegalArgumentException("unknown column " + loadColumns.get(i) + " of " + mapping.getTableName());
+            }
+            this.columnIndexes[i] = index;
+        }
+        this.loadSql = buildLoadSql(mapping.getTableName(), loadColumns, duplicate);
+        this.strict = StrUtil.isBlank(duplicate);
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.LOAD_DATA;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        Integer rows = jdbcTemplate.execute((StatementCallback<Integer>) statement -> {
+            JdbcStatement mysqlStatement = statement.unwrap(JdbcStatement.class);
+            mysqlStatement.setLocalInfileInputStream(new TextRowInputStream<>(chunk.iterator(), mapping, columnIndexes));
+            try {
+                int loaded = statement.executeUpdate(loadSql);
+                if (strict && loaded != chunk.size()) {
+                    SQLWarning warning = statement.getWarnings();
+                    throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(loadSql + (warning == null ? "" : "，" + warning.getMessage()),
+                            chunk.size(), loaded);
+                }
+                return loaded;
+            } finally {
+                mysqlStatement.setLocalInfileInputStream(null);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    private static String buildLoadSql(String tableName, List<String> columns, String duplicate) {
+        StringBuilder sql = new StringBuilder("load data local infile 'stream'");
+        if (StrUtil.isNotBlank(duplicate)) {
+            if (!"replace".equalsIgnoreCase(duplicate) && !"ignore".equalsIgnoreCase(duplicate)) {
+                throw new IllegalArgumentException("duplicate must be replace or ignore");
+            }
+            sql.append(' ').append(duplicate.toLowerCase());
+        }
+        sql.append(" into table ").append(tableName)
+                .append(" character set utf8mb4")
+                .append(" fields terminated by '\\t' escaped by '\\\\'")
+                .append(" lines terminated by '\\n' (")
+                .append(String.join(",", columns))
+                .append(')');
+        return sql.toString();
+    }
+}
@@ -0,0 +1,223 @@
+package top.wecoding.batch.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * oracle整列数组绑定写入
+ * 每列作为一个集合参数（SYS.ODCINUMBERLIST / ODCIVARCHAR2LIST / ODCIDATELIST，无需建类型）绑定到
+ * forall insert匿名块，一次往返写入整个批次；可选APPEND_VALUES直接路径插入。
+ * 直接路径插入提交前同一事务不能再读写该表（ORA-12838），因此开启后每个批次在独立的新事务中提交。
+ * ojdbc为运行期依赖，OracleConnection#createOracleArray通过反射调用。
+ * 集合元素类型的限制：ODCIDATELIST的元素为DATE，只精确到秒；ODCIVARCHAR2LIST的元素为VARCHAR2(4000)，最多4000字节。
+ * 批次中含有带小数秒的时间（写入TIMESTAMP列会被截断）或超过4000字节（按utf8计）的字符串时，
+ * 该批次改为普通的jdbc批量insert，不会截断或报错
+ *
+ * @author ffd
+ */
+@Slf4j
+public class OracleArrayBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    /**
+     * ODCI*LIST均为varray(32767)
+     */
+    private static final int MAX_COLLECTION_SIZE = 32767;
+
+    private static final String NUMBER_LIST = "SYS.ODCINUMBERLIST";
+    private static final String VARCHAR2_LIST = "SYS.ODCIVARCHAR2LIST";
+    private static final String DATE_LIST = "SYS.ODCIDATELIST";
+
+    /**
+     * ODCIVARCHAR2LIST元素的最大字节数
+     */
+    private static final int MAX_VARCHAR2_BYTES = 4000;
+
+    private static volatile Method createOracleArray;
+    private static volatile Class<?> oracleConnectionClass;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 开启直接路径时每个批次独立提交
+     */
+    private final TransactionTemplate chunkTransactionTemplate;
+
+    private final String[] collectionTypes;
+
+    private final String sql;
+
+    public OracleArrayBatchWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, TableMapping<T> mapping,
+                                  BatchSizeController batchSizeController, boolean directPath) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        if (directPath) {
+            this.chunkTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            this.chunkTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        } else {
+            this.chunkTransactionTemplate = null;
+        }
+        this.collectionTypes = new String[mapping.getColumnCount()];
+        StringBuilder declare = new StringBuilder("declare\n");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < collectionTypes.length; i++) {
+            collectionTypes[i] = collectionType(mapping.getFields().get(i).getType());
+            declare.append("  c").append(i).append(' ').append(collectionTypes[i]).append(" := ?;\n");
+            values.append(i > 0 ? "," : "").append('c').append(i).append("(i)");
+        }
+        this.sql = declare
+                + "begin\n"
+                + "  forall i in 1 .. c0.count\n"
+                + "    insert " + (directPath ? "/*+ APPEND_VALUES */ " : "") + "into " + mapping.getTableName()
+                + "(" + mapping.getColumnList() + ") values (" + values + ");\n"
+                + "end;";
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.ORACLE_ARRAY;
+    }
+
+    @Override
+    protected int maxBatchSize() {
+        return MAX_COLLECTION_SIZE;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        if (chunkTransactionTemplate == null) {
+            return forall(chunk);
+        }
+        Integer rows = chunkTransactionTemplate.execute(status -> forall(chunk));
+        return rows == null ? 0 : rows;
+    }
+
+    private int forall(List<T> chunk) {
+        Object[][] columns = new Object[collectionTypes.length][];
+        for (int i = 0; i < collectionTypes.length; i++) {
+            Object[] column = new Object[chunk.size()];
+            for (int r = 0; r < column.length; r++) {
+                column[r] = toOracleValue(mapping.getValue(chunk.get(r), i));
+                if (!fits(collectionTypes[i], column[r])) {
+                    log.debug("{} value of column {} does not fit {}, write chunk by jdbc batch", mapping.getTableName(),
+                            mapping.getColumns().get(i), collectionTypes[i]);
+                    return batchInsert(chunk);
+                }
+            }
+            columns[i] = column;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < collectionTypes.length; i++) {
+                    ps.setArray(i + 1, createArray(connection, collectionTypes[i], columns[i]));
+                }
+                ps.execute();
+            }
+            return null;
+        });
+        return chunk.size();
+    }
+
+    /**
+     * 集合类型放不下的批次逐行绑定批量执行
+     */
+    private int batchInsert(List<T> chunk) {
+        List<Object[]> rows = new ArrayList<>(chunk.size());
+        for (T entity : chunk) {
+            Object[] values = mapping.getValues(entity);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toOracleValue(values[i]);
+            }
+            rows.add(values);
+        }
+        jdbcTemplate.batchUpdate(mapping.getInsertSql(), rows);
+        return chunk.size();
+    }
+
+    /**
+     * 值能否无损放入集合：DATE不含小数秒，VARCHAR2不超过4000字节
+     */
+    private static boolean fits(String collectionType, Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (DATE_LIST.equals(collectionType)) {
+            if (value instanceof Timestamp) {
+                return ((Timestamp) value).getNanos() == 0;
+            }
+            return !(value instanceof Date) || value instanceof java.sql.Date || ((Date) value).getTime() % 1000 == 0;
+        }
+        if (VARCHAR2_LIST.equals(collectionType)) {
+            String text = value.toString();
+            // utf8每个字符最多3字节（代理对4字节对应2个字符），短字符串不需要编码
+            return text.length() * 3 <= MAX_VARCHAR2_BYTES || text.getBytes(StandardCharsets.UTF_8).length <= MAX_VARCHAR2_BYTES;
+        }
+        return true;
+    }
+
+    private static String collectionType(Class<?> type) {
+        if (Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != boolean.class && type != char.class)) {
+            return NUMBER_LIST;
+        }
+        if (Date.class.isAssignableFrom(type) || type == LocalDate.class || type == LocalDateTime.class) {
+            return DATE_LIST;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return NUMBER_LIST;
+        }
+        return VARCHAR2_LIST;
+    }
+
+    private static Object toOracleValue(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        if (value instanceof LocalDate) {
+            return java.sql.Date.valueOf((LocalDate) value);
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+
+    private static Array createArray(Connection connection, String typeName, Object[] elements) throws SQLException {
+        try {
+            if (createOracleArray == null) {
+                Class<?> connectionClass = Class.forName("oracle.jdbc.OracleConnection");
+                oracleConnectionClass = connectionClass;
+                createOracleArray = connectionClass.getMethod("createOracleArray", String.class, Object.class);
+            }
+            return (Array) createOracleArray.invoke(connection.unwrap(oracleConnectionClass), typeName, elements);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("oracle jdbc driver with createOracleArray is required", e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package top.wecoding.batch.writer;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.load.PgBinaryRowInputStream;
+import top.wecoding.batch.load.TextRowInputStream;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * postgresql COPY FROM STDIN写入
+ * 行数据边读边编码进COPY流（text或binary格式），不需要先拼出完整的列表或sql；
+ * upsert模式下先COPY进会话级临时表，再 insert ... select ... on conflict do update 合并到目标表
+ *
+ * @author ffd
+ */
+public class PgCopyBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean binary;
+
+    private final boolean upsert;
+
+    private final String stageTable;
+
+    private final int[] allColumns;
+
+    public PgCopyBatchWriter(JdbcTemplate jdbcTemplate, TableMapping<T> mapping, BatchSizeController batchSizeController,
+                             boolean binary, boolean upsert) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        this.binary = binary;
+        this.upsert = upsert;
+        this.stageTable = mapping.getTableName() + "_copy_stage";
+        this.allColumns = new int[mapping.getColumnCount()];
+        for (int i = 0; i < allColumns.length; i++) {
+            allColumns[i] = i;
+        }
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.COPY;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        return (int) copyChunk(chunk.iterator());
+    }
+
+    /**
+     * 写入迭代器中的全部数据，适合游标、文件等无法一次放入内存的数据源；
+     * 每次从迭代器取出一个批次，一个批次一条COPY语句，与write相同地统计、记录批次事件并向批次大小控制器反馈
+     *
+     * @param rows 数据迭代器
+     * @return 写入行数
+     */
+    public long copy(Iterator<? extends T> rows) {
+        return write(rows).getRows();
+    }
+
+    private long copyChunk(Iterator<? extends T> rows) {
+        Long count = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            if (!upsert) {
+                return copyIn(connection, mapping.getTableName(), rows);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create temp table if not exists " + stageTable + " (like " + mapping.getTableName() + " including defaults)");
+                statement.execute("truncate " + stageTable);
+                copyIn(connection, stageTable, rows);
+                return (long) statement.executeUpdate(buildUpsertSql());
+            }
+        });
+        return count == null ? 0 : count;
+    }
+
+    private long copyIn(Connection connection, String table, Iterator<? extends T> rows) throws SQLException {
+        String sql = "copy " + table + " (" + mapping.getColumnList() + ") from stdin" + (binary ? " with (format binary)" : "");
+        InputStream in = binary ? new PgBinaryRowInputStream<>(rows, mapping) : new TextRowInputStream<>(rows, mapping, allColumns);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, in, 64 * 1024);
+        } catch (IOException e) {
+            throw new SQLException("copy into " + table + " failed", e);
+        }
+    }
+
+    private String buildUpsertSql() {
+        String columns = mapping.getColumnList();
+        String updates = mapping.getColumns().stream()
+                .filter(column -> !column.equals(mapping.getIdColumn()))
+                .map(column -> column + " = excluded." + column)
+                .collect(Collectors.joining(","));
+        return "insert into " + mapping.getTableName() + " (" + columns + ") select " + columns + " from " + stageTable
+                + " on conflict (" + mapping.getIdColumn() + ") do "
+                + (updates.isEmpty() ? "nothing" : "update set " + updates);
+    }
+}
@@ -0,0 +1,109 @@
+package top.wecoding.batch.writer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.batch.BatchWriterType;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.dialect.DbDialect;
+import top.wecoding.batch.size.BatchSizeController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按方言生成的批量upsert：
+ * mysql insert ... on duplicate key update，postgresql insert ... on conflict do update，oracle merge using (... union all ...)
+ * 批次按2的幂拆分为若干条预处理语句（如1000 = 512 + 256 + 128 + 64 + 32 + 8），批次大小不超过方言允许的绑定参数个数；
+ * 自适应批次大小与尾批次几乎会产生所有行数，只生成2的幂行数的sql使缓存有界并命中预编译语句缓存
+ *
+ * @author ffd
+ */
+public class UpsertBatchWriter<T> extends AbstractBatchWriter<T> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DbDialect dialect;
+
+    private final List<String> keyColumns;
+
+    private final List<String> updateColumns;
+
+    private final int maxRows;
+
+    /**
+     * 2的幂行数 -> sql，最多log2(maxRows) + 1条
+     */
+    private final Map<Integer, String> sqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyColumns    判断冲突的键列，为空时使用主键列
+     * @param updateColumns 冲突时更新的列，为空时更新键列以外的全部列
+     */
+    public UpsertBatchWriter(JdbcTemplate jdbcTemplate, DbDialect dialect, TableMapping<T> mapping,
+                             BatchSizeController batchSizeController, List<String> keyColumns, List<String> updateColumns) {
+        super(mapping, batchSizeController);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.keyColumns = keyColumns == null || keyColumns.isEmpty()
+                ? Collections.singletonList(mapping.getIdColumn()) : checkColumns(keyColumns);
+        if (updateColumns == null || updateColumns.isEmpty()) {
+            List<String> columns = new ArrayList<>(mapping.getColumns());
+            columns.removeAll(this.keyColumns);
+            this.updateColumns = columns;
+        } else {
+            this.updateColumns = checkColumns(updateColumns);
+            for (String column : this.updateColumns) {
+                if (this.keyColumns.contains(column)) {
+                    throw new IllegalArgumentException("key column " + column + " can not be updated");
+                }
+            }
+        }
+        this.maxRows = dialect.maxPreparedRows(mapping.getColumnCount());
+    }
+
+    @Override
+    public BatchWriterType getType() {
+        return BatchWriterType.UPSERT;
+    }
+
+    @Override
+    protected int maxBatchSize() {
+        return maxRows;
+    }
+
+    @Override
+    protected int writeChunk(List<T> chunk) {
+        for (int offset = 0; offset < chunk.size(); ) {
+            int arity = Integer.highestOneBit(chunk.size() - offset);
+            List<T> rows = chunk.subList(offset, offset + arity);
+            String sql = sqlCache.computeIfAbsent(arity, n -> dialect.upsertSql(mapping, n, keyColumns, updateColumns));
+            jdbcTemplate.update(sql, ps -> {
+                for (int r = 0; r < rows.size(); r++) {
+                    setValues(ps, rows.get(r), r * mapping.getColumnCount());
+                }
+            });
+            offset += arity;
+        }
+        // mysql更新的行计为2，这里返回处理的行数
+        return chunk.size();
+    }
+
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    public List<String> getUpdateColumns() {
+        return updateColumns;
+    }
+
+    private List<String> checkColumns(List<String> columns) {
+        for (String column : columns) {
+            if (!mapping.getColumns().contains(column)) {
+                throw new IllegalArgumentException("unknown column " + column + " of " + mapping.getTableName());
+            }
+        }
+        return new ArrayList<>(columns);
+    }
+}
@@ -4,12 +4,14 @@ import org.springframework.context.annotation.*;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.batch.pool.DynamicThreadPoolTaskExecutor;
+import top.wecoding.batch.pool.PoolBoundedExecutor;
 
+import javax.sql.DataSource;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author ffd
@@ -25,39 +27,54 @@ public class AsyncConfig implements SchedulingConfigurer {
         String DEFAULT_EXECUTOR = "threadPoolTaskExecutor";
         String WORK_EXECUTOR = "workStealingPool";
         String SCHEDULED_EXECUTOR = "scheduledThreadPool";
+        String DB_EXECUTOR = "dbExecutor";
     }
 
     /**
-     * 默认使用的cpu密集型线程池，适用于系统中的普通异步处理
+     * 默认使用的cpu密集型线程池，适用于系统中的普通异步处理；
+     * 线程数与队列容量可通过JMX调整，线程池已满时按batch.async-executor.reject-policy处理
      */
     @Lazy
     @Primary
+    @Conditional(VirtualThreadsCondition.Disabled.class)
     @Bean(name = "threadPoolTaskExecutor", destroyMethod = "shutdown")
-    public ThreadPoolTaskExecutor threadPoolTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        int corePoolSize = Runtime.getRuntime().availableProcessors();
+    public DynamicThreadPoolTaskExecutor threadPoolTaskExecutor(BatchProperties batchProperties) {
+        BatchProperties.AsyncExecutor asyncExecutor = batchProperties.getAsyncExecutor();
+        DynamicThreadPoolTaskExecutor executor = new DynamicThreadPoolTaskExecutor();
+        int corePoolSize = asyncExecutor.getCorePoolSize() > 0 ? asyncExecutor.getCorePoolSize() : Runtime.getRuntime().availableProcessors();
         executor.setCorePoolSize(corePoolSize);
-        executor.setMaxPoolSize(corePoolSize + 5);
-        executor.setQueueCapacity(500);
-        executor.setKeepAliveSeconds(60);
+        executor.setMaxPoolSize(asyncExecutor.getMaxPoolSize() > 0 ? Math.max(corePoolSize, asyncExecutor.getMaxPoolSize()) : corePoolSize + 5);
+        executor.setQueueCapacity(asyncExecutor.getQueueCapacity());
+        executor.setKeepAliveSeconds(asyncExecutor.getKeepAliveSeconds());
         executor.setThreadNamePrefix("MyAsync-");
-        executor.setRejectedExecutionHandler((r, exec) -> {
-            throw new RejectedExecutionException("线程池已满");
-        });
-        executor.initialize();
+        executor.setRejectPolicy(asyncExecutor.getRejectPolicy());
+        executor.setBlockTimeoutMillis(asyncExecutor.getBlockTimeoutMillis());
         return executor;
     }
 
     /**
-     * 默认使用cpu空闲数量来执行任务，适用与大数据量业务优化（如批量数据库处理）
-     *
+     * 默认使用cpu空闲数量来执行任务，适用与大数据量的cpu密集型处理；
+     * 线程数不受连接池约束，批量数据库处理的任务数超过连接池最大连接数时会阻塞在获取连接上，应使用dbExecutor
      */
     @Lazy
+    @Conditional(VirtualThreadsCondition.Disabled.class)
     @Bean(name = "workStealingPool", destroyMethod = "shutdown")
     public ExecutorService workStealingPool() {
         return Executors.newWorkStealingPool();
     }
 
+    /**
+     * 数据库任务线程池，按连接池实时可借出的连接数放行任务，其余进入有界队列，适用于批量数据库处理
+     */
+    @Lazy
+    @Conditional(VirtualThreadsCondition.Disabled.class)
+    @Bean(name = "dbExecutor", destroyMethod = "shutdown")
+    public PoolBoundedExecutor dbExecutor(BatchProperties batchProperties, DataSource dataSource) {
+        BatchProperties.DbExecutor dbExecutor = batchProperties.getDbExecutor();
+        return new PoolBoundedExecutor(dataSource, dbExecutor.getMaxConcurrency(), dbExecutor.getReserve(),
+                dbExecutor.getQueueCapacity(), dbExecutor.isPreferIdle());
+    }
+
     /**
      * 周期性异步线程池，防止异步任务丢失
      */
@@ -0,0 +1,28 @@
+package top.wecoding.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.batch.dialect.DbDialect;
+
+import javax.sql.DataSource;
+
+/**
+ * 批处理配置
+ * @author ffd
+ */
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+public class BatchConfig {
+
+    /**
+     * 当前数据源的方言，未配置batch.dialect时首次使用通过连接元数据识别
+     */
+    @Lazy
+    @Bean
+    public DbDialect dbDialect(BatchProperties batchProperties, DataSource dataSource) {
+        return batchProperties.getDialect() != null ? batchProperties.getDialect() : DbDialect.of(dataSource);
+    }
+}
@@ -0,0 +1,23 @@
+package top.wecoding.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.wecoding.jfr.JfrMongoCommandListener;
+
+/**
+ * 批次JFR事件配置
+ * jdbc由JfrChunkFilter、mybatis由JfrMybatisInterceptor采集，这里为mongo客户端注册命令监听器
+ *
+ * @author ffd
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "batch.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class JfrConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer jfrMongoCommandListener() {
+        return builder -> builder.addCommandListener(new JfrMongoCommandListener());
+    }
+}
@@ -1,10 +1,16 @@
 package top.wecoding.config;
 
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
+import top.wecoding.metrics.TransactionProfiler;
+import top.wecoding.metrics.TransactionProfilingInterceptor;
 
 import javax.sql.DataSource;
 
@@ -25,4 +31,26 @@ public class TransactionConfig {
 //    public PlatformTransactionManager transactionManager(DataSource dataSource) {
 //        return new DataSourceTransactionManager(dataSource);
 //    }
+
+    /**
+     * 以接口代理包装所有事务管理器，记录事务耗时、写入行数与长事务，
+     * 按实现类（如JpaTransactionManager）注入事务管理器的地方需要改为按PlatformTransactionManager注入
+     *
+     * @param transactionProfiler 事务统计，首次开启事务时才获取
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "batch.tx-profile", name = "enabled", havingValue = "true")
+    public static BeanPostProcessor transactionProfilingPostProcessor(ObjectProvider<TransactionProfiler> transactionProfiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof PlatformTransactionManager)) {
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addAdvice(new TransactionProfilingInterceptor(transactionProfiler));
+                return proxyFactory.getProxy(bean.getClass().getClassLoader());
+            }
+        };
+    }
 }
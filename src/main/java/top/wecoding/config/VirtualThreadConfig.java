@@ -0,0 +1,84 @@
+package top.wecoding.config;
+
+import com.mongodb.MongoClientSettings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.batch.pool.ConnectionPools;
+import top.wecoding.batch.pool.SemaphoreBoundedExecutor;
+import top.wecoding.batch.pool.VirtualThreads;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 虚拟线程执行模式，以相同的bean名称（AsyncConfig.ExecutorType）替换平台线程池：
+ * 每个任务一个虚拟线程，阻塞在jdbc、mongo io上不占用平台线程，并发数由按连接池大小确定的信号量限制；
+ * 周期性线程池仍使用平台线程
+ *
+ * @author ffd
+ */
+@Slf4j
+@Configuration
+@Conditional(VirtualThreadsCondition.class)
+public class VirtualThreadConfig {
+
+    /**
+     * threadPoolTaskExecutor与workStealingPool共用的并发许可，默认取数据库连接池与mongo连接池最大连接数中较小的一个：
+     * 许可不区分任务访问哪种连接，取两者之和时只访问数据库的任务也能拿到mongo那部分许可，同时执行的任务数超过连接池，阻塞在获取连接上
+     */
+    @Lazy
+    @Bean
+    public Semaphore virtualThreadPermits(BatchProperties batchProperties, DataSource dataSource,
+                                          ObjectProvider<MongoProperties> mongoProperties,
+                                          ObjectProvider<MongoClientSettings> mongoClientSettings) {
+        int permits = batchProperties.getVirtualThreads().getMaxConcurrency();
+        if (permits <= 0) {
+            // 未启用mongo自动配置时没有MongoProperties，不计入mongo连接池
+            MongoProperties properties = mongoProperties.getIfAvailable();
+            int mongoMaxSize = properties == null ? 0 : ConnectionPools.maxSize(properties.getUri(), mongoClientSettings.getIfAvailable());
+            int maxActive = ConnectionPools.maxActive(dataSource);
+            permits = maxActive > 0 && mongoMaxSize > 0 ? Math.min(maxActive, mongoMaxSize) : Math.max(maxActive, mongoMaxSize);
+        }
+        if (permits <= 0) {
+            permits = Runtime.getRuntime().availableProcessors();
+        }
+        log.info("virtual thread executors share {} permits", permits);
+        return new Semaphore(permits, true);
+    }
+
+    @Lazy
+    @Primary
+    @Bean(name = "threadPoolTaskExecutor", destroyMethod = "shutdown")
+    public SemaphoreBoundedExecutor threadPoolTaskExecutor(Semaphore virtualThreadPermits) {
+        return new SemaphoreBoundedExecutor(VirtualThreads.newThreadPerTaskExecutor("MyAsync-"), virtualThreadPermits, 0);
+    }
+
+    @Lazy
+    @Bean(name = "workStealingPool", destroyMethod = "shutdown")
+    public SemaphoreBoundedExecutor workStealingPool(Semaphore virtualThreadPermits) {
+        return new SemaphoreBoundedExecutor(VirtualThreads.newThreadPerTaskExecutor("Work-"), virtualThreadPermits, 0);
+    }
+
+    /**
+     * 许可数与平台线程模式的dbExecutor最大并发任务数相同，等待许可的任务数不超过db-executor.queue-capacity
+     */
+    @Lazy
+    @Bean(name = "dbExecutor", destroyMethod = "shutdown")
+    public SemaphoreBoundedExecutor dbExecutor(BatchProperties batchProperties, DataSource dataSource) {
+        BatchProperties.DbExecutor dbExecutor = batchProperties.getDbExecutor();
+        int permits = dbExecutor.getMaxConcurrency();
+        if (permits <= 0) {
+            int maxActive = ConnectionPools.maxActive(dataSource);
+            permits = Math.max(1, (maxActive > 0 ? maxActive : Runtime.getRuntime().availableProcessors()) - Math.max(0, dbExecutor.getReserve()));
+        }
+        return new SemaphoreBoundedExecutor(VirtualThreads.newThreadPerTaskExecutor("DbWork-"), new Semaphore(permits, true),
+                dbExecutor.getQueueCapacity());
+    }
+}
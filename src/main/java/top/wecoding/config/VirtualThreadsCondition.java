@@ -0,0 +1,40 @@
+package top.wecoding.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import top.wecoding.batch.pool.VirtualThreads;
+
+/**
+ * batch.virtual-threads.enabled为true且当前jdk支持虚拟线程时匹配
+ *
+ * @author ffd
+ */
+public class VirtualThreadsCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        if (!context.getEnvironment().getProperty("batch.virtual-threads.enabled", Boolean.class, false)) {
+            return ConditionOutcome.noMatch("batch.virtual-threads.enabled is false");
+        }
+        if (!VirtualThreads.isSupported()) {
+            return ConditionOutcome.noMatch("virtual threads are not supported on java " + System.getProperty("java.version"));
+        }
+        return ConditionOutcome.match("virtual threads enabled");
+    }
+
+    /**
+     * 未开启或不支持虚拟线程时匹配，用于平台线程池
+     */
+    public static class Disabled extends SpringBootCondition {
+
+        private final VirtualThreadsCondition condition = new VirtualThreadsCondition();
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            ConditionOutcome outcome = condition.getMatchOutcome(context, metadata);
+            return new ConditionOutcome(!outcome.isMatch(), outcome.getConditionMessage());
+        }
+    }
+}
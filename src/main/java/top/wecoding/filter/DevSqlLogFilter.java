@@ -7,82 +7,91 @@ import com.alibaba.druid.proxy.jdbc.ResultSetProxy;
 import com.alibaba.druid.proxy.jdbc.StatementProxy;
 import com.alibaba.druid.sql.SQLUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 开发期间打印sql及参数的过滤器
  * 配置druid.proxy-filters: devSqlLogFilter
+ * 仅在debug级别开启时计时与格式化，生产环境的执行统计使用{@link SqlStatFilter}
  * @author ffd
  * @see com.alibaba.druid.filter.FilterEventAdapter
  */
 @Slf4j
 @AutoLoad
 @Component
+@Order(Ordered.LOWEST_PRECEDENCE - 100)
 public class DevSqlLogFilter extends FilterEventAdapter {
 
-    private final ThreadLocal<Long> startTime = new ThreadLocal<>();
+    private static final String START_NANO = DevSqlLogFilter.class.getName() + ".startNano";
 
     @Override
     protected void statementExecuteUpdateBefore(StatementProxy statement, String sql) {
-        commonStar();
+        commonStar(statement);
         super.statementExecuteUpdateBefore(statement, sql);
     }
 
     @Override
     protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
-        commonEnd(sql);
+        commonEnd(statement, sql);
         super.statementExecuteUpdateAfter(statement, sql, updateCount);
     }
 
     @Override
     protected void statementExecuteQueryBefore(StatementProxy statement, String sql) {
-        commonStar();
+        commonStar(statement);
         super.statementExecuteQueryBefore(statement, sql);
     }
 
     @Override
     protected void statementExecuteQueryAfter(StatementProxy statement, String sql, ResultSetProxy resultSet) {
-        commonEnd(sql);
+        commonEnd(statement, sql);
         super.statementExecuteQueryAfter(statement, sql, resultSet);
     }
 
     @Override
     protected void statementExecuteBatchBefore(StatementProxy statement) {
-        commonStar();
+        commonStar(statement);
         super.statementExecuteBatchBefore(statement);
     }
 
     @Override
     protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
-        commonEnd(statement.getBatchSql());
+        commonEnd(statement, statement.getBatchSql());
         super.statementExecuteBatchAfter(statement, result);
     }
 
     @Override
     protected void statementExecuteBefore(StatementProxy statement, String sql) {
-        commonStar();
+        commonStar(statement);
         super.statementExecuteBefore(statement, sql);
     }
 
     @Override
     protected void statementExecuteAfter(StatementProxy statement, String sql, boolean result) {
-        commonEnd(sql);
+        commonEnd(statement, sql);
         super.statementExecuteAfter(statement, sql, result);
     }
 
 
-    private void commonStar(){
-        startTime.set(System.currentTimeMillis());
+    private void commonStar(StatementProxy statement){
+        if (log.isDebugEnabled()) {
+            statement.putAttribute(START_NANO, System.nanoTime());
+        }
     }
 
-    private void commonEnd(String sql){
-        long extendTime= System.currentTimeMillis() - startTime.get();
-        startTime.remove();
+    private void commonEnd(StatementProxy statement, String sql){
+        Object startNano = statement.getAttributes().remove(START_NANO);
+        if (startNano == null || !log.isDebugEnabled()) {
+            return;
+        }
+        long extendTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (Long) startNano);
         StringBuilder sb = new StringBuilder();
         sb.append("\n=============sql start=============\n");
-        sb.append(SQLUtils.format(sql, DbType.mysql));
-//        sb.append(SQLUtils.format(sql, DbType.oracle));
-//        sb.append(SQLUtils.format(sql, DbType.postgresql));
+        sb.append(SQLUtils.format(sql, DbType.of(statement.getConnectionProxy().getDirectDataSource().getDbType())));
         sb.append("\n - > cost time:").append(extendTime).append(" ms");
         sb.append("\n=============sql end=============");
         log.debug(sb.toString());
@@ -0,0 +1,459 @@
+package top.wecoding.filter;
+
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.ConnectionProxy;
+import com.alibaba.druid.proxy.jdbc.JdbcParameter;
+import com.alibaba.druid.proxy.jdbc.PreparedStatementProxy;
+import com.alibaba.druid.proxy.jdbc.PreparedStatementProxyImpl;
+import com.alibaba.druid.proxy.jdbc.ResultSetProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.batch.dialect.DbDialect;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 单行插入合并为多行插入的过滤器
+ * 事务中（autoCommit=false）通过PreparedStatement的executeUpdate或execute（mybatis的PreparedStatementHandler）执行、
+ * 参数全部为占位符的单行insert不立即执行，同一连接上连续的同形语句先缓存参数，
+ * 达到maxRows、执行其他语句、设置保存点或提交前合并为多行insert执行，回滚时丢弃；
+ * 要求返回自增主键的语句、自动提交模式下的语句、流/大对象参数以及无法确定原始setter的参数（Types.OTHER，如setObject(x, Types.OTHER)）原样执行，
+ * 其余参数按记录的sqlType以setObject(index, value, sqlType)/setNull(index, sqlType)重放。
+ * 主键冲突等错误会在合并执行时（最晚在commit时）抛出，commit失败时连接已回滚；
+ * 被缓存的insert executeUpdate返回1，execute返回false且getUpdateCount返回1
+ * 配置 batch.insert-rewrite.enabled: true 开启，druid-spring-boot-starter自动加入数据源的过滤器链，
+ * 排在其他自动加入的过滤器之前，统计、日志过滤器只看到实际执行的多行insert
+ *
+ * @author ffd
+ * @see com.alibaba.druid.filter.FilterEventAdapter
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "batch.insert-rewrite", name = "enabled", havingValue = "true")
+public class InsertRewriteFilter extends FilterEventAdapter {
+
+    private static final Pattern SINGLE_ROW_INSERT = Pattern.compile(
+            "\\s*insert\\s+into\\s+([\\w.$\"`]+)\\s*\\(([^()]+)\\)\\s*values?\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String BUFFER = InsertRewriteFilter.class.getName() + ".buffer";
+
+    private static final String GENERATED_KEYS = InsertRewriteFilter.class.getName() + ".generatedKeys";
+
+    /**
+     * 被缓存的execute的影响行数，由getUpdateCount取出
+     */
+    private static final String UPDATE_COUNT = InsertRewriteFilter.class.getName() + ".updateCount";
+
+    private static final int MAX_CACHED_SQL = 1024;
+
+    /**
+     * 不可合并的语句
+     */
+    private static final Shape NONE = new Shape(null, null, 0);
+
+    private final int maxRows;
+
+    /**
+     * 配置的方言，为空时按数据源类型识别
+     */
+    private final DbDialect dialect;
+
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    public InsertRewriteFilter(BatchProperties batchProperties) {
+        this.maxRows = Math.max(1, batchProperties.getInsertRewrite().getMaxRows());
+        this.dialect = batchProperties.getDialect();
+    }
+
+    @Override
+    public int preparedStatement_executeUpdate(FilterChain chain, PreparedStatementProxy statement) throws SQLException {
+        statement.getAttributes().remove(UPDATE_COUNT);
+        return buffered(statement) ? 1 : super.preparedStatement_executeUpdate(chain, statement);
+    }
+
+    @Override
+    public boolean preparedStatement_execute(FilterChain chain, PreparedStatementProxy statement) throws SQLException {
+        statement.getAttributes().remove(UPDATE_COUNT);
+        if (buffered(statement)) {
+            statement.putAttribute(UPDATE_COUNT, 1);
+            return false;
+        }
+        return super.preparedStatement_execute(chain, statement);
+    }
+
+    @Override
+    public int statement_getUpdateCount(FilterChain chain, StatementProxy statement) throws SQLException {
+        Object updateCount = statement.getAttributes().remove(UPDATE_COUNT);
+        return updateCount != null ? (Integer) updateCount : super.statement_getUpdateCount(chain, statement);
+    }
+
+    @Override
+    public ResultSetProxy preparedStatement_executeQuery(FilterChain chain, PreparedStatementProxy statement) throws SQLException {
+        flushBefore(statement);
+        return super.preparedStatement_executeQuery(chain, statement);
+    }
+
+    @Override
+    public boolean statement_execute(FilterChain chain, StatementProxy statement, String sql) throws SQLException {
+        flushBefore(statement);
+        return super.statement_execute(chain, statement, sql);
+    }
+
+    @Override
+    public boolean statement_execute(FilterChain chain, StatementProxy statement, String sql, int autoGeneratedKeys) throws SQLException {
+        flushBefore(statement);
+        return super.statement_execute(chain, statement, sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public boolean statement_execute(FilterChain chain, StatementProxy statement, String sql, int[] columnIndexes) throws SQLException {
+        flushBefore(statement);
+        return super.statement_execute(chain, statement, sql, columnIndexes);
+    }
+
+    @Override
+    public boolean statement_execute(FilterChain chain, StatementProxy statement, String sql, String[] columnNames) throws SQLException {
+        flushBefore(statement);
+        return super.statement_execute(chain, statement, sql, columnNames);
+    }
+
+    @Override
+    public int[] statement_executeBatch(FilterChain chain, StatementProxy statement) throws SQLException {
+        flushBefore(statement);
+        return super.statement_executeBatch(chain, statement);
+    }
+
+    @Override
+    public ResultSetProxy statement_executeQuery(FilterChain chain, StatementProxy statement, String sql) throws SQLException {
+        flushBefore(statement);
+        return super.statement_executeQuery(chain, statement, sql);
+    }
+
+    @Override
+    public int statement_executeUpdate(FilterChain chain, StatementProxy statement, String sql) throws SQLException {
+        flushBefore(statement);
+        return super.statement_executeUpdate(chain, statement, sql);
+    }
+
+    @Override
+    public int statement_executeUpdate(FilterChain chain, StatementProxy statement, String sql, int autoGeneratedKeys) throws SQLException {
+        flushBefore(statement);
+        return super.statement_executeUpdate(chain, statement, sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public int statement_executeUpdate(FilterChain chain, StatementProxy statement, String sql, int[] columnIndexes) throws SQLException {
+        flushBefore(statement);
+        return super.statement_executeUpdate(chain, statement, sql, columnIndexes);
+    }
+
+    @Override
+    public int statement_executeUpdate(FilterChain chain, StatementProxy statement, String sql, String[] columnNames) throws SQLException {
+        flushBefore(statement);
+        return super.statement_executeUpdate(chain, statement, sql, columnNames);
+    }
+
+    @Override
+    public PreparedStatementProxy connection_prepareStatement(FilterChain chain, ConnectionProxy connection, String sql,
+                                                              int autoGeneratedKeys) throws SQLException {
+        PreparedStatementProxy statement = super.connection_prepareStatement(chain, connection, sql, autoGeneratedKeys);
+        if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+            statement.putAttribute(GENERATED_KEYS, Boolean.TRUE);
+        }
+        return statement;
+    }
+
+    @Override
+    public PreparedStatementProxy connection_prepareStatement(FilterChain chain, ConnectionProxy connection, String sql,
+                                                              int[] columnIndexes) throws SQLException {
+        PreparedStatementProxy statement = super.connection_prepareStatement(chain, connection, sql, columnIndexes);
+        statement.putAttribute(GENERATED_KEYS, Boolean.TRUE);
+        return statement;
+    }
+
+    @Override
+    public PreparedStatementProxy connection_prepareStatement(FilterChain chain, ConnectionProxy connection, String sql,
+                                                              String[] columnNames) throws SQLException {
+        PreparedStatementProxy statement = super.connection_prepareStatement(chain, connection, sql, columnNames);
+        statement.putAttribute(GENERATED_KEYS, Boolean.TRUE);
+        return statement;
+    }
+
+    @Override
+    public void connection_commit(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        Buffer buffer = buffer(connection);
+        if (buffer != null) {
+            try {
+                flush(connection, buffer);
+            } catch (SQLException e) {
+                // 合并的insert失败时整个事务不能提交
+                chain.connection_rollback(connection);
+                throw e;
+            }
+        }
+        super.connection_commit(chain, connection);
+    }
+
+    @Override
+    public void connection_setAutoCommit(FilterChain chain, ConnectionProxy connection, boolean autoCommit) throws SQLException {
+        // 事务中切换为自动提交会提交当前事务
+        if (autoCommit) {
+            flushBefore(connection);
+        }
+        super.connection_setAutoCommit(chain, connection, autoCommit);
+    }
+
+    @Override
+    public Savepoint connection_setSavepoint(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        flushBefore(connection);
+        return super.connection_setSavepoint(chain, connection);
+    }
+
+    @Override
+    public Savepoint connection_setSavepoint(FilterChain chain, ConnectionProxy connection, String name) throws SQLException {
+        flushBefore(connection);
+        return super.connection_setSavepoint(chain, connection, name);
+    }
+
+    @Override
+    public void connection_rollback(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        discard(connection);
+        super.connection_rollback(chain, connection);
+    }
+
+    @Override
+    public void connection_rollback(FilterChain chain, ConnectionProxy connection, Savepoint savepoint) throws SQLException {
+        // 设置保存点前已刷写，缓存中的行都在保存点之后
+        discard(connection);
+        super.connection_rollback(chain, connection, savepoint);
+    }
+
+    @Override
+    public void connection_close(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        discard(connection);
+        super.connection_close(chain, connection);
+    }
+
+    /**
+     * 可合并的单行insert缓存参数后返回true，否则刷写已缓存的行后返回false，由调用方原样执行
+     */
+    private boolean buffered(PreparedStatementProxy statement) throws SQLException {
+        ConnectionProxy connection = statement.getConnectionProxy();
+        Buffer buffer = buffer(connection);
+        if (buffer == null || buffer.flushing) {
+            return false;
+        }
+        Shape shape = shape(statement.getSql());
+        Object[] row = shape == NONE || statement.getAttribute(GENERATED_KEYS) != null
+                || connection.getRawObject().getAutoCommit() ? null : capture(statement, shape.columnCount);
+        if (row == null) {
+            flush(connection, buffer);
+            return false;
+        }
+        if (buffer.shape != shape) {
+            flush(connection, buffer);
+            buffer.shape = shape;
+        }
+        buffer.rows.add(row);
+        if (buffer.rows.size() >= buffer.maxRows(maxRows)) {
+            flush(connection, buffer);
+        }
+        return true;
+    }
+
+    private void flushBefore(StatementProxy statement) throws SQLException {
+        flushBefore(statement.getConnectionProxy());
+    }
+
+    private void flushBefore(ConnectionProxy connection) throws SQLException {
+        Buffer buffer = buffer(connection);
+        if (buffer != null && !buffer.flushing) {
+            flush(connection, buffer);
+        }
+    }
+
+    private void discard(ConnectionProxy connection) {
+        Buffer buffer = (Buffer) connection.getAttribute(BUFFER);
+        if (buffer != null && !buffer.rows.isEmpty()) {
+            log.debug("discard {} buffered inserts of {}", buffer.rows.size(), buffer.shape.tableName);
+            buffer.rows.clear();
+        }
+    }
+
+    /**
+     * 连接上的缓存，连接同一时刻只被一个线程使用；不支持的数据库返回null
+     */
+    private Buffer buffer(ConnectionProxy connection) {
+        Object buffer = connection.getAttribute(BUFFER);
+        if (buffer == null) {
+            DbDialect dialect = this.dialect;
+            if (dialect == null) {
+                try {
+                    dialect = DbDialect.of(connection.getDirectDataSource().getDbType());
+                } catch (IllegalStateException e) {
+                    dialect = null;
+                }
+            }
+            buffer = dialect == null ? NONE : new Buffer(dialect);
+            connection.putAttribute(BUFFER, buffer);
+        }
+        return buffer == NONE ? null : (Buffer) buffer;
+    }
+
+    private Shape shape(String sql) {
+        Shape shape = shapes.get(sql);
+        if (shape == null) {
+            Matcher matcher = SINGLE_ROW_INSERT.matcher(sql);
+            shape = NONE;
+            if (matcher.matches()) {
+                String columnList = matcher.group(2).trim();
+                int columnCount = columnList.split(",").length;
+                if (columnCount == sql.length() - sql.replace("?", "").length()) {
+                    shape = new Shape(matcher.group(1), columnList, columnCount);
+                }
+            }
+            if (shapes.size() >= MAX_CACHED_SQL) {
+                shapes.clear();
+            }
+            shapes.put(sql, shape);
+        }
+        return shape;
+    }
+
+    /**
+     * 复制当前绑定的参数，前半部分为参数值，后半部分为参数类型，含无法重放的参数时返回null；
+     * druid对setObject(x)中无法识别类型的值与setObject(x, Types.OTHER)同样记为OTHER，无法还原原始的setter，不合并
+     */
+    private static Object[] capture(PreparedStatementProxy statement, int columnCount) {
+        if (!(statement instanceof PreparedStatementProxyImpl)) {
+            return null;
+        }
+        PreparedStatementProxyImpl proxy = (PreparedStatementProxyImpl) statement;
+        if (proxy.getParametersSize() != columnCount) {
+            return null;
+        }
+        Object[] row = new Object[columnCount * 2];
+        for (int i = 0; i < columnCount; i++) {
+            JdbcParameter parameter = proxy.getParameter(i);
+            if (parameter == null || parameter.getCalendar() != null) {
+                return null;
+            }
+            Object value = parameter.getValue();
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob
+                    || value != null && parameter.getSqlType() == Types.OTHER) {
+                return null;
+            }
+            row[i] = value;
+            row[columnCount + i] = parameter.getSqlType();
+        }
+        return row;
+    }
+
+    /**
+     * 将缓存的行按maxRows分组执行，不足一组的部分按2的幂拆分，同一张表只产生少量不同的语句
+     */
+    private void flush(ConnectionProxy connection, Buffer buffer) throws SQLException {
+        List<Object[]> rows = buffer.rows;
+        if (rows.isEmpty()) {
+            return;
+        }
+        Shape shape = buffer.shape;
+        int maxChunk = buffer.maxRows(maxRows);
+        buffer.flushing = true;
+        try {
+            int offset = 0;
+            while (offset < rows.size()) {
+                int remaining = rows.size() - offset;
+                int count = remaining >= maxChunk ? maxChunk : Integer.highestOneBit(remaining);
+                try (PreparedStatement statement = connection.prepareStatement(shape.sql(buffer.dialect, count))) {
+                    int index = 1;
+                    for (int i = offset; i < offset + count; i++) {
+                        Object[] row = rows.get(i);
+                        for (int column = 0; column < shape.columnCount; column++) {
+                            Object value = row[column];
+                            int sqlType = (Integer) row[shape.columnCount + column];
+                            if (value == null) {
+                                statement.setNull(index++, sqlType);
+                            } else {
+                                statement.setObject(index++, value, sqlType);
+                            }
+                        }
+                    }
+                    statement.executeUpdate();
+                }
+                offset += count;
+            }
+        } finally {
+            rows.clear();
+            buffer.flushing = false;
+        }
+    }
+
+    /**
+     * 可合并的单行insert：表名、列及不同行数的多行语句
+     */
+    private static class Shape {
+
+        private final String tableName;
+
+        private final String columnList;
+
+        private final int columnCount;
+
+        private final Map<Integer, String> sqls = new ConcurrentHashMap<>();
+
+        Shape(String tableName, String columnList, int columnCount) {
+            this.tableName = tableName;
+            this.columnList = columnList;
+            this.columnCount = columnCount;
+        }
+
+        String sql(DbDialect dialect, int rows) {
+            return sqls.computeIfAbsent(rows, k -> dialect.multiRowInsertSql(tableName, columnList, columnCount, k));
+        }
+    }
+
+    /**
+     * 一个连接上等待合并的行
+     */
+    private static class Buffer {
+
+        private final DbDialect dialect;
+
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private Shape shape;
+
+        private boolean flushing;
+
+        Buffer(DbDialect dialect) {
+            this.dialect = dialect;
+        }
+
+        int maxRows(int maxRows) {
+            return Math.min(maxRows, dialect.maxPreparedRows(shape.columnCount));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package top.wecoding.filter;
+
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.ConnectionProxy;
+import com.alibaba.druid.proxy.jdbc.JdbcParameter;
+import com.alibaba.druid.proxy.jdbc.PreparedStatementProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import top.wecoding.jfr.ChunkTrace;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * 批次JFR事件的jdbc采集过滤器
+ * 当前线程有批次（{@link ChunkTrace}）时，把语句的执行耗时、执行次数、估算的发送字节数（sql文本与参数值）
+ * 和批次内的提交耗时累加到批次；事务中（autoCommit=false）批次结束后才提交的，在提交时记录为BatchCommit事件。
+ * 没有批次时每条语句只有一次ThreadLocal读取；排在过滤器链的最后（统计、日志、事务过滤器显式排在它之前），执行耗时不含其他过滤器的开销
+ *
+ * @author ffd
+ * @see ChunkTrace
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "batch.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class JfrChunkFilter extends FilterEventAdapter {
+
+    /**
+     * 连接上已执行、尚未提交的批次
+     */
+    private static final String PENDING = JfrChunkFilter.class.getName() + ".pending";
+
+    @Override
+    public void statement_addBatch(FilterChain chain, StatementProxy statement, String sql) throws SQLException {
+        ChunkTrace.current().addBytes(sql == null ? 0 : sql.length());
+        super.statement_addBatch(chain, statement, sql);
+    }
+
+    @Override
+    public void preparedStatement_addBatch(FilterChain chain, PreparedStatementProxy statement) throws SQLException {
+        ChunkTrace trace = ChunkTrace.current();
+        if (trace.isActive()) {
+            trace.addBytes(parameterBytes(statement));
+        }
+        super.preparedStatement_addBatch(chain, statement);
+    }
+
+    @Override
+    protected void statementExecuteUpdateBefore(StatementProxy statement, String sql) {
+        executing(statement, sql);
+    }
+
+    @Override
+    protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
+        executed(statement, Math.max(0, updateCount));
+    }
+
+    @Override
+    protected void statementExecuteBefore(StatementProxy statement, String sql) {
+        executing(statement, sql);
+    }
+
+    @Override
+    protected void statementExecuteAfter(StatementProxy statement, String sql, boolean result) {
+        long rows = 0;
+        if (!result && ChunkTrace.current().isActive()) {
+            try {
+                rows = Math.max(0, statement.getRawObject().getUpdateCount());
+            } catch (SQLException ignored) {
+                // 只影响提交事件的行数
+            }
+        }
+        executed(statement, rows);
+    }
+
+    @Override
+    protected void statementExecuteBatchBefore(StatementProxy statement) {
+        ChunkTrace trace = ChunkTrace.current();
+        if (trace.isActive()) {
+            // 预处理语句的sql文本每次executeBatch发送一次，参数在addBatch时累加
+            if (statement instanceof PreparedStatementProxy) {
+                String sql = ((PreparedStatementProxy) statement).getSql();
+                trace.addBytes(sql == null ? 0 : sql.length());
+            }
+            trace.executing();
+        }
+    }
+
+    @Override
+    protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
+        long rows = 0;
+        if (result != null && ChunkTrace.current().isActive()) {
+            for (int count : result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+        }
+        executed(statement, rows);
+    }
+
+    @Override
+    protected void statement_executeErrorAfter(StatementProxy statement, String sql, Throwable error) {
+        executed(statement, 0);
+    }
+
+    @Override
+    public void connection_commit(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        ChunkTrace trace = ChunkTrace.current();
+        Pending pending = removePending(connection);
+        if (trace.isActive()) {
+            long starTime = System.nanoTime();
+            try {
+                super.connection_commit(chain, connection);
+            } finally {
+                trace.addCommit(System.nanoTime() - starTime);
+            }
+        } else if (pending != null) {
+            Object commitEvent = ChunkTrace.commitStarted();
+            super.connection_commit(chain, connection);
+            ChunkTrace.commitFinished(commitEvent, pending.chunks, pending.rows, pending.statements);
+        } else {
+            super.connection_commit(chain, connection);
+        }
+    }
+
+    @Override
+    public void connection_rollback(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        removePending(connection);
+        super.connection_rollback(chain, connection);
+    }
+
+    @Override
+    public void connection_close(FilterChain chain, ConnectionProxy connection) throws SQLException {
+        removePending(connection);
+        super.connection_close(chain, connection);
+    }
+
+    private void executing(StatementProxy statement, String sql) {
+        ChunkTrace trace = ChunkTrace.current();
+        if (trace.isActive()) {
+            long bytes = sql == null ? 0 : sql.length();
+            if (statement instanceof PreparedStatementProxy) {
+                bytes += parameterBytes((PreparedStatementProxy) statement);
+            }
+            trace.addBytes(bytes);
+            trace.executing();
+        }
+    }
+
+    /**
+     * 累加执行耗时，并记录到连接上等待提交的批次
+     */
+    private void executed(StatementProxy statement, long rows) {
+        ChunkTrace trace = ChunkTrace.current();
+        if (!trace.isActive()) {
+            return;
+        }
+        trace.executed();
+        ConnectionProxy connection = statement.getConnectionProxy();
+        if (connection == null || autoCommit(connection)) {
+            return;
+        }
+        Map<String, Object> attributes = connection.getAttributes();
+        Pending pending = (Pending) attributes.get(PENDING);
+        if (pending == null) {
+            pending = new Pending();
+            attributes.put(PENDING, pending);
+        }
+        if (pending.lastTrace != trace) {
+            pending.lastTrace = trace;
+            pending.chunks++;
+        }
+        pending.rows += rows;
+        pending.statements++;
+    }
+
+    private static boolean autoCommit(ConnectionProxy connection) {
+        try {
+            return connection.getRawObject().getAutoCommit();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 移除连接上等待提交的批次，没有批次的连接不创建属性表
+     */
+    private static Pending removePending(ConnectionProxy connection) {
+        Pending pending = (Pending) connection.getAttribute(PENDING);
+        if (pending != null) {
+            connection.getAttributes().remove(PENDING);
+        }
+        return pending;
+    }
+
+    /**
+     * 当前绑定参数的估算字节数：字符串按字符数、二进制按长度、其他按8字节
+     */
+    private static long parameterBytes(PreparedStatementProxy statement) {
+        long bytes = 0;
+        for (JdbcParameter parameter : statement.getParameters().values()) {
+            Object value = parameter.getValue();
+            if (value instanceof CharSequence) {
+                bytes += ((CharSequence) value).length();
+            } else if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else {
+                bytes += value == null ? 1 : 8;
+            }
+        }
+        return bytes;
+    }
+
+    private static class Pending {
+
+        private ChunkTrace lastTrace;
+
+        private long chunks;
+
+        private long rows;
+
+        private long statements;
+    }
+}
@@ -0,0 +1,123 @@
+package top.wecoding.filter;
+
+import java.util.regex.Pattern;
+
+/**
+ * sql指纹：去掉字面量、注释与多余空白，统一小写，合并多行values与in列表，
+ * 只是参数或行数不同的语句得到相同的指纹；超长语句只处理开头部分，代价与语句长度无关
+ *
+ * @author ffd
+ */
+final class SqlFingerprint {
+
+    /**
+     * 重复的占位符元组 (?,?),(?,?) -> (?,?),...
+     */
+    private static final Pattern REPEATED_TUPLES = Pattern.compile("(\\([?,]*\\))(?:,\\1)+(?:,\\([?,]*)?");
+
+    /**
+     * oracle insert all 的重复into子句
+     */
+    private static final Pattern REPEATED_INTO = Pattern.compile("(into [^()]+\\([^()]*\\)values\\([?,]*\\))(?:\\1)+");
+
+    /**
+     * 派生表的重复union all子句
+     */
+    private static final Pattern REPEATED_UNION = Pattern.compile("( union all select [^()]*?)(?:\\1)+");
+
+    private static final Pattern IN_LIST = Pattern.compile("\\bin\\(\\?(?:,\\?)+\\)");
+
+    private SqlFingerprint() {
+    }
+
+    /**
+     * @param sql       原始sql
+     * @param maxLength 最多处理的字符数，超出部分以...代替
+     */
+    static String of(String sql, int maxLength) {
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(Math.min(length, maxLength) + 3);
+        boolean space = false;
+        int i = 0;
+        while (i < length && sb.length() < maxLength) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                space = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                space = true;
+                continue;
+            }
+            char last = sb.length() == 0 ? ' ' : sb.charAt(sb.length() - 1);
+            if (c == '\'') {
+                i = skipString(sql, i);
+                c = '?';
+            } else if (c >= '0' && c <= '9' && (space || !isWord(last))) {
+                i = skipNumber(sql, i);
+                c = '?';
+            } else {
+                c = Character.toLowerCase(c);
+                i++;
+            }
+            // 只在两个单词之间保留空格，"values (" 与 "values(" 得到相同指纹
+            if (space && isWord(last) && isWord(c)) {
+                sb.append(' ');
+            }
+            space = false;
+            sb.append(c);
+        }
+        String fingerprint = sb.toString();
+        if (fingerprint.indexOf('(') >= 0) {
+            fingerprint = REPEATED_TUPLES.matcher(fingerprint).replaceAll("$1,...");
+            fingerprint = IN_LIST.matcher(fingerprint).replaceAll("in(?,...)");
+            fingerprint = REPEATED_INTO.matcher(fingerprint).replaceAll("$1...");
+            fingerprint = REPEATED_UNION.matcher(fingerprint).replaceAll("$1 ...");
+        }
+        return i < length ? fingerprint + "..." : fingerprint;
+    }
+
+    private static boolean isWord(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '?' || c == '$' || c == '`' || c == '"';
+    }
+
+    private static int skipString(String sql, int start) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == '\'') {
+                if (i < sql.length() && sql.charAt(i) == '\'') {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return i;
+    }
+
+    private static int skipNumber(String sql, int start) {
+        int i = start;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == 'x' || c == 'X'
+                    || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+}
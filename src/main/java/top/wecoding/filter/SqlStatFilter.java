@@ -0,0 +1,327 @@
+package top.wecoding.filter;
+
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.PreparedStatementProxy;
+import com.alibaba.druid.proxy.jdbc.ResultSetProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import com.alibaba.druid.sql.SQLUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.metrics.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * sql统计过滤器
+ * 按sql指纹（去掉参数、合并多行values后的语句）汇总执行次数、错误数、影响/读取行数和纳秒级耗时直方图，
+ * 每条语句只做一次缓存查找与几次原子自增，不格式化、不拼接字符串；
+ * 只有超过慢sql阈值的语句按指纹采样（每个指纹每个采样间隔最多一条）格式化后打印，
+ * 统计结果通过JMX（top.wecoding:type=SqlStat）查看
+ *
+ * @author ffd
+ * @see com.alibaba.druid.filter.FilterEventAdapter
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 100)
+@ManagedResource(objectName = "top.wecoding:type=SqlStat", description = "sql执行统计")
+@ConditionalOnProperty(prefix = "batch.sql-stat", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatFilter extends FilterEventAdapter {
+
+    /**
+     * 超过该长度的sql不作为缓存键，只取开头计算指纹
+     */
+    private static final int MAX_FINGERPRINT_LENGTH = 2048;
+
+    private static final int MAX_CACHED_SQL = 4096;
+
+    private static final String OTHER = "(other)";
+
+    private final long slowNanos;
+
+    private final long sampleIntervalMillis;
+
+    private final int maxFingerprints;
+
+    private final int maxFormatLength;
+
+    /**
+     * 原始sql -> 统计
+     */
+    private final Map<String, SqlStat> sqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * 指纹 -> 统计
+     */
+    private final Map<String, SqlStat> stats = new ConcurrentHashMap<>();
+
+    private final LongAdder slowCount = new LongAdder();
+
+    public SqlStatFilter(BatchProperties batchProperties) {
+        BatchProperties.SqlStat sqlStat = batchProperties.getSqlStat();
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(sqlStat.getSlowMillis());
+        this.sampleIntervalMillis = sqlStat.getSampleIntervalMillis();
+        this.maxFingerprints = sqlStat.getMaxFingerprints();
+        this.maxFormatLength = sqlStat.getMaxFormatLength();
+    }
+
+    @Override
+    protected void statementExecuteUpdateBefore(StatementProxy statement, String sql) {
+        statement.setLastExecuteStartNano();
+    }
+
+    @Override
+    protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
+        record(statement, sql, Math.max(0, updateCount), false);
+    }
+
+    @Override
+    protected void statementExecuteQueryBefore(StatementProxy statement, String sql) {
+        statement.setLastExecuteStartNano();
+    }
+
+    @Override
+    protected void statementExecuteQueryAfter(StatementProxy statement, String sql, ResultSetProxy resultSet) {
+        // 读取的行数在结果集关闭时累加
+        record(statement, sql, 0, false);
+    }
+
+    @Override
+    protected void statementExecuteBefore(StatementProxy statement, String sql) {
+        statement.setLastExecuteStartNano();
+    }
+
+    @Override
+    protected void statementExecuteAfter(StatementProxy statement, String sql, boolean result) {
+        long rows = 0;
+        if (!result) {
+            try {
+                rows = Math.max(0, statement.getRawObject().getUpdateCount());
+            } catch (SQLException ignored) {
+                // 只影响行数统计
+            }
+        }
+        record(statement, sql, rows, false);
+    }
+
+    @Override
+    protected void statementExecuteBatchBefore(StatementProxy statement) {
+        statement.setLastExecuteStartNano();
+    }
+
+    @Override
+    protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
+        long rows = 0;
+        if (result != null) {
+            for (int count : result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+        }
+        record(statement, batchSql(statement), rows, false);
+    }
+
+    @Override
+    protected void statement_executeErrorAfter(StatementProxy statement, String sql, Throwable error) {
+        record(statement, sql == null ? batchSql(statement) : sql, 0, true);
+    }
+
+    @Override
+    public void resultSet_close(FilterChain chain, ResultSetProxy resultSet) throws SQLException {
+        String sql = resultSet.getSql();
+        if (sql != null) {
+            stat(sql).rows.add(resultSet.getFetchRowCount());
+        }
+        super.resultSet_close(chain, resultSet);
+    }
+
+    /**
+     * 各指纹的统计，按累计耗时倒序
+     */
+    public List<SqlStat> getStats() {
+        List<SqlStat> list = new ArrayList<>(stats.values());
+        list.sort(Comparator.comparingLong((SqlStat stat) -> stat.latency.getTotal()).reversed());
+        return list;
+    }
+
+    @ManagedAttribute(description = "已统计的sql指纹数")
+    public int getFingerprintCount() {
+        return stats.size();
+    }
+
+    @ManagedAttribute(description = "慢sql次数")
+    public long getSlowCount() {
+        return slowCount.sum();
+    }
+
+    /**
+     * 按累计耗时倒序输出前limit个指纹的统计，耗时单位毫秒
+     */
+    @ManagedOperation(description = "按累计耗时倒序输出前limit个sql指纹的统计")
+    public String report(int limit) {
+        StringBuilder sb = new StringBuilder("count\terrors\trows\tp50\tp99\tmax\ttotal\tslow\tsql\n");
+        List<SqlStat> list = getStats();
+        for (SqlStat stat : list.subList(0, Math.min(Math.max(0, limit), list.size()))) {
+            LatencyHistogram latency = stat.latency;
+            sb.append(latency.getCount()).append('\t')
+                    .append(stat.getErrors()).append('\t')
+                    .append(stat.getRows()).append('\t')
+                    .append(LatencyHistogram.millis(latency.percentile(0.5))).append('\t')
+                    .append(LatencyHistogram.millis(latency.percentile(0.99))).append('\t')
+                    .append(LatencyHistogram.millis(latency.getMax())).append('\t')
+                    .append(LatencyHistogram.millis(latency.getTotal())).append('\t')
+                    .append(stat.getSlow()).append('\t')
+                    .append(stat.fingerprint).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @ManagedOperation(description = "最近一次采样的慢sql（已格式化）")
+    public String slowSample(String fingerprint) {
+        SqlStat stat = stats.get(fingerprint);
+        return stat == null ? null : stat.slowSample;
+    }
+
+    @ManagedOperation(description = "清空统计")
+    public void reset() {
+        sqlCache.clear();
+        stats.clear();
+        slowCount.reset();
+    }
+
+    private void record(StatementProxy statement, String sql, long rows, boolean error) {
+        long startNano = statement.getLastExecuteStartNano();
+        if (sql == null || startNano <= 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNano;
+        SqlStat stat = stat(sql);
+        stat.latency.record(nanos);
+        stat.rows.add(rows);
+        if (error) {
+            stat.errors.increment();
+        }
+        if (nanos >= slowNanos) {
+            slowCount.increment();
+            stat.slow.increment();
+            sampleSlow(statement, stat, sql, nanos);
+        }
+    }
+
+    private SqlStat stat(String sql) {
+        if (sql.length() > MAX_FINGERPRINT_LENGTH) {
+            return statOf(SqlFingerprint.of(sql, MAX_FINGERPRINT_LENGTH));
+        }
+        SqlStat stat = sqlCache.get(sql);
+        if (stat == null) {
+            stat = statOf(SqlFingerprint.of(sql, MAX_FINGERPRINT_LENGTH));
+            // 拼接字面量的sql每次都不同，缓存满时整体清空
+            if (sqlCache.size() >= MAX_CACHED_SQL) {
+                sqlCache.clear();
+            }
+            sqlCache.put(sql, stat);
+        }
+        return stat;
+    }
+
+    private SqlStat statOf(String fingerprint) {
+        SqlStat stat = stats.get(fingerprint);
+        if (stat == null) {
+            String key = stats.size() >= maxFingerprints ? OTHER : fingerprint;
+            stat = stats.computeIfAbsent(key, SqlStat::new);
+        }
+        return stat;
+    }
+
+    /**
+     * 每个指纹每个采样间隔最多格式化并打印一条慢sql
+     */
+    private void sampleSlow(StatementProxy statement, SqlStat stat, String sql, long nanos) {
+        long now = System.currentTimeMillis();
+        long last = stat.lastSampleMillis.get();
+        if (now - last < sampleIntervalMillis || !stat.lastSampleMillis.compareAndSet(last, now)) {
+            return;
+        }
+        String text;
+        if (sql.length() > maxFormatLength) {
+            text = sql.substring(0, maxFormatLength) + "\n... (" + sql.length() + " chars)";
+        } else {
+            try {
+                text = SQLUtils.format(sql, DbType.of(statement.getConnectionProxy().getDirectDataSource().getDbType()));
+            } catch (RuntimeException e) {
+                text = sql;
+            }
+        }
+        stat.slowSample = text;
+        log.warn("slow sql {} ms, fingerprint: {}\n{}", LatencyHistogram.millis(nanos), stat.fingerprint, text);
+    }
+
+    private static String batchSql(StatementProxy statement) {
+        return statement instanceof PreparedStatementProxy ? ((PreparedStatementProxy) statement).getSql() : statement.getBatchSql();
+    }
+
+    /**
+     * 单个sql指纹的统计
+     */
+    public static class SqlStat {
+
+        @Getter
+        private final String fingerprint;
+
+        @Getter
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder slow = new LongAdder();
+
+        private final AtomicLong lastSampleMillis = new AtomicLong();
+
+        @Getter
+        private volatile String slowSample;
+
+        SqlStat(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * 影响（更新）与读取（查询）的行数
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getSlow() {
+            return slow.sum();
+        }
+
+        @Override
+        public String toString() {
+            return fingerprint + " {" + latency + ", rows=" + getRows() + ", errors=" + getErrors() + ", slow=" + getSlow() + "}";
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package top.wecoding.filter;
+
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidPooledConnection;
+import com.alibaba.druid.proxy.jdbc.ConnectionProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import top.wecoding.metrics.TransactionProfiler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 连接占用统计过滤器
+ * 记录从连接池借出连接的等待耗时、连接从借出到归还的占用时长，按借出时所在的事务名计入{@link TransactionProfiler}，
+ * 并把事务中insert/update/delete影响的行数累加到当前事务
+ *
+ * @author ffd
+ * @see TransactionProfiler
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 100)
+@ConditionalOnProperty(prefix = "batch.tx-profile", name = "enabled", havingValue = "true")
+public class TransactionProfileFilter extends FilterEventAdapter {
+
+    private static final String BORROW = TransactionProfileFilter.class.getName() + ".borrow";
+
+    private final TransactionProfiler profiler;
+
+    public TransactionProfileFilter(TransactionProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public DruidPooledConnection dataSource_getConnection(FilterChain chain, DruidDataSource dataSource, long maxWaitMillis) throws SQLException {
+        long starTime = System.nanoTime();
+        DruidPooledConnection connection = null;
+        try {
+            connection = super.dataSource_getConnection(chain, dataSource, maxWaitMillis);
+        } finally {
+            long borrowNanos = System.nanoTime();
+            profiler.recordPoolWait(borrowNanos - starTime, connection == null);
+            if (connection != null) {
+                borrowed(connection, borrowNanos);
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public void dataSource_releaseConnection(FilterChain chain, DruidPooledConnection connection) throws SQLException {
+        Borrow borrow = borrow(connection);
+        if (borrow != null && borrow.nanos != 0) {
+            profiler.recordHold(borrow.name, System.nanoTime() - borrow.nanos);
+            borrow.nanos = 0;
+        }
+        super.dataSource_releaseConnection(chain, connection);
+    }
+
+    @Override
+    protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
+        profiler.addRows(Math.max(0, updateCount));
+    }
+
+    @Override
+    protected void statementExecuteAfter(StatementProxy statement, String sql, boolean result) {
+        if (!result && profiler.current() != null) {
+            try {
+                profiler.addRows(Math.max(0, statement.getRawObject().getUpdateCount()));
+            } catch (SQLException ignored) {
+                // 只影响行数统计
+            }
+        }
+    }
+
+    @Override
+    protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
+        if (result != null && profiler.current() != null) {
+            long rows = 0;
+            for (int count : result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+            profiler.addRows(rows);
+        }
+    }
+
+    /**
+     * 借出信息保存在物理连接的属性上，每个物理连接复用同一个对象
+     */
+    private void borrowed(DruidPooledConnection connection, long borrowNanos) {
+        Connection raw = connection.getConnection();
+        if (!(raw instanceof ConnectionProxy)) {
+            return;
+        }
+        Borrow borrow = (Borrow) ((ConnectionProxy) raw).getAttribute(BORROW);
+        if (borrow == null) {
+            borrow = new Borrow();
+            ((ConnectionProxy) raw).putAttribute(BORROW, borrow);
+        }
+        borrow.name = profiler.currentName();
+        borrow.nanos = borrowNanos;
+    }
+
+    private static Borrow borrow(DruidPooledConnection connection) {
+        Connection raw = connection.getConnection();
+        return raw instanceof ConnectionProxy ? (Borrow) ((ConnectionProxy) raw).getAttribute(BORROW) : null;
+    }
+
+    private static class Borrow {
+
+        private String name;
+
+        private long nanos;
+    }
+}
@@ -0,0 +1,65 @@
+package top.wecoding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 单个批次的JFR事件，事件时长即批次的总耗时
+ * 默认不启用，由录制配置（jfr/batch.jfc）打开；clientTime为总耗时减去绑定、执行、提交后剩余的客户端开销（组装、序列化、hibernate刷新等）
+ *
+ * @author ffd
+ */
+@Name("top.wecoding.BatchChunk")
+@Label("Batch Chunk")
+@Category("Batch")
+@Description("批量写入的一个批次")
+@Enabled(false)
+@StackTrace(false)
+public class BatchChunkEvent extends jdk.jfr.Event {
+
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Target")
+    @Description("表名、集合名或mapper语句")
+    public String target;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Statements")
+    @Description("发送到数据库的语句或命令次数")
+    public long statements;
+
+    @Label("Bytes Sent")
+    @Description("按sql文本与参数值估算的发送字节数")
+    @DataAmount
+    public long bytes;
+
+    @Label("Bind Time")
+    @Timespan
+    public long bindTime;
+
+    @Label("Execute Time")
+    @Timespan
+    public long executeTime;
+
+    @Label("Commit Time")
+    @Timespan
+    public long commitTime;
+
+    @Label("Client Time")
+    @Timespan
+    public long clientTime;
+
+    @Label("Allocated")
+    @Description("批次期间当前线程分配的堆内存")
+    @DataAmount
+    public long allocated;
+}
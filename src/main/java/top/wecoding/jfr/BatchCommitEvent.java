@@ -0,0 +1,32 @@
+package top.wecoding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 批次结束后才提交的事务（如外层@Transactional、mybatis-plus在spring事务中的saveBatch）的JFR事件，
+ * 事件时长即提交耗时，chunks/rows为本次提交包含的批次与行数
+ *
+ * @author ffd
+ */
+@Name("top.wecoding.BatchCommit")
+@Label("Batch Commit")
+@Category("Batch")
+@Description("提交批次所在的事务")
+@Enabled(false)
+@StackTrace(false)
+public class BatchCommitEvent extends jdk.jfr.Event {
+
+    @Label("Chunks")
+    public long chunks;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Statements")
+    public long statements;
+}
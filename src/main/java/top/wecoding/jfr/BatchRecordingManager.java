@@ -0,0 +1,186 @@
+package top.wecoding.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import top.wecoding.batch.BatchProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 批次JFR录制管理
+ * 通过JMX（top.wecoding:type=BatchRecording）在运行中的任务上开始、停止、转储录制，并在录制中切换录制配置：
+ * batch只打开批次事件与gc、较慢的socket读写，开销接近于零；batch-detail另加堆栈、方法采样与分配采样，用于定位批次内的热点；
+ * 也可以使用jdk自带的default、profile。也可以不经过这里，用 jcmd &lt;pid&gt; JFR.start settings=classpath中的jfc文件
+ *
+ * @author ffd
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "top.wecoding:type=BatchRecording", description = "批次JFR录制")
+@ConditionalOnClass(name = "jdk.jfr.Recording")
+@ConditionalOnProperty(prefix = "batch.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BatchRecordingManager {
+
+    private static final String[] PROFILES = {"batch", "batch-detail", "default", "profile"};
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final BatchProperties.Jfr properties;
+
+    private Recording recording;
+
+    private String profile;
+
+    public BatchRecordingManager(BatchProperties batchProperties) {
+        this.properties = batchProperties.getJfr();
+        this.profile = properties.getProfile();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (properties.isRecordOnStartup()) {
+            start(profile);
+        }
+    }
+
+    /**
+     * 关闭时停止录制并转储
+     */
+    @PreDestroy
+    public void destroy() {
+        if (isRecording()) {
+            stop();
+        }
+    }
+
+    /**
+     * 按录制配置开始录制
+     *
+     * @param profile 录制配置，为空时使用batch.jfr.profile
+     */
+    @ManagedOperation(description = "按录制配置（batch、batch-detail、default、profile）开始录制")
+    public synchronized void start(String profile) {
+        if (isRecording()) {
+            throw new IllegalStateException("batch recording is already running with profile " + this.profile);
+        }
+        String name = profile == null || profile.isEmpty() ? properties.getProfile() : profile;
+        Recording newRecording = new Recording(configuration(name));
+        newRecording.setName("batch-" + name);
+        newRecording.setToDisk(true);
+        newRecording.start();
+        this.recording = newRecording;
+        this.profile = name;
+        log.info("batch recording started with profile {}", name);
+    }
+
+    /**
+     * 录制中切换录制配置，之前录制的事件保留在同一录制中
+     */
+    @ManagedOperation(description = "录制中切换录制配置")
+    public synchronized void switchProfile(String profile) {
+        if (!isRecording()) {
+            throw new IllegalStateException("batch recording is not running");
+        }
+        recording.setSettings(configuration(profile).getSettings());
+        this.profile = profile;
+        log.info("batch recording switched to profile {}", profile);
+    }
+
+    /**
+     * 转储当前录制的内容，录制继续
+     *
+     * @return jfr文件路径
+     */
+    @ManagedOperation(description = "转储当前录制的内容，录制继续")
+    public synchronized String dump() {
+        if (!isRecording()) {
+            throw new IllegalStateException("batch recording is not running");
+        }
+        return dumpTo(recording);
+    }
+
+    /**
+     * 停止录制并转储
+     *
+     * @return jfr文件路径
+     */
+    @ManagedOperation(description = "停止录制并转储")
+    public synchronized String stop() {
+        if (!isRecording()) {
+            throw new IllegalStateException("batch recording is not running");
+        }
+        try {
+            recording.stop();
+            String file = dumpTo(recording);
+            log.info("batch recording stopped, dumped to {}", file);
+            return file;
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @ManagedAttribute(description = "是否在录制")
+    public synchronized boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    @ManagedAttribute(description = "当前（或下次开始时默认）的录制配置")
+    public synchronized String getProfile() {
+        return profile;
+    }
+
+    @ManagedAttribute(description = "可用的录制配置")
+    public String[] getProfiles() {
+        return PROFILES.clone();
+    }
+
+    /**
+     * 类路径jfr/目录下的同名jfc文件优先，否则使用jdk自带的配置
+     */
+    static Configuration configuration(String profile) {
+        ClassPathResource resource = new ClassPathResource("jfr/" + profile + ".jfc");
+        try {
+            if (resource.exists()) {
+                try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                    return Configuration.create(reader);
+                }
+            }
+            return Configuration.getConfiguration(profile);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("unknown jfr profile: " + profile, e);
+        }
+    }
+
+    private String dumpTo(Recording target) {
+        try {
+            Path directory = Paths.get(properties.getDumpDirectory());
+            Files.createDirectories(directory);
+            Path file = directory.resolve(target.getName() + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+            target.dump(file);
+            return file.toAbsolutePath().toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("can not dump batch recording", e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package top.wecoding.jfr;
+
+import jdk.jfr.EventType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 当前线程正在写入的批次，结束时提交为{@link BatchChunkEvent}
+ * 未在录制或录制配置未启用批次事件时begin返回{@link #NOOP}，各add方法为空操作，只有一次ThreadLocal读取的开销；
+ * 批次嵌套时（如BatchWriter内部调用mybatis-plus的批量执行）外层生效，内层得到的仍是外层批次，
+ * 由druid过滤器、mybatis拦截器、mongo命令监听器把绑定、执行、提交耗时与发送字节数累加到当前批次
+ * <pre>
+ * try (ChunkTrace trace = ChunkTrace.begin("jdbc_template", "batch_demo")) {
+ *     trace.addRows(chunk.size());
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author ffd
+ */
+public final class ChunkTrace implements AutoCloseable {
+
+    /**
+     * 不记录的空批次
+     */
+    public static final ChunkTrace NOOP = new ChunkTrace(null, null, null);
+
+    /**
+     * 运行时是否带有JFR（jdk 8u272之前的jdk8没有）
+     */
+    private static final boolean AVAILABLE = isPresent("jdk.jfr.Event");
+
+    private static final ThreadLocal<ChunkTrace> CURRENT = new ThreadLocal<>();
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = allocationMXBean();
+
+    private final String strategy;
+
+    private final String target;
+
+    /**
+     * BatchChunkEvent，以Object持有，没有JFR的运行时不会加载事件类
+     */
+    private final Object event;
+
+    private final long startNanos;
+
+    private final long startAllocated;
+
+    private long rows;
+
+    private long statements;
+
+    private long bytes;
+
+    private long bindNanos;
+
+    private long executeNanos;
+
+    private long commitNanos;
+
+    private long executeStartNanos;
+
+    private ChunkTrace(String strategy, String target, Object event) {
+        this.strategy = strategy;
+        this.target = target;
+        this.event = event;
+        this.startNanos = event == null ? 0 : System.nanoTime();
+        this.startAllocated = event == null ? 0 : allocatedBytes();
+    }
+
+    /**
+     * 开始一个批次，当前线程已有批次或批次事件未启用时返回{@link #NOOP}
+     *
+     * @param strategy 写入方式，如mybatis、jdbc_template、jpa、mongo
+     * @param target   表名、集合名或mapper语句
+     */
+    public static ChunkTrace begin(String strategy, String target) {
+        if (CURRENT.get() != null || !isEnabled()) {
+            return NOOP;
+        }
+        ChunkTrace trace = new ChunkTrace(strategy, target, Events.newChunkEvent());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * 批次事件是否正在被录制
+     */
+    public static boolean isEnabled() {
+        return AVAILABLE && Events.isChunkEnabled();
+    }
+
+    /**
+     * 当前线程的批次，没有时返回{@link #NOOP}
+     */
+    public static ChunkTrace current() {
+        ChunkTrace trace = CURRENT.get();
+        return trace == null ? NOOP : trace;
+    }
+
+    /**
+     * 批次结束后才提交的事务开始提交，与{@link #commitFinished}成对调用
+     *
+     * @return 提交事件，未启用时为null
+     */
+    public static Object commitStarted() {
+        return AVAILABLE ? Events.newCommitEvent() : null;
+    }
+
+    /**
+     * 事务提交结束
+     *
+     * @param commitEvent {@link #commitStarted()}的返回值
+     * @param chunks      本次提交包含的批次数
+     * @param rows        本次提交包含的行数
+     * @param statements  本次提交包含的语句数
+     */
+    public static void commitFinished(Object commitEvent, long chunks, long rows, long statements) {
+        if (commitEvent != null) {
+            Events.commit(commitEvent, chunks, rows, statements);
+        }
+    }
+
+    public boolean isActive() {
+        return this != NOOP;
+    }
+
+    public void addRows(long rows) {
+        if (this != NOOP) {
+            this.rows += rows;
+        }
+    }
+
+    public void addStatements(long statements) {
+        if (this != NOOP) {
+            this.statements += statements;
+        }
+    }
+
+    public void addBytes(long bytes) {
+        if (this != NOOP) {
+            this.bytes += bytes;
+        }
+    }
+
+    public void addBind(long nanos) {
+        if (this != NOOP) {
+            this.bindNanos += nanos;
+        }
+    }
+
+    public void addExecute(long nanos) {
+        if (this != NOOP) {
+            this.executeNanos += nanos;
+        }
+    }
+
+    public void addCommit(long nanos) {
+        if (this != NOOP) {
+            this.commitNanos += nanos;
+        }
+    }
+
+    /**
+     * 语句开始执行，与{@link #executed()}成对调用
+     */
+    public void executing() {
+        if (this != NOOP) {
+            executeStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 语句执行结束，累加执行耗时与语句数
+     */
+    public void executed() {
+        if (this != NOOP && executeStartNanos != 0) {
+            executeNanos += System.nanoTime() - executeStartNanos;
+            executeStartNanos = 0;
+            statements++;
+        }
+    }
+
+    /**
+     * 结束批次并提交事件，只有begin得到的批次本身会结束，重复调用无效
+     */
+    public void end() {
+        if (this == NOOP || CURRENT.get() != this) {
+            return;
+        }
+        CURRENT.remove();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long clientNanos = Math.max(0, elapsedNanos - bindNanos - executeNanos - commitNanos);
+        Events.commit(event, strategy, target, rows, statements, bytes, bindNanos, executeNanos, commitNanos,
+                clientNanos, Math.max(0, allocatedBytes() - startAllocated));
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN == null ? 0 : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled()) {
+            return (com.sun.management.ThreadMXBean) threadMXBean;
+        }
+        return null;
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, ChunkTrace.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 直接引用事件类的部分，只在运行时带有JFR时加载
+     */
+    private static final class Events {
+
+        private static final EventType CHUNK_TYPE = EventType.getEventType(BatchChunkEvent.class);
+
+        private static final EventType COMMIT_TYPE = EventType.getEventType(BatchCommitEvent.class);
+
+        static boolean isChunkEnabled() {
+            return CHUNK_TYPE.isEnabled();
+        }
+
+        static Object newChunkEvent() {
+            BatchChunkEvent event = new BatchChunkEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commit(Object chunkEvent, String strategy, String target, long rows, long statements, long bytes,
+                           long bindNanos, long executeNanos, long commitNanos, long clientNanos, long allocated) {
+            BatchChunkEvent event = (BatchChunkEvent) chunkEvent;
+            event.end();
+            if (!event.shouldCommit()) {
+                return;
+            }
+            event.strategy = strategy;
+            event.target = target;
+            event.rows = rows;
+            event.statements = statements;
+            event.bytes = bytes;
+            event.bindTime = bindNanos;
+            event.executeTime = executeNanos;
+            event.commitTime = commitNanos;
+            event.clientTime = clientNanos;
+            event.allocated = allocated;
+            event.commit();
+        }
+
+        static Object newCommitEvent() {
+            if (!COMMIT_TYPE.isEnabled()) {
+                return null;
+            }
+            BatchCommitEvent event = new BatchCommitEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commit(Object commitEvent, long chunks, long rows, long statements) {
+            BatchCommitEvent event = (BatchCommitEvent) commitEvent;
+            event.end();
+            if (event.shouldCommit()) {
+                event.chunks = chunks;
+                event.rows = rows;
+                event.statements = statements;
+                event.commit();
+            }
+        }
+    }
+}
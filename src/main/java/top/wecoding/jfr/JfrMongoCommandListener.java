@@ -0,0 +1,59 @@
+package top.wecoding.jfr;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批次JFR事件的mongo采集监听器
+ * 同步驱动在调用线程上回调，当前线程有批次时把命令次数、驱动统计的命令耗时与命令的bson大小累加到批次；
+ * bson大小需要把命令再编码一次，只在录制批次事件时发生
+ *
+ * @author ffd
+ * @see ChunkTrace
+ */
+public class JfrMongoCommandListener implements CommandListener {
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        ChunkTrace trace = ChunkTrace.current();
+        if (trace.isActive()) {
+            trace.addBytes(bsonSize(event));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        executed(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        executed(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private static void executed(long nanos) {
+        ChunkTrace trace = ChunkTrace.current();
+        if (trace.isActive()) {
+            trace.addExecute(nanos);
+            trace.addStatements(1);
+        }
+    }
+
+    private static long bsonSize(CommandStartedEvent event) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            CODEC.encode(writer, event.getCommand(), EncoderContext.builder().build());
+            return buffer.getPosition();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package top.wecoding.jfr;
+
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+
+/**
+ * 批次JFR事件的mybatis采集拦截器
+ * BATCH执行器（IService#saveBatch、SqlHelper#executeBatch）上两次flushStatements之间的语句视为一个批次：
+ * 第一次绑定参数时开始批次，flushStatements/commit/rollback/close时结束，参数绑定（parameterize）的耗时计入bindTime；
+ * 已在其他批次中（如MybatisBatchWriter）时只累加绑定耗时。未在录制时每条语句只有一次ThreadLocal读取
+ *
+ * @author ffd
+ * @see ChunkTrace
+ */
+@Component
+@ConditionalOnProperty(prefix = "batch.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "parameterize", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class}),
+        @Signature(type = Executor.class, method = "flushStatements", args = {}),
+        @Signature(type = Executor.class, method = "commit", args = {boolean.class}),
+        @Signature(type = Executor.class, method = "rollback", args = {boolean.class}),
+        @Signature(type = Executor.class, method = "close", args = {boolean.class})
+})
+public class JfrMybatisInterceptor implements Interceptor {
+
+    private static final String STRATEGY = "mybatis";
+
+    /**
+     * 由本拦截器开始的批次
+     */
+    private final ThreadLocal<ChunkTrace> owned = new ThreadLocal<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (invocation.getTarget() instanceof StatementHandler) {
+            return "parameterize".equals(invocation.getMethod().getName()) ? parameterize(invocation) : batch(invocation);
+        }
+        ChunkTrace trace = owned.get();
+        if (trace == null) {
+            return invocation.proceed();
+        }
+        try {
+            return invocation.proceed();
+        } finally {
+            owned.remove();
+            trace.end();
+        }
+    }
+
+    private Object parameterize(Invocation invocation) throws Throwable {
+        ChunkTrace trace = ChunkTrace.current();
+        if (!trace.isActive() && ChunkTrace.isEnabled()) {
+            trace = beginIfBatch((StatementHandler) PluginUtils.realTarget(invocation.getTarget()));
+        }
+        if (!trace.isActive()) {
+            return invocation.proceed();
+        }
+        long starTime = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            trace.addBind(System.nanoTime() - starTime);
+        }
+    }
+
+    private Object batch(Invocation invocation) throws Throwable {
+        ChunkTrace trace = owned.get();
+        if (trace != null) {
+            trace.addRows(1);
+        }
+        return invocation.proceed();
+    }
+
+    /**
+     * BATCH执行器上的语句开始一个批次，目标为mapper语句的id
+     */
+    private ChunkTrace beginIfBatch(StatementHandler handler) {
+        PluginUtils.MPStatementHandler mpStatementHandler = PluginUtils.mpStatementHandler(handler);
+        Executor executor = PluginUtils.realTarget(mpStatementHandler.executor());
+        if (!(executor instanceof BatchExecutor)) {
+            return ChunkTrace.NOOP;
+        }
+        ChunkTrace trace = ChunkTrace.begin(STRATEGY, mpStatementHandler.mappedStatement().getId());
+        if (trace.isActive()) {
+            owned.set(trace);
+        }
+        return trace;
+    }
+}
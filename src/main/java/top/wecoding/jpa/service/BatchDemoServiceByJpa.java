@@ -3,6 +3,7 @@ package top.wecoding.jpa.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import top.wecoding.jfr.ChunkTrace;
 import top.wecoding.jpa.pojo.BatchDemo;
 import top.wecoding.jpa.repository.BatchDemoRepository;
 
@@ -93,18 +94,28 @@ public class BatchDemoServiceByJpa {
     @Transactional(rollbackFor = Exception.class)
     public void insert8() {
         long starTime = System.currentTimeMillis();
-        for (int i = 0; i < 10000; i++) {
-            BatchDemo batchDemo = new BatchDemo();
-            batchDemo.setId(i);
-            batchDemo.setBatchName("name" + i);
-            batchDemo.setBatchValue("value" + i);
-            entityManager.persist(batchDemo);
-            if (i % 500 == 0) {
-                entityManager.flush();
-                entityManager.clear();
+        // 每次flush/clear之间为一个批次，hibernate的参数绑定发生在flush中，计入批次事件的clientTime
+        // 异常时也要结束当前批次，否则ThreadLocal中残留的批次会让该线程之后的begin都返回NOOP
+        ChunkTrace trace = ChunkTrace.begin("jpa", "batch_demo");
+        try {
+            for (int i = 0; i < 10000; i++) {
+                BatchDemo batchDemo = new BatchDemo();
+                batchDemo.setId(i);
+                batchDemo.setBatchName("name" + i);
+                batchDemo.setBatchValue("value" + i);
+                entityManager.persist(batchDemo);
+                trace.addRows(1);
+                if (i % 500 == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    trace.end();
+                    trace = ChunkTrace.begin("jpa", "batch_demo");
+                }
             }
+            entityManager.flush();
+        } finally {
+            trace.end();
         }
-        entityManager.flush();
         System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
     }
 
@@ -0,0 +1,510 @@
+package top.wecoding.metrics;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import top.wecoding.batch.BatchProperties;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事务与连接占用统计
+ * 按事务名（@Transactional方法，编程式事务未命名时取调用方法）统计事务耗时、提交/回滚次数、写入行数、
+ * 连接占用时长（从连接池借出到归还）与等待连接的耗时，找出长时间占用连接、让其他任务等待连接的任务；
+ * 进行中的事务超过长事务阈值时打印所在线程的堆栈与已写入的行数，结束后保留在最近的长事务记录中。
+ * 事务由TransactionConfig包装的事务管理器记录，连接由TransactionProfileFilter记录，结果通过JMX（top.wecoding:type=TransactionProfiler）查看
+ *
+ * @author ffd
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "top.wecoding:type=TransactionProfiler", description = "事务与连接占用统计")
+@ConditionalOnProperty(prefix = "batch.tx-profile", name = "enabled", havingValue = "true")
+public class TransactionProfiler {
+
+    /**
+     * 事务外借出的连接
+     */
+    public static final String NON_TRANSACTIONAL = "(non-transactional)";
+
+    private static final String OTHER = "(other)";
+
+    private static final int MAX_STACK_DEPTH = 64;
+
+    private final long longNanos;
+
+    private final int maxSamples;
+
+    private final int maxNames;
+
+    /**
+     * 事务名 -> 统计
+     */
+    private final Map<String, TxStat> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 事务状态 -> 进行中的事务，提交或回滚时取出
+     */
+    private final Map<TransactionStatus, TxContext> running = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程上的事务，REQUIRES_NEW挂起的外层事务在下面
+     */
+    private final ThreadLocal<Deque<TxContext>> current = new ThreadLocal<>();
+
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+
+    private final LongAdder poolWaitFailures = new LongAdder();
+
+    private final LongAdder longCount = new LongAdder();
+
+    private final Deque<LongTransaction> longTransactions = new ConcurrentLinkedDeque<>();
+
+    public TransactionProfiler(BatchProperties batchProperties) {
+        BatchProperties.TxProfile txProfile = batchProperties.getTxProfile();
+        this.longNanos = TimeUnit.MILLISECONDS.toNanos(txProfile.getLongMillis());
+        this.maxSamples = txProfile.getMaxSamples();
+        this.maxNames = txProfile.getMaxNames();
+    }
+
+    /**
+     * 开启事务前调用，开启事务期间借出的连接计入该事务
+     *
+     * @param name 事务名
+     */
+    public TxContext begin(String name) {
+        TxContext context = new TxContext(name, Thread.currentThread());
+        Deque<TxContext> stack = current.get();
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+            current.set(stack);
+        }
+        stack.push(context);
+        return context;
+    }
+
+    /**
+     * 事务已开启，新事务开始追踪，加入已有事务的丢弃
+     */
+    public void begun(TxContext context, TransactionStatus status) {
+        if (status.isNewTransaction()) {
+            running.put(status, context);
+        } else {
+            remove(context);
+        }
+    }
+
+    /**
+     * 开启事务失败
+     */
+    public void failed(TxContext context) {
+        remove(context);
+    }
+
+    /**
+     * 提交或回滚前取出事务，不是由本统计开启的事务返回null
+     */
+    public TxContext completing(TransactionStatus status) {
+        return running.remove(status);
+    }
+
+    /**
+     * 事务已提交或回滚
+     *
+     * @param committed 是否提交成功
+     */
+    public void completed(TxContext context, boolean committed) {
+        long nanos = System.nanoTime() - context.startNanos;
+        remove(context);
+        TxStat stat = stat(context.name);
+        stat.duration.record(nanos);
+        (committed ? stat.commits : stat.rollbacks).increment();
+        stat.rows.add(context.getRows());
+        if (nanos >= longNanos) {
+            longCount.increment();
+            stat.longCount.increment();
+            longTransactions.addFirst(new LongTransaction(context, nanos, committed));
+            while (longTransactions.size() > maxSamples) {
+                longTransactions.pollLast();
+            }
+        }
+    }
+
+    /**
+     * 当前线程上进行中的事务，没有时返回null
+     */
+    public TxContext current() {
+        Deque<TxContext> stack = current.get();
+        if (stack == null) {
+            return null;
+        }
+        // 在其他线程上提交的事务不会从原线程的栈中移除，这里跳过
+        TxContext context = stack.peek();
+        while (context != null && context.ended) {
+            stack.pop();
+            context = stack.peek();
+        }
+        return context;
+    }
+
+    /**
+     * 当前线程上的事务名，事务外为{@link #NON_TRANSACTIONAL}
+     */
+    public String currentName() {
+        TxContext context = current();
+        return context == null ? NON_TRANSACTIONAL : context.name;
+    }
+
+    /**
+     * 累加当前事务写入的行数
+     */
+    public void addRows(long rows) {
+        TxContext context = current();
+        if (context != null) {
+            context.rows.add(rows);
+        }
+    }
+
+    /**
+     * 记录一次从连接池借出连接的等待耗时，计入当前事务
+     *
+     * @param failed 是否等待超时或借出失败
+     */
+    public void recordPoolWait(long nanos, boolean failed) {
+        poolWait.record(nanos);
+        TxStat stat = stat(currentName());
+        stat.poolWait.record(nanos);
+        if (failed) {
+            poolWaitFailures.increment();
+            stat.poolWaitFailures.increment();
+        }
+    }
+
+    /**
+     * 记录一次连接占用（借出到归还）
+     *
+     * @param name 借出连接时的事务名
+     */
+    public void recordHold(String name, long nanos) {
+        stat(name).hold.record(nanos);
+    }
+
+    /**
+     * 检查进行中的事务，超过长事务阈值的打印一次所在线程的堆栈
+     */
+    @Scheduled(fixedDelayString = "${batch.tx-profile.check-interval-millis:1000}")
+    public void detectLongTransactions() {
+        long now = System.nanoTime();
+        for (TxContext context : running.values()) {
+            long nanos = now - context.startNanos;
+            if (nanos >= longNanos && context.stack == null) {
+                context.stack = format(context.thread.getStackTrace());
+                log.warn("long transaction {} on thread {} running {} ms, {} rows so far\n{}", context.name,
+                        context.thread.getName(), TimeUnit.NANOSECONDS.toMillis(nanos), context.getRows(), context.stack);
+            }
+        }
+    }
+
+    /**
+     * 各事务名的统计，按连接占用的累计时长倒序
+     */
+    public List<TxStat> getStats() {
+        List<TxStat> list = new ArrayList<>(stats.values());
+        list.sort(Comparator.comparingLong((TxStat stat) -> stat.hold.getTotal()).reversed());
+        return list;
+    }
+
+    @ManagedAttribute(description = "进行中的事务数")
+    public int getRunningCount() {
+        return running.size();
+    }
+
+    @ManagedAttribute(description = "长事务次数")
+    public long getLongCount() {
+        return longCount.sum();
+    }
+
+    @ManagedAttribute(description = "借出连接的次数")
+    public long getPoolWaitCount() {
+        return poolWait.getCount();
+    }
+
+    @ManagedAttribute(description = "借出连接等待耗时p99（毫秒）")
+    public double getPoolWaitP99Millis() {
+        return LatencyHistogram.millis(poolWait.percentile(0.99));
+    }
+
+    @ManagedAttribute(description = "借出连接等待耗时最大值（毫秒）")
+    public double getPoolWaitMaxMillis() {
+        return LatencyHistogram.millis(poolWait.getMax());
+    }
+
+    @ManagedAttribute(description = "借出连接累计等待耗时（毫秒）")
+    public double getPoolWaitTotalMillis() {
+        return LatencyHistogram.millis(poolWait.getTotal());
+    }
+
+    @ManagedAttribute(description = "借出连接超时或失败的次数")
+    public long getPoolWaitFailures() {
+        return poolWaitFailures.sum();
+    }
+
+    /**
+     * 按连接占用的累计时长倒序输出前limit个事务名的统计，耗时单位毫秒
+     */
+    @ManagedOperation(description = "按连接占用的累计时长倒序输出前limit个事务名的统计")
+    public String report(int limit) {
+        StringBuilder sb = new StringBuilder("count\tcommits\trollbacks\trows\ttx_p50\ttx_p99\ttx_max\t"
+                + "hold_p99\thold_max\thold_total\twait_p99\twait_max\twait_total\twait_failures\tlong\tname\n");
+        List<TxStat> list = getStats();
+        for (TxStat stat : list.subList(0, Math.min(Math.max(0, limit), list.size()))) {
+            sb.append(stat.duration.getCount()).append('\t')
+                    .append(stat.getCommits()).append('\t')
+                    .append(stat.getRollbacks()).append('\t')
+                    .append(stat.getRows()).append('\t')
+                    .append(LatencyHistogram.millis(stat.duration.percentile(0.5))).append('\t')
+                    .append(LatencyHistogram.millis(stat.duration.percentile(0.99))).append('\t')
+                    .append(LatencyHistogram.millis(stat.duration.getMax())).append('\t')
+                    .append(LatencyHistogram.millis(stat.hold.percentile(0.99))).append('\t')
+                    .append(LatencyHistogram.millis(stat.hold.getMax())).append('\t')
+                    .append(LatencyHistogram.millis(stat.hold.getTotal())).append('\t')
+                    .append(LatencyHistogram.millis(stat.poolWait.percentile(0.99))).append('\t')
+                    .append(LatencyHistogram.millis(stat.poolWait.getMax())).append('\t')
+                    .append(LatencyHistogram.millis(stat.poolWait.getTotal())).append('\t')
+                    .append(stat.getPoolWaitFailures()).append('\t')
+                    .append(stat.getLongCount()).append('\t')
+                    .append(stat.name).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @ManagedOperation(description = "进行中的事务")
+    public String runningTransactions() {
+        long now = System.nanoTime();
+        StringBuilder sb = new StringBuilder("millis\trows\tthread\tname\n");
+        for (TxContext context : running.values()) {
+            sb.append(TimeUnit.NANOSECONDS.toMillis(now - context.startNanos)).append('\t')
+                    .append(context.getRows()).append('\t')
+                    .append(context.thread.getName()).append('\t')
+                    .append(context.name).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @ManagedOperation(description = "最近的长事务（含超过阈值时所在线程的堆栈）")
+    public String longTransactions() {
+        StringBuilder sb = new StringBuilder();
+        for (LongTransaction longTransaction : longTransactions) {
+            sb.append(longTransaction).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @ManagedOperation(description = "清空统计")
+    public void reset() {
+        stats.clear();
+        poolWait.reset();
+        poolWaitFailures.reset();
+        longCount.reset();
+        longTransactions.clear();
+    }
+
+    /**
+     * 未命名的编程式事务取调用事务管理器的业务方法作为事务名
+     */
+    public static String callerName() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith("org.springframework.") || className.startsWith("java.") || className.startsWith("jdk.")
+                    || className.startsWith("sun.") || className.startsWith("com.sun.") || className.contains("$$")
+                    || className.startsWith(TransactionProfiler.class.getPackage().getName() + ".")) {
+                continue;
+            }
+            return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName();
+        }
+        return "(unknown)";
+    }
+
+    private TxStat stat(String name) {
+        TxStat stat = stats.get(name);
+        if (stat == null) {
+            String key = stats.size() >= maxNames ? OTHER : name;
+            stat = stats.computeIfAbsent(key, TxStat::new);
+        }
+        return stat;
+    }
+
+    private void remove(TxContext context) {
+        context.ended = true;
+        Deque<TxContext> stack = current.get();
+        if (stack != null) {
+            stack.remove(context);
+            if (stack.isEmpty()) {
+                current.remove();
+            }
+        }
+    }
+
+    private static String format(StackTraceElement[] stackTrace) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < stackTrace.length && i < MAX_STACK_DEPTH; i++) {
+            sb.append("\tat ").append(stackTrace[i]).append('\n');
+        }
+        if (stackTrace.length > MAX_STACK_DEPTH) {
+            sb.append("\t... ").append(stackTrace.length - MAX_STACK_DEPTH).append(" more\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 进行中的事务
+     */
+    public static class TxContext {
+
+        private final String name;
+
+        private final Thread thread;
+
+        private final long startNanos = System.nanoTime();
+
+        private final LongAdder rows = new LongAdder();
+
+        private volatile boolean ended;
+
+        /**
+         * 超过长事务阈值时所在线程的堆栈
+         */
+        private volatile String stack;
+
+        TxContext(String name, Thread thread) {
+            this.name = name;
+            this.thread = thread;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+    }
+
+    /**
+     * 单个事务名的统计
+     */
+    public static class TxStat {
+
+        @Getter
+        private final String name;
+
+        /**
+         * 事务耗时（开启到提交或回滚结束）
+         */
+        @Getter
+        private final LatencyHistogram duration = new LatencyHistogram();
+
+        /**
+         * 连接占用时长（借出到归还）
+         */
+        @Getter
+        private final LatencyHistogram hold = new LatencyHistogram();
+
+        /**
+         * 借出连接的等待耗时
+         */
+        @Getter
+        private final LatencyHistogram poolWait = new LatencyHistogram();
+
+        private final LongAdder commits = new LongAdder();
+
+        private final LongAdder rollbacks = new LongAdder();
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder poolWaitFailures = new LongAdder();
+
+        private final LongAdder longCount = new LongAdder();
+
+        TxStat(String name) {
+            this.name = name;
+        }
+
+        public long getCommits() {
+            return commits.sum();
+        }
+
+        public long getRollbacks() {
+            return rollbacks.sum();
+        }
+
+        /**
+         * 事务中insert/update/delete影响的行数
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getPoolWaitFailures() {
+            return poolWaitFailures.sum();
+        }
+
+        public long getLongCount() {
+            return longCount.sum();
+        }
+
+        @Override
+        public String toString() {
+            return name + " {tx: " + duration + ", hold: " + hold + ", wait: " + poolWait + ", commits=" + getCommits()
+                    + ", rollbacks=" + getRollbacks() + ", rows=" + getRows() + ", long=" + getLongCount() + "}";
+        }
+    }
+
+    /**
+     * 已结束的长事务
+     */
+    private static class LongTransaction {
+
+        private final String name;
+
+        private final String thread;
+
+        private final long millis;
+
+        private final long rows;
+
+        private final boolean committed;
+
+        private final String stack;
+
+        LongTransaction(TxContext context, long nanos, boolean committed) {
+            this.name = context.name;
+            this.thread = context.thread.getName();
+            this.millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            this.rows = context.getRows();
+            this.committed = committed;
+            this.stack = context.stack;
+        }
+
+        @Override
+        public String toString() {
+            return name + " on " + thread + ": " + millis + " ms, " + rows + " rows, " + (committed ? "committed" : "rolled back")
+                    + (stack == null ? " (finished before the check, no stack)\n" : "\n" + stack);
+        }
+    }
+}
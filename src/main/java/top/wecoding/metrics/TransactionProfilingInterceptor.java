@@ -0,0 +1,82 @@
+package top.wecoding.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * 事务管理器的拦截器，把getTransaction/commit/rollback记录到{@link TransactionProfiler}
+ * AbstractPlatformTransactionManager的这几个方法是final的，只能以接口代理包装事务管理器
+ *
+ * @author ffd
+ */
+public class TransactionProfilingInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<TransactionProfiler> profilerProvider;
+
+    private volatile TransactionProfiler profiler;
+
+    public TransactionProfilingInterceptor(ObjectProvider<TransactionProfiler> profilerProvider) {
+        this.profilerProvider = profilerProvider;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        if (args.length != 1) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        if ("getTransaction".equals(method)) {
+            return getTransaction(invocation, (TransactionDefinition) args[0]);
+        }
+        if (("commit".equals(method) || "rollback".equals(method)) && args[0] instanceof TransactionStatus) {
+            return complete(invocation, (TransactionStatus) args[0], "commit".equals(method));
+        }
+        return invocation.proceed();
+    }
+
+    private Object getTransaction(MethodInvocation invocation, TransactionDefinition definition) throws Throwable {
+        TransactionProfiler transactionProfiler = profiler();
+        String name = definition == null ? null : definition.getName();
+        TransactionProfiler.TxContext context = transactionProfiler.begin(name == null ? TransactionProfiler.callerName() : name);
+        TransactionStatus status;
+        try {
+            status = (TransactionStatus) invocation.proceed();
+        } catch (Throwable e) {
+            transactionProfiler.failed(context);
+            throw e;
+        }
+        transactionProfiler.begun(context, status);
+        return status;
+    }
+
+    private Object complete(MethodInvocation invocation, TransactionStatus status, boolean commit) throws Throwable {
+        TransactionProfiler transactionProfiler = profiler();
+        TransactionProfiler.TxContext context = transactionProfiler.completing(status);
+        if (context == null) {
+            return invocation.proceed();
+        }
+        // 标记为只回滚的事务在commit时回滚
+        boolean committed = commit && !status.isRollbackOnly();
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            committed = false;
+            throw e;
+        } finally {
+            transactionProfiler.completed(context, committed);
+        }
+    }
+
+    private TransactionProfiler profiler() {
+        TransactionProfiler transactionProfiler = profiler;
+        if (transactionProfiler == null) {
+            transactionProfiler = profilerProvider.getObject();
+            profiler = transactionProfiler;
+        }
+        return transactionProfiler;
+    }
+}
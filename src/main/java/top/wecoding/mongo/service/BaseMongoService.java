@@ -43,6 +43,14 @@ public interface BaseMongoService<T> {
      */
     void removeById(T entity);
 
+    /**
+     * 根据 ID 批量删除，连续的整数ID合并为范围条件，其余分组为 $in 条件，每组一次删除
+     *
+     * @param idList 主键ID列表
+     * @return 删除的记录数
+     */
+    long removeByIds(Collection<? extends Serializable> idList);
+
     /**
      * 根据 Query 条件，删除记录
      *
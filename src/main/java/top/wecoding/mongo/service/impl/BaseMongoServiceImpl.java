@@ -6,6 +6,9 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.batch.delete.IdRangeCompactor;
+import top.wecoding.jfr.ChunkTrace;
 import top.wecoding.mongo.service.BaseMongoService;
 
 import javax.annotation.Resource;
@@ -27,6 +30,17 @@ public class BaseMongoServiceImpl<T> implements BaseMongoService<T> {
     @Qualifier("mongoTemplate")
     protected MongoTemplate mongoTemplate;
 
+    /**
+     * 批量删除时ID的分组方式，取batch.delete配置
+     */
+    protected IdRangeCompactor idRangeCompactor = new IdRangeCompactor();
+
+    @Resource
+    public void setBatchProperties(BatchProperties batchProperties) {
+        BatchProperties.Delete delete = batchProperties.getDelete();
+        this.idRangeCompactor = new IdRangeCompactor(delete.getMaxInSize(), delete.getMaxRangeSize(), delete.getMinRangeLength());
+    }
+
     @Override
     public T save(T entity) {
         mongoTemplate.save(entity);
@@ -35,7 +49,13 @@ public class BaseMongoServiceImpl<T> implements BaseMongoService<T> {
 
     @Override
     public Collection<T> saveBatch(Collection<T> entityList) {
-        return mongoTemplate.insertAll(entityList);
+        if (entityList.isEmpty() || !ChunkTrace.isEnabled()) {
+            return mongoTemplate.insertAll(entityList);
+        }
+        try (ChunkTrace trace = ChunkTrace.begin("mongo", mongoTemplate.getCollectionName(entityList.iterator().next().getClass()))) {
+            trace.addRows(entityList.size());
+            return mongoTemplate.insertAll(entityList);
+        }
     }
 
     @Override
@@ -50,6 +70,18 @@ public class BaseMongoServiceImpl<T> implements BaseMongoService<T> {
         mongoTemplate.remove(entity);
     }
 
+    @Override
+    public long removeByIds(Collection<? extends Serializable> idList) {
+        long deleted = 0;
+        for (IdRangeCompactor.IdChunk chunk : idRangeCompactor.compact(idList)) {
+            Criteria criteria = chunk.isRange()
+                    ? Criteria.where("id").gte(chunk.getFrom()).lte(chunk.getTo())
+                    : Criteria.where("id").in(chunk.getIds());
+            deleted += mongoTemplate.remove(new Query(criteria), this.getEntityClass()).getDeletedCount();
+        }
+        return deleted;
+    }
+
     @Override
     public void remove(Query query) {
         mongoTemplate.remove(query, TypeUtil.getClass(getClass()));
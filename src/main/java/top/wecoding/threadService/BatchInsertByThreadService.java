@@ -1,26 +1,40 @@
 package top.wecoding.threadService;
 
-import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.extra.spring.SpringUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import top.wecoding.batch.BatchProperties;
+import top.wecoding.batch.BatchWriterFactory;
+import top.wecoding.batch.buffer.GroupCommitBuffer;
+import top.wecoding.batch.pool.ConnectionPools;
+import top.wecoding.batch.pool.VirtualThreads;
 import top.wecoding.config.AsyncConfig;
 import top.wecoding.mybatis.domain.BatchDemo;
 import top.wecoding.mybatis.service.BatchDemoService;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 /**
  * 使用多线程持久化的时候对事务进行控制
@@ -31,9 +45,35 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @SuppressWarnings("all")
 public class BatchInsertByThreadService {
+    /**
+     * 工作线程各自开启新事务
+     */
+    private static final TransactionDefinition REQUIRES_NEW = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
     private final BatchDemoService batchDemoService;
     private final PlatformTransactionManager transactionManager;
-    private List<TransactionStatus> transactionStatuses = Collections.synchronizedList(new ArrayList<>());
+    private final DataSource dataSource;
+    private final BatchWriterFactory batchWriterFactory;
+    private final BatchProperties batchProperties;
+
+    /**
+     * 多线程持久化的工作线程，线程数不超过连接池最大连接数，空闲一分钟回收；开启虚拟线程模式时为虚拟线程
+     */
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int maxActive = ConnectionPools.maxActive(dataSource);
+        int maxThreads = maxActive > 0 ? maxActive : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = batchProperties.getVirtualThreads().isEnabled() && VirtualThreads.isSupported()
+                ? VirtualThreads.factory("BatchInsert-") : new CustomizableThreadFactory("BatchInsert-");
+        executor = new ThreadPoolExecutor(0, maxThreads, 1, TimeUnit.MINUTES, new SynchronousQueue<>(), threadFactory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
 
     /**
      * 事务失效，插入199条数据
@@ -60,55 +100,108 @@ public class BatchInsertByThreadService {
         System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
     }
 
+    /**
+     * 与insert0相同的并发单行保存，改为提交到组提交缓冲：并发的单行保存合并为多行插入与一次提交，
+     * 每行在所在批次提交后才算完成，第100条失败只影响它自己，其余199条写入
+     */
+    @SneakyThrows
+    public void insertByGroupCommit() {
+        ExecutorService executorService = SpringUtil.getBean(AsyncConfig.ExecutorType.WORK_EXECUTOR);
+        GroupCommitBuffer<BatchDemo> buffer = batchWriterFactory.getGroupCommitBuffer(BatchDemo.class);
+        long starTime = System.currentTimeMillis();
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 200; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (batchDemo.getId() == 100) {
+                    throw new RuntimeException("dashdkjashdk");
+                }
+                buffer.save(batchDemo).join();
+            }, executorService));
+        }
+        long failed = futures.stream().filter(future -> future.handle((v, e) -> e != null).join()).count();
+        System.out.println("失败：" + failed + "，" + buffer);
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+    }
+
     /**
      * 仿二阶段提交-解决多线程事务一致性
-     * 使用事务集合进行控制事务,注意如果事务数组大于数据库连接池的最大连接数就会报错，因为这条事务是基于数据库连接的
-     * 可以提前对保存数据分批处理在用多线程持久化
+     * 每个线程在自己的线程上开启事务并写入一个分片，写完后在屏障处等待其他线程，全部成功才各自提交，任一失败则全部回滚；
+     * 事务绑定在线程的连接上，提交与回滚都必须在开启事务的线程上执行。
+     * 并行度不超过连接池当前可借出的连接数，避免线程阻塞在获取连接上；提交阶段某个线程提交失败时其他线程可能已提交，无法做到严格的原子性
      *
      * @link {https://blog.csdn.net/qq273766764/article/details/119972911}
      */
-    @SneakyThrows
-    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = {Exception.class})
     public void insertBy2PC(List<BatchDemo> safeBatchDemos, Integer threadNums) {
-        if (safeBatchDemos == null || safeBatchDemos.isEmpty() || safeBatchDemos.size() < threadNums) {
+        if (safeBatchDemos == null || safeBatchDemos.isEmpty() || threadNums == null || threadNums <= 0) {
             throw new IllegalArgumentException("list or thread nums is illegal");
         }
-        //线程数量
-        ExecutorService executorService = Executors.newFixedThreadPool(threadNums);
+        int parallelism = Math.min(Math.min(ConnectionPools.parallelism(dataSource, threadNums), safeBatchDemos.size()),
+                Math.max(1, executor.getMaximumPoolSize() - executor.getActiveCount()));
         //每个线程处理的数量
-        int threadExecLength = (safeBatchDemos.size() + threadNums - 1) / threadNums;
+        int threadExecLength = (safeBatchDemos.size() + parallelism - 1) / parallelism;
+        List<List<BatchDemo>> partitions = new ArrayList<>(parallelism);
+        for (int from = 0; from < safeBatchDemos.size(); from += threadExecLength) {
+            partitions.add(safeBatchDemos.subList(from, Math.min(from + threadExecLength, safeBatchDemos.size())));
+        }
+        // 调用线程先注册，保证全部分片提交到线程池之前屏障不会前进
+        Phaser barrier = new Phaser(1);
         AtomicBoolean isError = new AtomicBoolean(false);
-        boolean awaitTermination = false;
-        try {
-            for (int i = 0; i < threadNums; i++) {
-                List<BatchDemo> batchDemoList = safeBatchDemos.stream()
-                        .skip(i * threadExecLength).limit(threadExecLength).collect(Collectors.toList());
-                int finalI = i;
-                executorService.execute(() -> {
-                    try {
-                        batchDemoService.saveBatchByThread(batchDemoList,
-                                transactionManager, transactionStatuses);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        isError.set(true);
-                    }
-                });
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(partitions.size());
+        for (List<BatchDemo> partition : partitions) {
+            barrier.register();
+            try {
+                futures.add(CompletableFuture.runAsync(() -> saveInTransaction(partition, barrier, isError, errors), executor));
+            } catch (RejectedExecutionException e) {
+                // 已提交的线程越过屏障后看到失败标记，各自回滚
+                isError.set(true);
+                errors.add(e);
+                barrier.arriveAndDeregister();
+                break;
             }
-            executorService.shutdown();
-            awaitTermination = executorService.awaitTermination(30, TimeUnit.MINUTES);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            isError.set(true);
         }
-        if (!awaitTermination) {
-            isError.set(true);
+        barrier.arriveAndDeregister();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        if (isError.get()) {
+            IllegalStateException exception = new IllegalStateException("batch insert by " + partitions.size() + " threads rolled back");
+            errors.forEach(exception::addSuppressed);
+            throw exception;
         }
-        if (ObjectUtil.isNotEmpty(transactionStatuses)) {
-            if (isError.get()) {
-                transactionStatuses.forEach(status -> transactionManager.rollback(status));
-            } else {
-                transactionStatuses.forEach(status -> transactionManager.commit(status));
+    }
+
+    /**
+     * 在当前线程开启事务写入分片，等待所有线程写完后根据整体结果提交或回滚
+     */
+    private void saveInTransaction(List<BatchDemo> partition, Phaser barrier, AtomicBoolean isError, List<Throwable> errors) {
+        TransactionStatus status = null;
+        try {
+            try {
+                status = transactionManager.getTransaction(REQUIRES_NEW);
+                batchDemoService.saveBatch(partition);
+            } catch (Throwable e) {
+                isError.set(true);
+                errors.add(e);
+            }
+            try {
+                barrier.awaitAdvanceInterruptibly(barrier.arrive(), 30, TimeUnit.MINUTES);
+            } catch (InterruptedException | TimeoutException e) {
+                isError.set(true);
+                errors.add(e);
             }
+            if (status != null) {
+                if (isError.get()) {
+                    transactionManager.rollback(status);
+                } else {
+                    transactionManager.commit(status);
+                }
+            }
+        } catch (Throwable e) {
+            isError.set(true);
+            errors.add(e);
         }
     }
 
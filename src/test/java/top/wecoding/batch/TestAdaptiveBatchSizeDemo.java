@@ -0,0 +1,65 @@
+package top.wecoding.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.wecoding.batch.size.BatchSizeController;
+import top.wecoding.batch.writer.JdbcTemplateBatchWriter;
+import top.wecoding.mybatis.domain.BatchDemo;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(properties = "batch.writer.adaptive.enabled=true")
+@SuppressWarnings("all")
+class TestAdaptiveBatchSizeDemo {
+    @Resource
+    private BatchWriterFactory batchWriterFactory;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 开启自适应批次大小写入10w条，打印每个批次的大小与耗时：
+     * 从batch-size开始，耗时低于target-latency-ms时每批增加increase-step，超过时按decrease-factor缩小
+     */
+    @Test
+    void testAdaptive() {
+        BatchSizeController controller = batchWriterFactory.createBatchSizeController();
+        BatchSizeController printing = new BatchSizeController() {
+            @Override
+            public int nextBatchSize() {
+                return controller.nextBatchSize();
+            }
+
+            @Override
+            public void onSuccess(int size, long elapsedNanos) {
+                controller.onSuccess(size, elapsedNanos);
+                System.out.println("批次：" + size + "，耗时：" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "，下一批次：" + controller.nextBatchSize());
+            }
+
+            @Override
+            public void onFailure(int size, Throwable e) {
+                controller.onFailure(size, e);
+                System.out.println("批次：" + size + "，失败：" + e.getMessage() + "，下一批次：" + controller.nextBatchSize());
+            }
+        };
+        JdbcTemplateBatchWriter<BatchDemo> writer = new JdbcTemplateBatchWriter<>(jdbcTemplate, TableMapping.of(BatchDemo.class), printing);
+        BatchWriteResult result = writer.write(buildBatchDemos(0, 100000));
+        System.out.println("耗时：" + result.getElapsedMillis() + "，每秒：" + (long) result.getRowsPerSecond());
+    }
+
+    private List<BatchDemo> buildBatchDemos(int offset, int size) {
+        List<BatchDemo> batchDemos = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            batchDemos.add(batchDemo);
+        }
+        return batchDemos;
+    }
+}
@@ -0,0 +1,226 @@
+package top.wecoding.batch;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import top.wecoding.batch.job.ImportJobResult;
+import top.wecoding.batch.job.ImportJobRunner;
+import top.wecoding.batch.pipeline.BatchPipeline;
+import top.wecoding.batch.pipeline.PipelineMetrics;
+import top.wecoding.batch.staging.StagingLoader;
+import top.wecoding.jfr.BatchRecordingManager;
+import top.wecoding.mybatis.domain.BatchDemo;
+
+import javax.annotation.Resource;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@SpringBootTest
+@SuppressWarnings("all")
+class TestBatchWriterDemo {
+    @Resource
+    private BatchWriterFactory batchWriterFactory;
+
+    @Resource
+    private BatchRecordingManager batchRecordingManager;
+
+    /**
+     * 使用配置的默认策略写入1w条数据
+     */
+    @Test
+    void testWrite() {
+        BatchWriteResult result = batchWriterFactory.getWriter(BatchDemo.class).write(buildBatchDemos(0, 10000));
+        System.out.println(result.getType() + " 耗时：" + result.getElapsedMillis() + "，每秒：" + (long) result.getRowsPerSecond());
+    }
+
+    /**
+     * 对比各关系型数据库策略的吞吐量
+     */
+    @Test
+    void testCompare() {
+        batchWriterFactory.getWriter(BatchWriterType.JDBC, BatchDemo.class).write(buildBatchDemos(0, 10000));
+        batchWriterFactory.getWriter(BatchWriterType.JDBC_TEMPLATE, BatchDemo.class).write(buildBatchDemos(10000, 10000));
+        batchWriterFactory.getWriter(BatchWriterType.MYBATIS, BatchDemo.class).write(buildBatchDemos(20000, 10000));
+        batchWriterFactory.getWriter(BatchWriterType.JPA, top.wecoding.jpa.pojo.BatchDemo.class).write(buildJpaBatchDemos(30000, 10000));
+        batchWriterFactory.getStats().forEach((key, stats) -> System.out.println(key + " -> " + stats));
+    }
+
+    /**
+     * 数据库批处理语句，按字节预算自动拆分为多条语句
+     */
+    @Test
+    void testMultiValues() {
+        BatchWriteResult result = batchWriterFactory.getWriter(BatchWriterType.MULTI_VALUES, BatchDemo.class).write(buildBatchDemos(0, 100000));
+        System.out.println("耗时：" + result.getElapsedMillis());
+    }
+
+    /**
+     * 固定行数的预处理多行插入，10001条按batch-size=1000分为11批，前10批各拆分为 512*1 + 64*7 + 8*5，最后一批为 1*1
+     */
+    @Test
+    void testFixedArity() {
+        BatchWriteResult result = batchWriterFactory.getWriter(BatchWriterType.FIXED_ARITY, BatchDemo.class).write(buildBatchDemos(0, 10001));
+        System.out.println("耗时：" + result.getElapsedMillis());
+    }
+
+    /**
+     * mysql LOAD DATA LOCAL INFILE 内存流导入
+     */
+    @Test
+    void testLoadData() {
+        BatchWriteResult result = batchWriterFactory.getWriter(BatchWriterType.LOAD_DATA, BatchDemo.class).write(buildBatchDemos(0, 100000));
+        System.out.println("耗时：" + result.getElapsedMillis());
+    }
+
+    /**
+     * 批量upsert，前5000条已存在时更新，后5000条插入
+     */
+    @Test
+    void testUpsert() {
+        batchWriterFactory.getWriter(BatchWriterType.JDBC_TEMPLATE, BatchDemo.class).write(buildBatchDemos(0, 5000));
+        BatchWriteResult result = batchWriterFactory.getWriter(BatchWriterType.UPSERT, BatchDemo.class).write(buildBatchDemos(0, 10000));
+        System.out.println("耗时：" + result.getElapsedMillis());
+        // 只更新batch_value
+        result = batchWriterFactory.createUpsertWriter(BatchDemo.class, Arrays.asList("id"), Arrays.asList("batch_value"))
+                .write(buildBatchDemos(0, 10000));
+        System.out.println("耗时：" + result.getElapsedMillis());
+    }
+
+    /**
+     * 派生表关联批量更新1w条，batch_name为null的不修改
+     */
+    @Test
+    void testBulkUpdate() {
+        batchWriterFactory.getWriter(BatchWriterType.JDBC_TEMPLATE, BatchDemo.class).write(buildBatchDemos(0, 10000));
+        List<BatchDemo> batchDemos = buildBatchDemos(0, 10000);
+        batchDemos.forEach(batchDemo -> {
+            batchDemo.setBatchName(null);
+            batchDemo.setBatchValue("update" + batchDemo.getId());
+        });
+        BatchWriteResult result = batchWriterFactory.getWriter(BatchWriterType.BULK_UPDATE, BatchDemo.class).write(batchDemos);
+        System.out.println("更新：" + result.getRows() + "，耗时：" + result.getElapsedMillis());
+    }
+
+    /**
+     * 按主键批量删除：0~9999合并为between范围，其余零散主键分组为in列表
+     */
+    @Test
+    void testDelete() {
+        batchWriterFactory.getWriter(BatchWriterType.JDBC_TEMPLATE, BatchDemo.class).write(buildBatchDemos(0, 20000));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            if (i < 10000 || i % 3 == 0) {
+                ids.add(i);
+            }
+        }
+        Collections.shuffle(ids);
+        long starTime = System.currentTimeMillis();
+        long rows = batchWriterFactory.createDeleter(BatchDemo.class).deleteByIds(ids);
+        System.out.println("删除：" + rows + "，耗时：" + (System.currentTimeMillis() - starTime));
+    }
+
+    /**
+     * 暂存表并行导入10w条，再merge 10w条（前5w条更新）
+     */
+    @Test
+    void testStaging() {
+        StagingLoader<BatchDemo> loader = batchWriterFactory.createStagingLoader(BatchDemo.class);
+        long starTime = System.currentTimeMillis();
+        long rows = loader.load(buildBatchDemos(0, 100000));
+        System.out.println("导入：" + rows + "，耗时：" + (System.currentTimeMillis() - starTime));
+        starTime = System.currentTimeMillis();
+        rows = loader.merge(buildBatchDemos(50000, 100000));
+        System.out.println("合并：" + rows + "，耗时：" + (System.currentTimeMillis() - starTime));
+    }
+
+    /**
+     * 可续传导入100w条，在第50w条处模拟中断，再次运行时从检查点继续
+     */
+    @Test
+    void testImportJob() {
+        ImportJobRunner<BatchDemo> runner = batchWriterFactory.createImportJobRunner(BatchWriterType.FIXED_ARITY, BatchDemo.class);
+        runner.reset("testImportJob");
+        try {
+            runner.run("testImportJob", afterKey -> buildBatchDemos(0, 1000000).stream()
+                    .filter(batchDemo -> afterKey == null || batchDemo.getId() > (Integer) afterKey)
+                    .peek(batchDemo -> {
+                        if (batchDemo.getId() == 500000) {
+                            throw new RuntimeException("模拟中断");
+                        }
+                    })
+                    .iterator());
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+        ImportJobResult result = runner.run("testImportJob", afterKey -> buildBatchDemos(0, 1000000).stream()
+                .filter(batchDemo -> afterKey == null || batchDemo.getId() > (Integer) afterKey)
+                .iterator());
+        System.out.println("续传批次：" + result.getStartChunk() + "，写入：" + result.getRows() + "，耗时：" + result.getElapsedMillis());
+    }
+
+    /**
+     * 流水线写入100w条，数据边生成边转换边写入，内存中最多保留队列容量内的批次
+     */
+    @Test
+    void testPipeline() {
+        BatchPipeline<Integer, BatchDemo> pipeline = batchWriterFactory.createPipeline(BatchDemo.class, i -> {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            return batchDemo;
+        }, batchDemo -> batchDemo.getBatchName().length() <= 32);
+        PipelineMetrics metrics = pipeline.run(IntStream.range(0, 1000000).iterator());
+        System.out.println(metrics);
+    }
+
+    /**
+     * 以batch录制配置录制JFR，写入1w条后打印每个批次的绑定、执行、提交耗时与分配
+     */
+    @Test
+    void testJfr() throws Exception {
+        batchRecordingManager.start("batch");
+        batchWriterFactory.getWriter(BatchWriterType.JDBC_TEMPLATE, BatchDemo.class).write(buildBatchDemos(0, 10000));
+        String file = batchRecordingManager.stop();
+        for (RecordedEvent event : RecordingFile.readAllEvents(Paths.get(file))) {
+            if ("top.wecoding.BatchChunk".equals(event.getEventType().getName())) {
+                System.out.println(event.getString("strategy") + " 行数：" + event.getLong("rows")
+                        + "，绑定：" + event.getDuration("bindTime").toMillis()
+                        + "，执行：" + event.getDuration("executeTime").toMillis()
+                        + "，提交：" + event.getDuration("commitTime").toMillis()
+                        + "，耗时：" + event.getDuration().toMillis()
+                        + "，分配：" + event.getLong("allocated"));
+            }
+        }
+        System.out.println(file);
+    }
+
+    private List<BatchDemo> buildBatchDemos(int offset, int size) {
+        List<BatchDemo> batchDemos = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            batchDemos.add(batchDemo);
+        }
+        return batchDemos;
+    }
+
+    private List<top.wecoding.jpa.pojo.BatchDemo> buildJpaBatchDemos(int offset, int size) {
+        List<top.wecoding.jpa.pojo.BatchDemo> batchDemos = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            top.wecoding.jpa.pojo.BatchDemo batchDemo = new top.wecoding.jpa.pojo.BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            batchDemos.add(batchDemo);
+        }
+        return batchDemos;
+    }
+}
@@ -0,0 +1,49 @@
+package top.wecoding.jdbcTemplate;
+
+import cn.hutool.extra.spring.SpringUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+
+/**
+ * 开启InsertRewriteFilter后，事务中逐条执行的单行insert由过滤器合并为多行insert，调用代码与testInsert2相同
+ */
+@SpringBootTest(properties = "batch.insert-rewrite.enabled=true")
+@SuppressWarnings("all")
+public class TestInsertRewriteDemo {
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 添加1w条数据手动控制事务（编程式），每128条合并为一条insert
+     */
+    @Test
+    void testInsert() {
+        TransactionTemplate template = SpringUtil.getBean(TransactionTemplate.class);
+        long starTime = System.currentTimeMillis();
+        template.execute(status -> {
+            for (int i = 0; i < 10000; i++) {
+                jdbcTemplate.update("insert into batch_demo(id, batch_name, batch_value) value (?,?,?)",
+                        new Object[]{i, "name" + i, "value" + i});
+            }
+            return null;
+        });
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+    }
+
+    /**
+     * 自动提交模式下每条insert本身就是一个事务，过滤器不做合并
+     */
+    @Test
+    void testInsertAutoCommit() {
+        long starTime = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            jdbcTemplate.update("insert into batch_demo(id, batch_name, batch_value) value (?,?,?)",
+                    new Object[]{i, "name" + i, "value" + i});
+        }
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+    }
+}
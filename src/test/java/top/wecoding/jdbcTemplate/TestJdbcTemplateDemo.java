@@ -10,6 +10,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.object.BatchSqlUpdate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.filter.SqlStatFilter;
 
 import javax.annotation.Resource;
 import java.sql.PreparedStatement;
@@ -27,6 +28,8 @@ import java.util.concurrent.TimeUnit;
 public class TestJdbcTemplateDemo {
     @Resource
     private JdbcTemplate jdbcTemplate;
+    @Resource
+    private SqlStatFilter sqlStatFilter;
 
     /**
      * 测试连通性
@@ -204,4 +207,20 @@ public class TestJdbcTemplateDemo {
         poolExecutor.awaitTermination(30,TimeUnit.MINUTES);
         System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
     }
+
+    /**
+     * 不同参数的同一条sql归为一个指纹，输出次数、行数与p50/p99/max耗时
+     */
+    @Test
+    void testSqlStat() {
+        sqlStatFilter.reset();
+        long starTime = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            jdbcTemplate.update("insert into batch_demo(id, batch_name, batch_value) value (?,?,?)",
+                    new Object[]{i, "name" + i, "value" + i});
+            jdbcTemplate.queryForList("select * from batch_demo where id = " + i);
+        }
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+        System.out.println(sqlStatFilter.report(10));
+    }
 }
@@ -8,11 +8,17 @@ import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.object.BatchSqlUpdate;
 import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.FixedBatchSizeController;
+import top.wecoding.batch.writer.OracleArrayBatchWriter;
+import top.wecoding.mybatis.domain.BatchDemo;
 
 import javax.annotation.Resource;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -173,4 +179,23 @@ public class TestJdbcTemplateOracleDemo {
         poolExecutor.awaitTermination(30,TimeUnit.MINUTES);
         System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
     }
+
+    /**
+     * 添加1w条数据 整列数组绑定 forall insert，APPEND_VALUES直接路径
+     */
+    @Test
+    void testInsert9() {
+        List<BatchDemo> batchDemos = new ArrayList<>(10000);
+        for (int i = 0; i < 10000; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            batchDemos.add(batchDemo);
+        }
+        long starTime = System.currentTimeMillis();
+        new OracleArrayBatchWriter<>(jdbcTemplate, SpringUtil.getBean(TransactionTemplate.class), TableMapping.of(BatchDemo.class),
+                new FixedBatchSizeController(10000), true).write(batchDemos);
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+    }
 }
@@ -8,15 +8,21 @@ import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.object.BatchSqlUpdate;
 import org.springframework.transaction.support.TransactionTemplate;
+import top.wecoding.batch.TableMapping;
+import top.wecoding.batch.size.FixedBatchSizeController;
+import top.wecoding.batch.writer.PgCopyBatchWriter;
+import top.wecoding.mybatis.domain.BatchDemo;
 
 import javax.annotation.Resource;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 @SpringBootTest
 @SuppressWarnings("all")
@@ -168,4 +174,24 @@ public class TestJdbcTemplatePostgreSqlDemo {
         poolExecutor.awaitTermination(30,TimeUnit.MINUTES);
         System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
     }
+
+    /**
+     * 添加1w条数据 copy from stdin（binary格式），边生成边写入，每次只从迭代器取出一个批次（2000条），不构建完整列表
+     */
+    @Test
+    void testInsert9() {
+        long starTime = System.currentTimeMillis();
+        PgCopyBatchWriter<BatchDemo> writer = new PgCopyBatchWriter<>(jdbcTemplate, TableMapping.of(BatchDemo.class),
+                new FixedBatchSizeController(2000), true, false);
+        Iterator<BatchDemo> rows = IntStream.range(0, 10000).mapToObj(i -> {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name" + i);
+            batchDemo.setBatchValue("value" + i);
+            return batchDemo;
+        }).iterator();
+        writer.copy(rows);
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+        System.out.println(writer.getStats());
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import top.wecoding.mongo.dao.BatchDemoMongoRepository;
 import top.wecoding.mongo.entity.BatchDemo;
+import top.wecoding.mongo.service.impl.BaseMongoServiceImpl;
 
 import javax.annotation.Resource;
 import java.util.ArrayList;
@@ -86,4 +87,30 @@ class TestMongoDemo {
         poolExecutor.awaitTermination(30, TimeUnit.MINUTES);
         System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
     }
+
+    /**
+     * 按ID批量删除：连续ID合并为范围条件，零散ID分组为 $in
+     */
+    @Test
+    void testRemoveByIds() {
+        List<BatchDemo> batchDemos = new ArrayList<>(20000);
+        for (int i = 0; i < 20000; i++) {
+            batchDemos.add(new BatchDemo().setId(i).setBatchName("name" + i).setBatchValue("value" + i));
+        }
+        mongoTemplate.insertAll(batchDemos);
+        BaseMongoServiceImpl<BatchDemo> batchDemoService = new BaseMongoServiceImpl<BatchDemo>() {
+            {
+                this.mongoTemplate = TestMongoDemo.this.mongoTemplate;
+            }
+        };
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            if (i < 10000 || i % 3 == 0) {
+                ids.add(i);
+            }
+        }
+        long starTime = System.currentTimeMillis();
+        long deleted = batchDemoService.removeByIds(ids);
+        System.out.println("删除：" + deleted + "，耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+    }
 }
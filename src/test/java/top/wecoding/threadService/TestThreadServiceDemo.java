@@ -1,17 +1,36 @@
 package top.wecoding.threadService;
 
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import top.wecoding.batch.pool.DynamicThreadPoolTaskExecutor;
+import top.wecoding.metrics.TransactionProfiler;
 import top.wecoding.mybatis.domain.BatchDemo;
+import top.wecoding.mybatis.service.BatchDemoService;
 
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
-@SpringBootTest
+@SpringBootTest(properties = "batch.tx-profile.enabled=true")
 @SuppressWarnings("all")
 public class TestThreadServiceDemo {
     @Resource
     private BatchInsertByThreadService batchInsertByThreadService;
+    @Resource
+    private TransactionProfiler transactionProfiler;
+    @Resource
+    private BatchDemoService batchDemoService;
+    @Resource(name = "dbExecutor")
+    private ExecutorService dbExecutor;
+    /**
+     * 开启虚拟线程模式时为SemaphoreBoundedExecutor，按Executor注入
+     */
+    @Resource(name = "threadPoolTaskExecutor")
+    private Executor threadPoolTaskExecutor;
 
     /**
      * 存入199条数据，缺少第100条数据
@@ -33,4 +52,98 @@ public class TestThreadServiceDemo {
         }
         batchInsertByThreadService.insertBy2PC(batchDemos,5);
     }
+
+    /**
+     * 线程数超过连接池maxActive时按空闲连接数限制并行度
+     */
+    @Test
+    void insert2(){
+        ArrayList<BatchDemo> batchDemos = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name"+i);
+            batchDemo.setBatchValue("value"+i);
+            batchDemos.add(batchDemo);
+        }
+        long starTime = System.currentTimeMillis();
+        batchInsertByThreadService.insertBy2PC(batchDemos,50);
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+    }
+
+    /**
+     * 200个并发单行保存经组提交缓冲合并写入，缺少第100条数据
+     */
+    @Test
+    void insert3(){
+        batchInsertByThreadService.insertByGroupCommit();
+    }
+
+    /**
+     * 多线程写入后查看各事务的耗时、连接占用与等待连接的耗时，以及超过阈值的长事务
+     */
+    @Test
+    void insert4(){
+        ArrayList<BatchDemo> batchDemos = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name"+i);
+            batchDemo.setBatchValue("value"+i);
+            batchDemos.add(batchDemo);
+        }
+        batchInsertByThreadService.insertBy2PC(batchDemos, 20);
+        System.out.println(transactionProfiler.report(10));
+        System.out.println(transactionProfiler.longTransactions());
+        System.out.println("等待连接耗时：" + transactionProfiler.getPoolWaitTotalMillis());
+    }
+
+    /**
+     * 100个分片提交到dbExecutor，并发数按连接池可借出的连接数放行，其余排队，不会阻塞在获取连接上
+     */
+    @Test
+    void insert5(){
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        long starTime = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            List<BatchDemo> batchDemos = new ArrayList<>();
+            for (int j = i * 1000; j < (i + 1) * 1000; j++) {
+                BatchDemo batchDemo = new BatchDemo();
+                batchDemo.setId(j);
+                batchDemo.setBatchName("name"+j);
+                batchDemo.setBatchValue("value"+j);
+                batchDemos.add(batchDemo);
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> batchDemoService.saveBatch(batchDemos), dbExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+        System.out.println(dbExecutor);
+        System.out.println("等待连接耗时：" + transactionProfiler.getPoolWaitTotalMillis());
+    }
+
+    /**
+     * 10000个单行保存提交到默认异步线程池，队列满时按拒绝策略阻塞提交线程而不是抛出异常；
+     * 运行中可通过JMX top.wecoding:type=AsyncExecutor 的resize调整线程数与队列容量
+     */
+    @Test
+    void insert6(){
+        Assumptions.assumeTrue(this.threadPoolTaskExecutor instanceof DynamicThreadPoolTaskExecutor, "虚拟线程模式下不是可动态调整的线程池");
+        DynamicThreadPoolTaskExecutor threadPoolTaskExecutor = (DynamicThreadPoolTaskExecutor) this.threadPoolTaskExecutor;
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        long starTime = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name"+i);
+            batchDemo.setBatchValue("value"+i);
+            futures.add(CompletableFuture.supplyAsync(() -> batchDemoService.save(batchDemo), threadPoolTaskExecutor));
+            if (i == 5000) {
+                threadPoolTaskExecutor.resize(threadPoolTaskExecutor.getCorePoolSize() * 2, threadPoolTaskExecutor.getMaxPoolSize() * 2, 1000);
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+        System.out.println(threadPoolTaskExecutor);
+    }
 }
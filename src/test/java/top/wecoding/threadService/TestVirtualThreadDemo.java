@@ -0,0 +1,44 @@
+package top.wecoding.threadService;
+
+import cn.hutool.extra.spring.SpringUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import top.wecoding.config.AsyncConfig;
+import top.wecoding.mybatis.domain.BatchDemo;
+import top.wecoding.mybatis.service.BatchDemoService;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程执行模式，需在java 21+上运行，低版本jdk上仍为平台线程池
+ */
+@SpringBootTest(properties = "batch.virtual-threads.enabled=true")
+@SuppressWarnings("all")
+public class TestVirtualThreadDemo {
+    @Resource
+    private BatchDemoService batchDemoService;
+
+    /**
+     * 10000个单行保存同时提交，每个任务一个虚拟线程，同时执行的不超过数据库与mongo连接池中较小的最大连接数（默认配置下即druid的maxActive）
+     */
+    @Test
+    void insert0(){
+        ExecutorService executorService = SpringUtil.getBean(AsyncConfig.ExecutorType.WORK_EXECUTOR);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        long starTime = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            BatchDemo batchDemo = new BatchDemo();
+            batchDemo.setId(i);
+            batchDemo.setBatchName("name"+i);
+            batchDemo.setBatchValue("value"+i);
+            futures.add(CompletableFuture.supplyAsync(() -> batchDemoService.save(batchDemo), executorService));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println("耗时：" + String.valueOf(System.currentTimeMillis() - starTime));
+        System.out.println(executorService);
+    }
+}